@@ -0,0 +1,285 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber2;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Throughput and allocation benchmarks for the {@code CryptoUtilities} hot
+ * paths, over a grid of operand bit lengths and {@code NaturalNumber}
+ * implementations. Operands are drawn from a fixed seed, so runs on the same
+ * machine are comparable.
+ *
+ * <p>
+ * Arguments are optional {@code key=value} pairs:
+ * <ul>
+ * <li>{@code op=powerMod,fixedBasePower,...} operations to run (default all)</li>
+ * <li>{@code bits=64,256,...} operand bit lengths (default 64, 256, 1024,
+ * 2048, 4096)</li>
+ * <li>{@code impl=NaturalNumber2,NaturalNumberBinary} implementations
+ * (default both)</li>
+ * <li>{@code warmup=3}, {@code iterations=5}, {@code time=500} warm-up and
+ * measurement iterations, and milliseconds per iteration</li>
+ * </ul>
+ * Run with {@code -XX:+UseParallelGC} or similar fixed collector settings
+ * when comparing allocation numbers between runs.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class CryptoBenchmarks {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private CryptoBenchmarks() {
+    }
+
+    /**
+     * Seed for the operands.
+     */
+    private static final long SEED = 2221L;
+
+    /**
+     * Number of Miller&ndash;Rabin rounds for isPrime3.
+     */
+    private static final int ROUNDS = 20;
+
+    /**
+     * Names of all operations, in report order.
+     */
+    private static final String[] OPERATIONS = { "powerMod", "fixedBasePower",
+        "isPrime1", "isPrime2", "isPrime3", "isPrime4", "reduceToGCD",
+        "generateNextLikelyPrime" };
+
+    /**
+     * Default operand bit lengths.
+     */
+    private static final String DEFAULT_BITS = "64,256,1024,2048,4096";
+
+    /**
+     * Constructors of the supported implementations, by name.
+     */
+    private static final Map<String, Function<NaturalNumber, NaturalNumber>> IMPLEMENTATIONS = new LinkedHashMap<>();
+
+    static {
+        IMPLEMENTATIONS.put("NaturalNumber2", NaturalNumber2::new);
+        IMPLEMENTATIONS.put("NaturalNumberBinary", NaturalNumberBinary::new);
+    }
+
+    /**
+     * Operands for one bit length, all of the requested implementation.
+     */
+    private static final class Operands {
+
+        /**
+         * Odd modulus with its top bit set.
+         */
+        private final NaturalNumber modulus;
+
+        /**
+         * Base in [0, modulus].
+         */
+        private final NaturalNumber base;
+
+        /**
+         * Exponent with the same bit length as the modulus.
+         */
+        private final NaturalNumber exponent;
+
+        /**
+         * A likely prime.
+         */
+        private final NaturalNumber prime;
+
+        /**
+         * Another number with the full bit length.
+         */
+        private final NaturalNumber other;
+
+        /**
+         * Draws operands of {@code bits} bits.
+         *
+         * @param bits
+         *            operand bit length
+         * @param make
+         *            constructor of the implementation
+         */
+        private Operands(int bits, Function<NaturalNumber, NaturalNumber> make) {
+            UniformRandom random = new UniformRandom(SEED + bits);
+            NaturalNumber m = fullLength(bits, random);
+            if (CryptoUtilities.isEven(m)) {
+                m.increment();
+            }
+            this.modulus = make.apply(m);
+            this.base = make.apply(random.next(m));
+            this.exponent = make.apply(fullLength(bits, random));
+            this.prime = make.apply(LikelyPrimeBatch.generate(1,
+                    Math.max(bits, LikelyPrimeBatch.MIN_BIT_LENGTH), SEED)[0]);
+            this.other = make.apply(fullLength(bits, random));
+        }
+
+        /**
+         * Returns a random number of exactly {@code bits} bits.
+         *
+         * @param bits
+         *            bit length
+         * @param random
+         *            source of random numbers
+         * @return the number
+         */
+        private static NaturalNumber fullLength(int bits, UniformRandom random) {
+            NaturalNumberBinary top = new NaturalNumberBinary(1);
+            top.shiftLeft(bits - 1);
+            NaturalNumberBinary span = new NaturalNumberBinary(top);
+            span.decrement();
+            NaturalNumber result = random.next(span);
+            result.add(top);
+            return result;
+        }
+
+    }
+
+    /**
+     * Returns the operation named {@code name} on {@code x}. Operations that
+     * update their arguments work on fresh copies, so the copying is part of
+     * what is measured; it is linear and small next to the operations.
+     *
+     * @param name
+     *            name of the operation
+     * @param x
+     *            the operands
+     * @return the operation
+     */
+    private static Runnable operation(String name, Operands x) {
+        Runnable result;
+        switch (name) {
+            case "powerMod":
+                result = () -> {
+                    NaturalNumber n = x.base.newInstance();
+                    n.copyFrom(x.base);
+                    CryptoUtilities.powerMod(n, x.exponent, x.modulus);
+                    MicroBenchmark.consume(n);
+                };
+                break;
+            case "fixedBasePower":
+                /*
+                 * The table is built once, outside the measured operation
+                 */
+                FixedBasePower power = new FixedBasePower(x.base, x.modulus,
+                        Limbs.bitLength(Limbs.fromNaturalNumber(x.exponent)));
+                result = () -> {
+                    NaturalNumber n = x.base.newInstance();
+                    power.power(x.exponent, n);
+                    MicroBenchmark.consume(n);
+                };
+                break;
+            case "isPrime1":
+                result = () -> MicroBenchmark.consume(CryptoUtilities.isPrime1(x.prime));
+                break;
+            case "isPrime2":
+                result = () -> MicroBenchmark.consume(CryptoUtilities.isPrime2(x.prime));
+                break;
+            case "isPrime3":
+                result = () -> MicroBenchmark
+                        .consume(CryptoUtilities.isPrime3(x.prime, ROUNDS));
+                break;
+            case "isPrime4":
+                result = () -> MicroBenchmark.consume(CryptoUtilities.isPrime4(x.prime));
+                break;
+            case "reduceToGCD":
+                result = () -> {
+                    NaturalNumber n = x.other.newInstance();
+                    n.copyFrom(x.other);
+                    NaturalNumber m = x.exponent.newInstance();
+                    m.copyFrom(x.exponent);
+                    CryptoUtilities.reduceToGCD(n, m);
+                    MicroBenchmark.consume(n);
+                };
+                break;
+            case "generateNextLikelyPrime":
+                result = () -> {
+                    NaturalNumber n = x.other.newInstance();
+                    n.copyFrom(x.other);
+                    CryptoUtilities.generateNextLikelyPrime(n);
+                    MicroBenchmark.consume(n);
+                };
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + name);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the comma-separated values of {@code key} in {@code args}, or
+     * of {@code fallback} if it is not given.
+     *
+     * @param args
+     *            the command line arguments
+     * @param key
+     *            the key
+     * @param fallback
+     *            default comma-separated values
+     * @return the values
+     */
+    private static List<String> option(String[] args, String key, String fallback) {
+        String value = fallback;
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                value = arg.substring(key.length() + 1);
+            }
+        }
+        return new ArrayList<>(Arrays.asList(value.split(",")));
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+
+        List<String> operations = option(args, "op", String.join(",", OPERATIONS));
+        List<String> bitLengths = option(args, "bits", DEFAULT_BITS);
+        List<String> implementations = option(args, "impl",
+                String.join(",", IMPLEMENTATIONS.keySet()));
+        MicroBenchmark harness = new MicroBenchmark(
+                Integer.parseInt(option(args, "warmup", "3").get(0)),
+                Integer.parseInt(option(args, "iterations", "5").get(0)),
+                Integer.parseInt(option(args, "time", "500").get(0)));
+
+        out.println(String.format("%-24s %5s %-20s %14s %12s %14s %12s %9s",
+                "Benchmark", "bits", "impl", "ops/s", "error", "alloc B/op",
+                "alloc MB/s", "gc count"));
+        for (String implementation : implementations) {
+            Function<NaturalNumber, NaturalNumber> make = IMPLEMENTATIONS
+                    .get(implementation);
+            if (make == null) {
+                throw new IllegalArgumentException(
+                        "Unknown implementation: " + implementation);
+            }
+            for (String bits : bitLengths) {
+                Operands operands = new Operands(Integer.parseInt(bits), make);
+                for (String name : operations) {
+                    MicroBenchmark.Result r = harness.measure(operation(name, operands));
+                    out.println(String.format(
+                            "%-24s %5s %-20s %14.3f %12.3f %14.1f %12.3f %9d", name,
+                            bits, implementation, r.opsPerSecond(), r.error(),
+                            r.bytesPerOp(), r.allocationRate(), r.gcCount()));
+                }
+            }
+        }
+
+        out.close();
+    }
+
+}
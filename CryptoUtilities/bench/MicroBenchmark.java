@@ -0,0 +1,303 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A small single-threaded measurement harness in the style of JMH: a number
+ * of timed warm-up iterations whose results are thrown away, then timed
+ * measurement iterations, each of which calls the operation repeatedly until
+ * a time budget is used up. Besides throughput it reports the bytes
+ * allocated per operation (from the per-thread allocation counter, when the
+ * JVM provides one) and the collector activity during measurement, which
+ * is what the JMH gc profiler reports.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class MicroBenchmark {
+
+    /**
+     * Measurements of one operation.
+     */
+    public static final class Result {
+
+        /**
+         * Mean operations per second over the measurement iterations.
+         */
+        private final double opsPerSecond;
+
+        /**
+         * Standard deviation of operations per second between iterations.
+         */
+        private final double error;
+
+        /**
+         * Bytes allocated per operation, or -1 if unknown.
+         */
+        private final double bytesPerOp;
+
+        /**
+         * Number of collections during measurement.
+         */
+        private final long gcCount;
+
+        /**
+         * Time spent collecting during measurement, in milliseconds.
+         */
+        private final long gcMillis;
+
+        /**
+         * Constructs a result.
+         *
+         * @param opsPerSecond
+         *            mean operations per second
+         * @param error
+         *            standard deviation of operations per second
+         * @param bytesPerOp
+         *            bytes allocated per operation, or -1 if unknown
+         * @param gcCount
+         *            number of collections
+         * @param gcMillis
+         *            time spent collecting, in milliseconds
+         */
+        private Result(double opsPerSecond, double error, double bytesPerOp,
+                long gcCount, long gcMillis) {
+            this.opsPerSecond = opsPerSecond;
+            this.error = error;
+            this.bytesPerOp = bytesPerOp;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        /**
+         * Reports the mean throughput.
+         *
+         * @return operations per second
+         */
+        public double opsPerSecond() {
+            return this.opsPerSecond;
+        }
+
+        /**
+         * Reports the spread of the throughput between iterations.
+         *
+         * @return standard deviation of operations per second
+         */
+        public double error() {
+            return this.error;
+        }
+
+        /**
+         * Reports the allocation per operation.
+         *
+         * @return bytes allocated per operation, or -1 if unknown
+         */
+        public double bytesPerOp() {
+            return this.bytesPerOp;
+        }
+
+        /**
+         * Reports the allocation rate.
+         *
+         * @return megabytes allocated per second, or -1 if unknown
+         */
+        public double allocationRate() {
+            final double bytesPerMegabyte = 1024.0 * 1024.0;
+            double rate = -1;
+            if (this.bytesPerOp >= 0) {
+                rate = this.bytesPerOp * this.opsPerSecond / bytesPerMegabyte;
+            }
+            return rate;
+        }
+
+        /**
+         * Reports the number of collections during measurement.
+         *
+         * @return number of collections
+         */
+        public long gcCount() {
+            return this.gcCount;
+        }
+
+        /**
+         * Reports the time spent collecting during measurement.
+         *
+         * @return time spent collecting, in milliseconds
+         */
+        public long gcMillis() {
+            return this.gcMillis;
+        }
+
+    }
+
+    /**
+     * Receiver for operation results, so the JIT cannot drop the work that
+     * produced them.
+     */
+    private static volatile Object sink;
+
+    /**
+     * Number of warm-up iterations.
+     */
+    private final int warmupIterations;
+
+    /**
+     * Number of measurement iterations.
+     */
+    private final int measurementIterations;
+
+    /**
+     * Time budget of one iteration, in nanoseconds.
+     */
+    private final long iterationNanos;
+
+    /**
+     * Constructs a harness.
+     *
+     * @param warmupIterations
+     *            number of warm-up iterations
+     * @param measurementIterations
+     *            number of measurement iterations
+     * @param iterationMillis
+     *            time budget of one iteration, in milliseconds
+     * @requires <pre>
+     * warmupIterations >= 0  and  measurementIterations > 0  and
+     * iterationMillis > 0
+     * </pre>
+     */
+    public MicroBenchmark(int warmupIterations, int measurementIterations,
+            int iterationMillis) {
+        assert warmupIterations >= 0 : "Violation of: warmupIterations >= 0";
+        assert measurementIterations > 0 : "Violation of: measurementIterations > 0";
+        assert iterationMillis > 0 : "Violation of: iterationMillis > 0";
+
+        final long nanosPerMilli = 1000000L;
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * nanosPerMilli;
+    }
+
+    /**
+     * Hands a result to the harness so that computing it is not optimized
+     * away.
+     *
+     * @param result
+     *            the result
+     */
+    public static void consume(Object result) {
+        sink = result;
+    }
+
+    /**
+     * Measures {@code operation}, which should hand its result to
+     * {@code consume}.
+     *
+     * @param operation
+     *            the operation to measure
+     * @return the measurements
+     */
+    public Result measure(Runnable operation) {
+        assert operation != null : "Violation of: operation is not null";
+
+        for (int i = 0; i < this.warmupIterations; i++) {
+            this.iteration(operation);
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long bytesBefore = allocatedBytes(threads);
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        double[] rates = new double[this.measurementIterations];
+        long operations = 0;
+        for (int i = 0; i < this.measurementIterations; i++) {
+            long start = System.nanoTime();
+            long count = this.iteration(operation);
+            rates[i] = count * 1e9 / (System.nanoTime() - start);
+            operations += count;
+        }
+        long bytesAfter = allocatedBytes(threads);
+
+        double mean = 0;
+        for (double rate : rates) {
+            mean += rate;
+        }
+        mean /= rates.length;
+        double variance = 0;
+        for (double rate : rates) {
+            variance += (rate - mean) * (rate - mean);
+        }
+        if (rates.length > 1) {
+            variance /= rates.length - 1;
+        }
+        double bytesPerOp = -1;
+        if (bytesBefore >= 0 && bytesAfter >= 0) {
+            bytesPerOp = (double) (bytesAfter - bytesBefore) / operations;
+        }
+        return new Result(mean, Math.sqrt(variance), bytesPerOp,
+                gcCount() - gcCountBefore, gcMillis() - gcMillisBefore);
+    }
+
+    /**
+     * Runs {@code operation} repeatedly until the iteration's time budget is
+     * used up, but at least once.
+     *
+     * @param operation
+     *            the operation
+     * @return number of times operation was run
+     */
+    private long iteration(Runnable operation) {
+        long start = System.nanoTime();
+        long count = 0;
+        do {
+            operation.run();
+            count++;
+        } while (System.nanoTime() - start < this.iterationNanos);
+        return count;
+    }
+
+    /**
+     * Reports the bytes allocated so far by the current thread.
+     *
+     * @param threads
+     *            the thread management bean
+     * @return bytes allocated, or -1 if the JVM does not count them
+     */
+    private static long allocatedBytes(ThreadMXBean threads) {
+        long bytes = -1;
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counting = (com.sun.management.ThreadMXBean) threads;
+            if (counting.isThreadAllocatedMemorySupported()
+                    && counting.isThreadAllocatedMemoryEnabled()) {
+                bytes = counting.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Reports the total number of collections so far.
+     *
+     * @return number of collections
+     */
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    /**
+     * Reports the total time spent collecting so far.
+     *
+     * @return time spent collecting, in milliseconds
+     */
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+}
@@ -0,0 +1,163 @@
+import java.util.SplittableRandom;
+
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Measures the crossover points between the multiplication and squaring
+ * algorithms of {@code Multiplication}, to choose its thresholds. For each
+ * operand length it times one top-level step of each algorithm (the
+ * recursive calls use the current thresholds) and reports the throughput of
+ * each, followed by the smallest length from which the faster algorithm
+ * stays faster for every larger length measured.
+ *
+ * <p>
+ * Arguments are optional {@code key=value} pairs: {@code limbs=16,24,...}
+ * operand lengths in 32-bit limbs, and {@code warmup}, {@code iterations}
+ * and {@code time} as for {@code CryptoBenchmarks}.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class MultiplicationBenchmarks {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private MultiplicationBenchmarks() {
+    }
+
+    /**
+     * Default operand lengths, in limbs.
+     */
+    private static final String DEFAULT_LIMBS = "16,24,32,40,48,56,64,80,96,112,128,"
+            + "160,192,224,256,320,384,512";
+
+    /**
+     * Returns the value of {@code key} in {@code args}, or {@code fallback}.
+     *
+     * @param args
+     *            the command line arguments
+     * @param key
+     *            the key
+     * @param fallback
+     *            default value
+     * @return the value
+     */
+    private static String option(String[] args, String key, String fallback) {
+        String value = fallback;
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                value = arg.substring(key.length() + 1);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns {@code length} random limbs with a nonzero top limb.
+     *
+     * @param length
+     *            number of limbs
+     * @param random
+     *            source of random numbers
+     * @return the limbs
+     */
+    private static int[] randomLimbs(int length, SplittableRandom random) {
+        int[] result = new int[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = random.nextInt();
+        }
+        result[length - 1] |= 1;
+        return result;
+    }
+
+    /**
+     * Returns the smallest of {@code lengths} from which {@code faster} is at
+     * least {@code slower} at every later length, or -1 if there is none.
+     *
+     * @param lengths
+     *            operand lengths, increasing
+     * @param slower
+     *            throughput of the algorithm for small operands
+     * @param faster
+     *            throughput of the algorithm for large operands
+     * @return the crossover length, or -1
+     */
+    private static int crossover(int[] lengths, double[] slower, double[] faster) {
+        int result = -1;
+        for (int i = lengths.length - 1; i >= 0 && faster[i] >= slower[i]; i--) {
+            result = lengths[i];
+        }
+        return result;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+
+        String[] parts = option(args, "limbs", DEFAULT_LIMBS).split(",");
+        int[] lengths = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            lengths[i] = Integer.parseInt(parts[i]);
+        }
+        MicroBenchmark harness = new MicroBenchmark(
+                Integer.parseInt(option(args, "warmup", "2")),
+                Integer.parseInt(option(args, "iterations", "3")),
+                Integer.parseInt(option(args, "time", "200")));
+
+        double[] schoolbook = new double[lengths.length];
+        double[] karatsuba = new double[lengths.length];
+        double[] toom3 = new double[lengths.length];
+        double[] schoolbookSquare = new double[lengths.length];
+        double[] karatsubaSquare = new double[lengths.length];
+        double[] toom3Square = new double[lengths.length];
+        SplittableRandom random = new SplittableRandom(2221L);
+        out.println(String.format("%6s %14s %14s %14s %14s %14s %14s", "limbs",
+                "schoolbook", "karatsuba", "toom3", "sq schoolbook", "sq karatsuba",
+                "sq toom3"));
+        for (int i = 0; i < lengths.length; i++) {
+            int n = lengths[i];
+            int[] a = randomLimbs(n, random);
+            int[] b = randomLimbs(n, random);
+            schoolbook[i] = harness.measure(() -> MicroBenchmark
+                    .consume(Multiplication.schoolbook(a, n, b, n))).opsPerSecond();
+            karatsuba[i] = harness.measure(() -> MicroBenchmark
+                    .consume(Multiplication.karatsuba(a, n, b, n))).opsPerSecond();
+            toom3[i] = harness.measure(
+                    () -> MicroBenchmark.consume(Multiplication.toom3(a, n, b, n)))
+                    .opsPerSecond();
+            schoolbookSquare[i] = harness.measure(() -> MicroBenchmark
+                    .consume(Multiplication.schoolbookSquare(a, n))).opsPerSecond();
+            karatsubaSquare[i] = harness.measure(() -> MicroBenchmark
+                    .consume(Multiplication.karatsubaSquare(a, n))).opsPerSecond();
+            toom3Square[i] = harness.measure(
+                    () -> MicroBenchmark.consume(Multiplication.toom3Square(a, n)))
+                    .opsPerSecond();
+            out.println(String.format("%6d %14.1f %14.1f %14.1f %14.1f %14.1f %14.1f",
+                    n, schoolbook[i], karatsuba[i], toom3[i], schoolbookSquare[i],
+                    karatsubaSquare[i], toom3Square[i]));
+        }
+
+        out.println();
+        out.println("measured KARATSUBA_THRESHOLD = "
+                + crossover(lengths, schoolbook, karatsuba) + " (current "
+                + Multiplication.KARATSUBA_THRESHOLD + ")");
+        out.println("measured TOOM3_THRESHOLD = " + crossover(lengths, karatsuba, toom3)
+                + " (current " + Multiplication.TOOM3_THRESHOLD + ")");
+        out.println("measured KARATSUBA_SQUARE_THRESHOLD = "
+                + crossover(lengths, schoolbookSquare, karatsubaSquare) + " (current "
+                + Multiplication.KARATSUBA_SQUARE_THRESHOLD + ")");
+        out.println("measured TOOM3_SQUARE_THRESHOLD = "
+                + crossover(lengths, karatsubaSquare, toom3Square) + " (current "
+                + Multiplication.TOOM3_SQUARE_THRESHOLD + ")");
+
+        out.close();
+    }
+
+}
@@ -0,0 +1,271 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Measures how the running time of modular exponentiation depends on the
+ * Hamming weight of the exponent. For each modulus bit length it draws
+ * exponents of the full bit length with a small, a middling and a large
+ * number of 1 bits, times single exponentiations with each (interleaving the
+ * weights, so that drift in the machine affects them alike), and reports the
+ * median and the 10th and 90th percentiles per weight, the spread of the
+ * medians across weights, and each path's median time relative to the
+ * sliding-window Montgomery path.
+ *
+ * <p>
+ * Arguments are optional {@code key=value} pairs: {@code bits=1024,2048}
+ * modulus bit lengths, {@code paths=montgomery,constantTime,powerMod} paths
+ * to time (powerMod is the recursive {@code CryptoUtilities.powerMod} on
+ * {@code NaturalNumberBinary}), {@code samples=200} timed runs per weight,
+ * and {@code warmup=50} untimed runs per weight first.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class TimingLeakBenchmarks {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private TimingLeakBenchmarks() {
+    }
+
+    /**
+     * Seed for the operands.
+     */
+    private static final long SEED = 2221L;
+
+    /**
+     * Fractions of the exponent bits that are set, in eighths.
+     */
+    private static final int[] WEIGHT_EIGHTHS = { 1, 4, 7 };
+
+    /**
+     * Throughput budget of the constant-time path: its median time may be at
+     * most this many times that of the sliding-window path.
+     */
+    private static final double BUDGET = 1.5;
+
+    /**
+     * Lower percentile reported besides the median.
+     */
+    private static final double LOW = 0.1;
+
+    /**
+     * Upper percentile reported besides the median.
+     */
+    private static final double HIGH = 0.9;
+
+    /**
+     * Returns the value of {@code key} in {@code args}, or {@code fallback}.
+     *
+     * @param args
+     *            the command line arguments
+     * @param key
+     *            the key
+     * @param fallback
+     *            default value
+     * @return the value
+     */
+    private static String option(String[] args, String key, String fallback) {
+        String value = fallback;
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                value = arg.substring(key.length() + 1);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns a random number of exactly {@code bits} bits, of which exactly
+     * {@code weight} are 1.
+     *
+     * @param bits
+     *            bit length
+     * @param weight
+     *            number of 1 bits
+     * @param random
+     *            source of random numbers
+     * @return limbs of the number
+     * @requires 1 <= weight <= bits
+     */
+    private static int[] withWeight(int bits, int weight, SplittableRandom random) {
+        int[] result = new int[(bits + Limbs.LIMB_BITS - 1) / Limbs.LIMB_BITS];
+        result[(bits - 1) / Limbs.LIMB_BITS] |= 1 << ((bits - 1) % Limbs.LIMB_BITS);
+        int set = 1;
+        while (set < weight) {
+            int bit = random.nextInt(bits - 1);
+            if (!Limbs.testBit(result, bit)) {
+                result[bit / Limbs.LIMB_BITS] |= 1 << (bit % Limbs.LIMB_BITS);
+                set++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the exponentiation along {@code path} of {@code base} to
+     * {@code e} modulo the modulus of {@code context}.
+     *
+     * @param path
+     *            name of the path
+     * @param context
+     *            context for the modulus
+     * @param modulus
+     *            the modulus
+     * @param base
+     *            the base
+     * @param e
+     *            the exponent
+     * @return the operation
+     */
+    private static Runnable operation(String path, MontgomeryContext context,
+            int[] modulus, int[] base, int[] e) {
+        Runnable result;
+        int[] out = new int[context.width()];
+        switch (path) {
+            case "montgomery":
+                result = () -> {
+                    context.power(base, e, out);
+                    MicroBenchmark.consume(out);
+                };
+                break;
+            case "constantTime":
+                result = () -> {
+                    context.powerConstantTime(base, e, out);
+                    MicroBenchmark.consume(out);
+                };
+                break;
+            case "powerMod":
+                NaturalNumberBinary m = new NaturalNumberBinary();
+                m.setFromLimbs(modulus);
+                NaturalNumberBinary p = new NaturalNumberBinary();
+                p.setFromLimbs(e);
+                result = () -> {
+                    NaturalNumberBinary n = new NaturalNumberBinary();
+                    n.setFromLimbs(base);
+                    CryptoUtilities.powerMod(n, p, m);
+                    MicroBenchmark.consume(n);
+                };
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown path: " + path);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the q-quantile of the sorted {@code times}.
+     *
+     * @param times
+     *            sorted times
+     * @param q
+     *            the quantile, in [0, 1]
+     * @return the quantile
+     */
+    private static long quantile(long[] times, double q) {
+        return times[(int) Math.round(q * (times.length - 1))];
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+
+        List<String> paths = new ArrayList<>(Arrays
+                .asList(option(args, "paths", "montgomery,constantTime").split(",")));
+        int samples = Integer.parseInt(option(args, "samples", "200"));
+        int warmup = Integer.parseInt(option(args, "warmup", "50"));
+        SplittableRandom random = new SplittableRandom(SEED);
+
+        out.println(String.format("%5s %-14s %7s %12s %12s %12s %10s", "bits", "path",
+                "weight", "p10 us", "median us", "p90 us", "vs fast"));
+        for (String bitsText : option(args, "bits", "1024,2048").split(",")) {
+            int bits = Integer.parseInt(bitsText);
+            int[] modulus = withWeight(bits, bits / 2, random);
+            modulus[0] |= 1;
+            MontgomeryContext context = new MontgomeryContext(modulus);
+            int[] base = Limbs.mod(withWeight(bits, bits / 2, random), modulus);
+            int[][] exponents = new int[WEIGHT_EIGHTHS.length][];
+            for (int w = 0; w < exponents.length; w++) {
+                exponents[w] = withWeight(bits, bits * WEIGHT_EIGHTHS[w] / 8, random);
+            }
+
+            Map<String, Long> overallMedian = new LinkedHashMap<>();
+            for (String path : paths) {
+                Runnable[] ops = new Runnable[exponents.length];
+                long[][] times = new long[exponents.length][samples];
+                for (int w = 0; w < exponents.length; w++) {
+                    ops[w] = operation(path, context, modulus, base, exponents[w]);
+                }
+                for (int i = 0; i < warmup; i++) {
+                    for (Runnable op : ops) {
+                        op.run();
+                    }
+                }
+                for (int i = 0; i < samples; i++) {
+                    for (int w = 0; w < ops.length; w++) {
+                        long start = System.nanoTime();
+                        ops[w].run();
+                        times[w][i] = System.nanoTime() - start;
+                    }
+                }
+
+                long[] all = new long[exponents.length * samples];
+                long lowest = Long.MAX_VALUE;
+                long highest = 0;
+                for (int w = 0; w < exponents.length; w++) {
+                    Arrays.sort(times[w]);
+                    System.arraycopy(times[w], 0, all, w * samples, samples);
+                    long median = quantile(times[w], 0.5);
+                    lowest = Math.min(lowest, median);
+                    highest = Math.max(highest, median);
+                    out.println(String.format("%5d %-14s %6d%% %12.1f %12.1f %12.1f",
+                            bits, path, WEIGHT_EIGHTHS[w] * 100 / 8,
+                            quantile(times[w], LOW) / 1e3, median / 1e3,
+                            quantile(times[w], HIGH) / 1e3));
+                }
+                Arrays.sort(all);
+                long median = quantile(all, 0.5);
+                overallMedian.put(path, median);
+                String relative = "";
+                Long fast = overallMedian.get("montgomery");
+                if (fast != null) {
+                    relative = String.format("%.2fx", (double) median / fast);
+                }
+                out.println(String.format("%5d %-14s %7s %12s %12.1f %12s %10s", bits,
+                        path, "all", "", median / 1e3, "", relative));
+                out.println(String.format(
+                        "      spread of medians across weights: %.1f%%",
+                        100.0 * (highest - lowest) / lowest));
+            }
+            Long fast = overallMedian.get("montgomery");
+            Long hardened = overallMedian.get("constantTime");
+            if (fast != null && hardened != null) {
+                double ratio = (double) hardened / fast;
+                String verdict = "ok";
+                if (ratio > BUDGET) {
+                    verdict = "OVER BUDGET";
+                }
+                out.println(String.format(
+                        "      constantTime / montgomery = %.2f (budget %.1f): %s", ratio,
+                        BUDGET, verdict));
+            }
+            out.println();
+        }
+
+        out.close();
+    }
+
+}
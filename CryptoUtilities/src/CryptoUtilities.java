@@ -1,7 +1,8 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
 import components.naturalnumber.NaturalNumber;
 import components.naturalnumber.NaturalNumber2;
-import components.random.Random;
-import components.random.Random1L;
 import components.simplereader.SimpleReader;
 import components.simplereader.SimpleReader1L;
 import components.simplewriter.SimpleWriter;
@@ -22,14 +23,30 @@ public final class CryptoUtilities {
     }
 
     /**
-     * Useful constant, not a magic number: 3.
+     * Pseudo-random number generator, one per thread.
      */
-    private static final int THREE = 3;
+    private static final ThreadLocal<UniformRandom> GENERATOR = ThreadLocal
+            .withInitial(UniformRandom::new);
 
     /**
-     * Pseudo-random number generator.
+     * Long.MAX_VALUE as a decimal string.
+     */
+    private static final String LONG_MAX_DIGITS = String.valueOf(Long.MAX_VALUE);
+
+    /**
+     * Reports whether the value of n fits in a long.
+     *
+     * @param n
+     *            the number to be checked
+     * @return true iff n <= Long.MAX_VALUE
+     * @ensures fitsInLong = (n <= Long.MAX_VALUE)
      */
-    private static final Random GENERATOR = new Random1L();
+    private static boolean fitsInLong(NaturalNumber n) {
+        String digits = n.toString();
+        return digits.length() < LONG_MAX_DIGITS.length()
+                || (digits.length() == LONG_MAX_DIGITS.length()
+                        && digits.compareTo(LONG_MAX_DIGITS) <= 0);
+    }
 
     /**
      * Returns a random number uniformly distributed in the interval [0, n].
@@ -44,39 +61,13 @@ public final class CryptoUtilities {
      */
     public static NaturalNumber randomNumber(NaturalNumber n) {
         assert !n.isZero() : "Violation of: n > 0";
-        NaturalNumber result;
-        int d = n.divideBy10();
-        if (n.isZero()) {
-            /*
-             * Incoming n has only one digit and it is d, so generate a random
-             * number uniformly distributed in [0, d]
-             */
-            int x = (int) ((d + 1) * GENERATOR.nextDouble());
-            result = new NaturalNumber2(x);
-            n.multiplyBy10(d);
-        } else {
-            /*
-             * Incoming n has more than one digit, so generate a random number
-             * (NaturalNumber) uniformly distributed in [0, n], and another
-             * (int) uniformly distributed in [0, 9] (i.e., a random digit)
-             */
-            result = randomNumber(n);
-            int lastDigit = (int) (NaturalNumber.RADIX * GENERATOR.nextDouble());
-            result.multiplyBy10(lastDigit);
-            n.multiplyBy10(d);
-            if (result.compareTo(n) > 0) {
-                /*
-                 * In this case, we need to try again because generated number
-                 * is greater than n; the recursive call's argument is not
-                 * "smaller" than the incoming value of n, but this recursive
-                 * call has no more than a 90% chance of being made (and for
-                 * large n, far less than that), so the probability of
-                 * termination is 1
-                 */
-                result = randomNumber(n);
-            }
-        }
-        return result;
+
+        /*
+         * Draw as many random bits as n has and start over if the result
+         * exceeds n; each draw succeeds with probability more than 1/2, and
+         * every value in [0, n] is equally likely to be the one accepted
+         */
+        return GENERATOR.get().next(n);
     }
 
     /**
@@ -93,18 +84,43 @@ public final class CryptoUtilities {
     public static void reduceToGCD(NaturalNumber n, NaturalNumber m) {
 
         /*
-         * Use Euclid's algorithm; in pseudocode: if m = 0 then GCD(n, m) = n
-         * else GCD(n, m) = GCD(m, n mod m)
+         * Use the binary (Stein) algorithm on limbs: it needs only shifts and
+         * subtractions, and being iterative its depth does not grow with the
+         * inputs the way recursive Euclid's does
          */
 
         if (!m.isZero()) {
-            NaturalNumber remainder = n.divide(m);
-            n.copyFrom(m);
-            reduceToGCD(n, remainder);
+            int[] gcd = Limbs.gcd(Limbs.fromNaturalNumber(n), Limbs.fromNaturalNumber(m));
+            Limbs.toNaturalNumber(gcd, n);
         }
         m.clear();
     }
 
+    /**
+     * Returns the inverse of a modulo m.
+     *
+     * @param a
+     *            the number to invert
+     * @param m
+     *            the modulus
+     * @return the number x in [0, m) such that a * x mod m = 1
+     * @requires m > 1 and [a and m are relatively prime]
+     * @ensures <pre>
+     * 0 <= modInverse < m  and  (a * modInverse) mod m = 1
+     * </pre>
+     */
+    public static NaturalNumber modInverse(NaturalNumber a, NaturalNumber m) {
+        assert a != null : "Violation of: a is not null";
+        assert m != null : "Violation of: m is not null";
+        assert m.compareTo(new NaturalNumber2(1)) > 0 : "Violation of: m > 1";
+
+        NaturalNumber inverse = a.newInstance();
+        Limbs.toNaturalNumber(
+                Limbs.modInverse(Limbs.fromNaturalNumber(a), Limbs.fromNaturalNumber(m)),
+                inverse);
+        return inverse;
+    }
+
     /**
      * Reports whether n is even.
      *
@@ -115,9 +131,18 @@ public final class CryptoUtilities {
      */
     public static boolean isEven(NaturalNumber n) {
 
-        int lastDigit = n.divideBy10();
-        n.multiplyBy10(lastDigit);
-        return (lastDigit % 2 == 0);
+        boolean even;
+        if (n instanceof NaturalNumberBinary) {
+            /*
+             * binary representation: just look at the low bit
+             */
+            even = ((NaturalNumberBinary) n).isEven();
+        } else {
+            int lastDigit = n.divideBy10();
+            n.multiplyBy10(lastDigit);
+            even = (lastDigit % 2 == 0);
+        }
+        return even;
     }
 
     /**
@@ -142,21 +167,29 @@ public final class CryptoUtilities {
          * immediately by "reducing the result modulo m"
          */
 
-        final NaturalNumber two = new NaturalNumber2(2);
+        /*
+         * Temporaries are made with newInstance so that they share the
+         * representation of the arguments (e.g., NaturalNumberBinary)
+         */
+        final NaturalNumber two = p.newInstance();
+        two.setFromInt(2);
 
         // Base case: if p = 0, result of n = #n ^ (p) mod m = 1
         if (p.isZero()) {
             n.setFromInt(1);
         } else {
             // Recursive case: if p != 0, compute the powerMod by (n * n) ^ (p / 2) mod m
-            NaturalNumber nOrig = new NaturalNumber2(n);
-            NaturalNumber half = new NaturalNumber2(p);
+            NaturalNumber nOrig = n.newInstance();
+            nOrig.copyFrom(n);
+            NaturalNumber half = p.newInstance();
+            half.copyFrom(p);
             NaturalNumber powerParity = half.divide(two);
 
             powerMod(n, half, m);
 
             // the square of n
-            NaturalNumber nCopy = new NaturalNumber2(n);
+            NaturalNumber nCopy = n.newInstance();
+            nCopy.copyFrom(n);
             n.multiply(nCopy);
 
             // n = n^2 mod m
@@ -172,6 +205,57 @@ public final class CryptoUtilities {
         }
     }
 
+    /**
+     * Updates n to its p-th power modulo the modulus of {@code context}. Gives
+     * the same result as {@code powerMod(n, p, m)}, but reuses the Montgomery
+     * constants and buffers precomputed in {@code context}, so it is the one
+     * to use when many powers are taken with the same (odd) modulus.
+     *
+     * @param n
+     *            number to be raised to a power
+     * @param p
+     *            the power
+     * @param context
+     *            precomputed context for the modulus m
+     * @updates n
+     * @ensures n = #n ^ (p) mod m
+     */
+    public static void powerMod(NaturalNumber n, NaturalNumber p,
+            MontgomeryContext context) {
+        assert context != null : "Violation of: context is not null";
+
+        context.power(n, p);
+    }
+
+    /**
+     * Updates n to its p-th power modulo m, like {@code powerMod}, but in a
+     * way meant for secret exponents: powerMod branches on every bit of p, so
+     * its running time reveals how many bits of p are set, while this method
+     * performs the same sequence of operations and memory accesses for every
+     * exponent that fits in |m| limbs (see
+     * {@code MontgomeryContext.powerConstantTime}). Converting n and p out of
+     * their {@code NaturalNumber} representations is not covered, and the
+     * JVM makes no timing promises, so this narrows the leak rather than
+     * closing every side channel.
+     *
+     * @param n
+     *            number to be raised to a power
+     * @param p
+     *            the power
+     * @param m
+     *            the modulus
+     * @updates n
+     * @requires m > 1 and m is odd
+     * @ensures n = #n ^ (p) mod m
+     */
+    public static void powerModConstantTime(NaturalNumber n, NaturalNumber p,
+            NaturalNumber m) {
+        assert m.compareTo(new NaturalNumber2(1)) > 0 : "Violation of: m > 1";
+        assert !isEven(m) : "Violation of: m is odd";
+
+        new MontgomeryContext(m).powerConstantTime(n, p);
+    }
+
     /**
      * Reports whether w is a "witness" that n is composite, in the sense that
      * either it is a square root of 1 (mod n), or it fails to satisfy the
@@ -195,26 +279,36 @@ public final class CryptoUtilities {
         assert w.compareTo(n) < 0 : "Violation of: w < n - 1";
         n.increment();
 
-        NaturalNumber one = new NaturalNumber2(1);
-        NaturalNumber two = new NaturalNumber2(2);
-
-        // Make copies of w as powerMod modifies input parameter
-        NaturalNumber w1 = w.newInstance();
-        w1.copyFrom(w);
-        NaturalNumber w2 = w.newInstance();
-        w2.copyFrom(w);
-
-        // Check (w ^ 2 mod n = 1)
-        powerMod(w1, two, n);
-        boolean expression1 = w1.equals(one);
-
-        // Check (w ^ (n-1) mod n /= 1)
-        NaturalNumber nMinusOne = new NaturalNumber2(n);
-        nMinusOne.decrement();
-        powerMod(w2, nMinusOne, n);
-        boolean expression2 = w2.compareTo(one) != 0;
-
-        return (expression1 || expression2);
+        boolean isWitness;
+        if (!isEven(n)) {
+            /*
+             * n is odd and so at least 5: the context has n - 1 and the
+             * reduction context ready, and checks both conditions
+             */
+            isWitness = new PrimalityContext(n).isWitness(w);
+        } else {
+            NaturalNumber one = new NaturalNumber2(1);
+            NaturalNumber two = new NaturalNumber2(2);
+
+            // Make copies of w as powerMod modifies input parameter
+            NaturalNumber w1 = w.newInstance();
+            w1.copyFrom(w);
+            NaturalNumber w2 = w.newInstance();
+            w2.copyFrom(w);
+
+            // Check (w ^ 2 mod n = 1)
+            powerMod(w1, two, n);
+            boolean expression1 = w1.equals(one);
+
+            // Check (w ^ (n-1) mod n /= 1)
+            NaturalNumber nMinusOne = new NaturalNumber2(n);
+            nMinusOne.decrement();
+            powerMod(w2, nMinusOne, n);
+            boolean expression2 = w2.compareTo(one) != 0;
+
+            isWitness = expression1 || expression2;
+        }
+        return isWitness;
     }
 
     /**
@@ -234,11 +328,11 @@ public final class CryptoUtilities {
     public static boolean isPrime1(NaturalNumber n) {
         assert n.compareTo(new NaturalNumber2(1)) > 0 : "Violation of: n > 1";
         boolean isPrime;
-        if (n.compareTo(new NaturalNumber2(THREE)) <= 0) {
+        if (fitsInLong(n)) {
             /*
-             * 2 and 3 are primes
+             * small enough for the exact test on primitive longs
              */
-            isPrime = true;
+            isPrime = LongPrimality.isPrime(Long.parseLong(n.toString()));
         } else if (isEven(n)) {
             /*
              * evens are composite
@@ -246,10 +340,10 @@ public final class CryptoUtilities {
             isPrime = false;
         } else {
             /*
-             * odd n >= 5: simply check whether 2 is a witness that n is
-             * composite (which works surprisingly well :-)
+             * odd n too large for a long: simply check whether 2 is a witness
+             * that n is composite (which works surprisingly well :-)
              */
-            isPrime = !isWitnessToCompositeness(new NaturalNumber2(2), n);
+            isPrime = !new PrimalityContext(n).isWitness(new NaturalNumber2(2));
         }
         return isPrime;
     }
@@ -269,7 +363,31 @@ public final class CryptoUtilities {
      * </pre>
      */
     public static boolean isPrime2(NaturalNumber n) {
+        return isPrime2(n, new WitnessEngine.Statistics());
+    }
+
+    /**
+     * Reports whether n is a prime; may be wrong with "low" probability. Adds
+     * the number of witness candidates tried and the time spent to
+     * {@code stats}.
+     *
+     * @param n
+     *            number to be checked
+     * @param stats
+     *            totals to add this call's work to
+     * @return true means n is very likely prime; false means n is definitely
+     *         composite
+     * @updates stats
+     * @requires n > 1
+     * @ensures <pre>
+     * isPrime2 = [n is a prime number, with small probability of error
+     *         if it is reported to be prime, and no chance of error if it is
+     *         reported to be composite]
+     * </pre>
+     */
+    public static boolean isPrime2(NaturalNumber n, WitnessEngine.Statistics stats) {
         assert n.compareTo(new NaturalNumber2(1)) > 0 : "Violation of: n > 1";
+        assert stats != null : "Violation of: stats is not null";
 
         /*
          * Use the ability to generate random numbers (provided by the
@@ -281,45 +399,43 @@ public final class CryptoUtilities {
          * clause of isWitnessToCompositeness
          */
 
-        // TODO - fill in body
         boolean isPrime = true;
-        NaturalNumber one = new NaturalNumber2(1);
-        // random w < n-1 (w <= n-2)
-        NaturalNumber wBound = new NaturalNumber2(n);
-        wBound.subtract(new NaturalNumber2(2));
 
-        if (n.compareTo(new NaturalNumber2(THREE)) <= 0) {
+        if (fitsInLong(n)) {
             /*
-             * 2 and 3 are primes
+             * small enough for the exact test on primitive longs
              */
-            isPrime = true;
+            long start = System.nanoTime();
+            isPrime = LongPrimality.isPrime(Long.parseLong(n.toString()));
+            stats.record(0, System.nanoTime() - start);
         } else if (isEven(n)) {
             /*
              * evens are composite
              */
             isPrime = false;
         } else {
-            // generate 50 random numbers in [2, n-2] to check primality of n
-            // if cannot find a witness that n is composite, n is probably a prime
+            /*
+             * Check up to 50 random candidates in [2, n-2], stopping at the
+             * first witness that n is composite; if there is none, n is
+             * probably a prime. The engine works out n - 1 and everything else
+             * that depends only on n once, for all candidates.
+             */
             final int numberOfCandidates = 50;
-            for (int i = 0; i < numberOfCandidates; i++) {
-                NaturalNumber candidate = randomNumber(wBound);
-
+            final NaturalNumber one = new NaturalNumber2(1);
+            NaturalNumber wBound = new NaturalNumber2(n);
+            wBound.subtract(new NaturalNumber2(2));
+            WitnessEngine engine = new WitnessEngine(n);
+            isPrime = !engine.findWitness(() -> {
                 /*
-                 * Use the random generator to produce a random number uniformly
-                 * distributed in [0, n - 2]. Need to exclude 0's and 1's to
-                 * prevent violation of asserts in isWitnessToCompositeness.
-                 *
+                 * randomNumber is uniform in [0, n - 2]; 0 and 1 are excluded
+                 * to satisfy the requires clause of the witness test
                  */
+                NaturalNumber candidate = randomNumber(wBound);
                 while (candidate.compareTo(one) <= 0) {
                     candidate = randomNumber(wBound);
                 }
-                // Check primality of n
-                if (isWitnessToCompositeness(candidate, n)) {
-                    isPrime = false;
-                }
-
-            }
+                return candidate;
+            }, numberOfCandidates, stats);
         }
         return isPrime;
     }
@@ -352,10 +468,28 @@ public final class CryptoUtilities {
 
         /*
          * loop through odd numbers greater than or equal to n until a likely
-         * prime is found
+         * prime is found; the sieve tracks n modulo the small odd primes so
+         * that candidates with a small factor are skipped without calling
+         * isPrime2, and n itself is only updated for the survivors
          */
-        while (!isPrime2(n)) {
-            n.add(two);
+        SmallPrimeSieve sieve = new SmallPrimeSieve(n);
+        NaturalNumber gap = new NaturalNumber2();
+        boolean found = false;
+        while (!found) {
+            int skipped = 0;
+            while (sieve.hasSmallFactor()) {
+                sieve.advance(2);
+                skipped += 2;
+            }
+            if (skipped > 0) {
+                gap.setFromInt(skipped);
+                n.add(gap);
+            }
+            found = isPrime2(n);
+            if (!found) {
+                sieve.advance(2);
+                n.add(two);
+            }
         }
 
     }
@@ -390,19 +524,11 @@ public final class CryptoUtilities {
 
         boolean isPrime = true;
 
-        final NaturalNumber one = new NaturalNumber2(1);
-        final NaturalNumber two = new NaturalNumber2(2);
-
-        NaturalNumber nMinusOne = new NaturalNumber2(n);
-        nMinusOne.decrement();
-        NaturalNumber nMinusTwo = new NaturalNumber2(nMinusOne);
-        nMinusTwo.decrement();
-
-        if (n.compareTo(new NaturalNumber2(THREE)) <= 0) {
+        if (fitsInLong(n)) {
             /*
-             * 2 and 3 are primes
+             * small enough for the exact test on primitive longs
              */
-            isPrime = true;
+            isPrime = LongPrimality.isPrime(Long.parseLong(n.toString()));
         } else if (isEven(n)) {
             /*
              * evens are composite
@@ -410,66 +536,86 @@ public final class CryptoUtilities {
             isPrime = false;
         } else {
             /*
-             * Factors out powers of 2 from (n - 1) to find s and d such that n
-             * - 1 = 2^s * d, where d is an odd positive integer and s is a
-             * positive integer.
+             * The context factors n - 1 = 2^s * d, where d is odd, once for
+             * all k rounds; each round then tests a random base a in [2, n-2]
+             * and the loop stops at the first witness that n is composite
              */
-            NaturalNumber s = new NaturalNumber2(0);
-            NaturalNumber d = new NaturalNumber2(nMinusOne);
-            NaturalNumber remainder = d.divide(two);
-            while (remainder.isZero()) {
-                s.increment();
-                remainder = d.divide(two);
+            final NaturalNumber one = new NaturalNumber2(1);
+            NaturalNumber aBound = new NaturalNumber2(n);
+            aBound.subtract(new NaturalNumber2(2));
+            PrimalityContext context = new PrimalityContext(n);
+            for (int i = 0; i < k && isPrime; i++) {
+                NaturalNumber a = randomNumber(aBound);
+                while (a.compareTo(one) <= 0) {
+                    a = randomNumber(aBound);
+                }
+                isPrime = !context.isStrongWitness(a);
             }
-            d.multiply(two);
-            d.add(remainder);
+        }
+        return isPrime;
+    }
+
+    /**
+     * Reports whether n is a prime by the Baillie&ndash;PSW test: n has no
+     * small prime factor, passes the Miller&ndash;Rabin test with base 2, and
+     * is a strong Lucas probable prime with Selfridge's parameters. The cost
+     * is about that of three modular exponentiations, whatever the size of n.
+     *
+     * @param n
+     *            number to be checked
+     * @return true means n is very likely prime (no composite is known that
+     *         passes this test); false means n is definitely composite
+     * @requires n > 1
+     * @ensures <pre>
+     * isPrime4 = [n is a prime number, with no known case of error
+     *         if it is reported to be prime, and no chance of error if it is
+     *         reported to be composite]
+     * </pre>
+     */
+    public static boolean isPrime4(NaturalNumber n) {
+        assert n.compareTo(new NaturalNumber2(1)) > 0 : "Violation of: n > 1";
 
+        boolean isPrime;
+        if (fitsInLong(n)) {
             /*
-             * Performs k rounds of Miller–Rabin primality test using random
-             * base a in [2, n-2].
+             * small enough for the exact test on primitive longs
              */
-            for (int i = 0; i < k; i++) {
-                // pick a random base a in [2, n-2]
-                NaturalNumber a = randomNumber(nMinusOne);
-                while (a.compareTo(one) <= 0) {
-                    a = randomNumber(nMinusOne);
-                }
-                // compute x = a^d mod n
-                NaturalNumber x = new NaturalNumber2(a);
-                powerMod(x, d, n);
-
-                NaturalNumber sCopy = new NaturalNumber2(s);
-                NaturalNumber y = new NaturalNumber2(x);
-
-                while (!sCopy.isZero()) {
-                    // compute y = x^2 mod n
-                    powerMod(y, two, n);
-                    // test if the only square roots of 1 modulo n are 1 and −1
-                    if (y.compareTo(one) == 0 && x.compareTo(one) != 0
-                            && x.compareTo(nMinusOne) != 0) {
-                        // nontrivial square root of 1 mod n
-                        // found a witness that n is a composite
-                        isPrime = false;
-                    }
-                    x.copyFrom(y);
-                    sCopy.decrement();
-                }
-                // test if a^(n-1) is congruent to 1 mod n
-                if (y.compareTo(one) != 0) {
-                    isPrime = false;
-                }
-            }
+            isPrime = LongPrimality.isPrime(Long.parseLong(n.toString()));
+        } else if (isEven(n) || new SmallPrimeSieve(n).hasSmallFactor()) {
+            /*
+             * n is larger than every sieving prime, so a small factor is a
+             * proper factor
+             */
+            isPrime = false;
+        } else {
+            PrimalityContext context = new PrimalityContext(n);
+            isPrime = !context.isStrongWitness(new NaturalNumber2(2))
+                    && context.isStrongLucasProbablePrime();
         }
         return isPrime;
     }
 
     /**
-     * Main method.
+     * Screens every number in the file named {@code file}, one per line, and
+     * writes one verdict line per number to standard output, in input order.
      *
-     * @param args
-     *            the command line arguments
+     * @param file
+     *            name of the file of numbers
      */
-    public static void main(String[] args) {
+    private static void screen(String file) {
+        try {
+            long count = new PrimalityScreen().screen(Paths.get(file), System.out);
+            System.err.println(count + " numbers screened");
+        } catch (IOException e) {
+            System.err.println("Error screening " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Shows a sample of randomNumber, then checks numbers typed by the user
+     * for primality until one less than 2 is entered.
+     */
+    private static void checkInteractively() {
         SimpleReader in = new SimpleReader1L();
         SimpleWriter out = new SimpleWriter1L();
 
@@ -531,4 +677,22 @@ public final class CryptoUtilities {
         out.close();
     }
 
+    /**
+     * Main method. With no arguments, checks numbers typed by the user one at
+     * a time; with file names as arguments, screens the numbers in each file
+     * in batch mode (see {@code PrimalityScreen}) instead.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            checkInteractively();
+        } else {
+            for (String file : args) {
+                screen(file);
+            }
+        }
+    }
+
 }
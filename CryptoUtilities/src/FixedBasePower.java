@@ -0,0 +1,280 @@
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * Powers of one fixed base modulo one fixed odd modulus, for callers that
+ * raise the same generator to many different exponents. The exponent is read
+ * as a number in radix 2^w (w is the window width), and the table holds, in
+ * Montgomery form, base ^ (d * 2^(w * j)) for every digit d in [1, 2^w) and
+ * every digit position j up to a chosen maximum exponent length. A power is
+ * then the product of one table entry per nonzero digit: at most
+ * ceil(bits / w) - 1 modular multiplications and no squarings, against about
+ * bits squarings plus bits / (w + 1) multiplications for sliding-window
+ * exponentiation.
+ *
+ * <p>
+ * The table takes ceil(bits / w) * (2^w - 1) entries of |m| limbs each, so
+ * the window width trades memory for speed: each extra bit of width cuts the
+ * multiplications by a factor of about w / (w + 1) and roughly doubles the
+ * table. {@code widthFor} picks the widest window that fits a memory budget.
+ * Exponents longer than the table allows are still handled, by ordinary
+ * sliding-window exponentiation.
+ *
+ * <p>
+ * The table is not changed after construction, but the reduction buffers are
+ * shared, so a single instance must not be used by more than one thread at a
+ * time.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class FixedBasePower {
+
+    /**
+     * Window width used when none is given.
+     */
+    public static final int DEFAULT_WIDTH = 4;
+
+    /**
+     * Largest supported window width.
+     */
+    public static final int MAX_WIDTH = 8;
+
+    /**
+     * Reduction context for the modulus.
+     */
+    private final MontgomeryContext context;
+
+    /**
+     * The base, reduced modulo m.
+     */
+    private final int[] base;
+
+    /**
+     * Window width w.
+     */
+    private final int width;
+
+    /**
+     * Number of digit positions covered by the table.
+     */
+    private final int windows;
+
+    /**
+     * table[j][d - 1] = base ^ (d * 2^(w * j)) * R mod m.
+     */
+    private final int[][][] table;
+
+    /**
+     * Running product of power.
+     */
+    private final int[] accumulator;
+
+    /**
+     * Constructs the table for powers of {@code base} modulo {@code m} with
+     * exponents of up to {@code exponentBits} bits, with window width
+     * {@code DEFAULT_WIDTH}.
+     *
+     * @param base
+     *            the base
+     * @param m
+     *            the modulus
+     * @param exponentBits
+     *            bit length of the longest exponent the table covers
+     * @requires m > 1 and m is odd and exponentBits > 0
+     */
+    public FixedBasePower(NaturalNumber base, NaturalNumber m, int exponentBits) {
+        this(base, m, exponentBits, DEFAULT_WIDTH);
+    }
+
+    /**
+     * Constructs the table for powers of {@code base} modulo {@code m} with
+     * exponents of up to {@code exponentBits} bits, with window width
+     * {@code width}.
+     *
+     * @param base
+     *            the base
+     * @param m
+     *            the modulus
+     * @param exponentBits
+     *            bit length of the longest exponent the table covers
+     * @param width
+     *            window width
+     * @requires m > 1 and m is odd and exponentBits > 0 and 1 <= width <=
+     *           MAX_WIDTH
+     */
+    public FixedBasePower(NaturalNumber base, NaturalNumber m, int exponentBits,
+            int width) {
+        assert base != null : "Violation of: base is not null";
+        assert m != null : "Violation of: m is not null";
+        assert exponentBits > 0 : "Violation of: exponentBits > 0";
+        assert 1 <= width && width <= MAX_WIDTH : ""
+                + "Violation of: 1 <= width <= MAX_WIDTH";
+
+        int[] modulus = Limbs.fromNaturalNumber(m);
+        this.context = new MontgomeryContext(modulus);
+        this.base = Limbs.mod(Limbs.fromNaturalNumber(base), modulus);
+        this.width = width;
+        this.windows = (exponentBits + width - 1) / width;
+        int k = this.context.width();
+        int digits = (1 << width) - 1;
+        this.table = new int[this.windows][digits][k];
+        this.accumulator = new int[k];
+
+        /*
+         * Row j holds the powers of g = base ^ (2^(w * j)); the next row's g
+         * is the last entry of this row times g, i.e., g ^ (2^w)
+         */
+        int[] g = new int[k];
+        this.context.toMontgomery(this.base, g);
+        for (int j = 0; j < this.windows; j++) {
+            int[][] row = this.table[j];
+            System.arraycopy(g, 0, row[0], 0, k);
+            for (int d = 1; d < digits; d++) {
+                this.context.montgomeryMultiply(row[d - 1], g, row[d]);
+            }
+            this.context.montgomeryMultiply(row[digits - 1], g, g);
+        }
+    }
+
+    /**
+     * Returns the widest window whose table for a modulus of
+     * {@code modulusBits} bits and exponents of {@code exponentBits} bits
+     * takes at most {@code maxBytes} bytes, or 1 if none does.
+     *
+     * @param modulusBits
+     *            bit length of the modulus
+     * @param exponentBits
+     *            bit length of the longest exponent
+     * @param maxBytes
+     *            memory budget for the table, in bytes
+     * @return window width in [1, MAX_WIDTH]
+     * @requires modulusBits > 0 and exponentBits > 0
+     * @ensures widthFor = 1 or tableBytes(modulusBits, exponentBits, widthFor)
+     *          <= maxBytes
+     */
+    public static int widthFor(int modulusBits, int exponentBits, long maxBytes) {
+        assert modulusBits > 0 : "Violation of: modulusBits > 0";
+        assert exponentBits > 0 : "Violation of: exponentBits > 0";
+
+        int width = 1;
+        while (width < MAX_WIDTH
+                && tableBytes(modulusBits, exponentBits, width + 1) <= maxBytes) {
+            width++;
+        }
+        return width;
+    }
+
+    /**
+     * Reports the size in bytes of the table for a modulus of
+     * {@code modulusBits} bits, exponents of {@code exponentBits} bits and
+     * window width {@code width}, not counting array headers.
+     *
+     * @param modulusBits
+     *            bit length of the modulus
+     * @param exponentBits
+     *            bit length of the longest exponent
+     * @param width
+     *            window width
+     * @return the table size in bytes
+     * @requires modulusBits > 0 and exponentBits > 0 and 1 <= width <=
+     *           MAX_WIDTH
+     */
+    public static long tableBytes(int modulusBits, int exponentBits, int width) {
+        long limbs = (modulusBits + Limbs.LIMB_BITS - 1) / Limbs.LIMB_BITS;
+        long windows = (exponentBits + width - 1) / width;
+        return windows * ((1 << width) - 1) * limbs * Integer.BYTES;
+    }
+
+    /**
+     * Reports the window width of the table.
+     *
+     * @return the window width
+     */
+    public int width() {
+        return this.width;
+    }
+
+    /**
+     * Reports the bit length of the longest exponent the table covers.
+     *
+     * @return the exponent bit length
+     */
+    public int exponentBits() {
+        return this.windows * this.width;
+    }
+
+    /**
+     * Returns the digit of {@code e} in radix 2^w at position {@code j}.
+     *
+     * @param e
+     *            the exponent
+     * @param j
+     *            the digit position
+     * @return bits [w * j, w * (j + 1)) of e
+     */
+    private int digit(int[] e, int j) {
+        int from = j * this.width;
+        int index = from / Limbs.LIMB_BITS;
+        int shift = from % Limbs.LIMB_BITS;
+        long bits = 0;
+        if (index < e.length) {
+            bits = (e[index] & Limbs.MASK) >>> shift;
+            if (index + 1 < e.length) {
+                bits |= (e[index + 1] & Limbs.MASK) << (Limbs.LIMB_BITS - shift);
+            }
+        }
+        return (int) bits & ((1 << this.width) - 1);
+    }
+
+    /**
+     * Sets {@code out} to base ^ (e) mod m.
+     *
+     * @param e
+     *            the exponent, of any size
+     * @param out
+     *            k-limb result
+     * @replaces out
+     * @ensures out = base ^ (e) mod m
+     */
+    void power(int[] e, int[] out) {
+        if (Limbs.bitLength(e) > this.exponentBits()) {
+            this.context.power(this.base, e, out);
+        } else {
+            int[] acc = this.accumulator;
+            System.arraycopy(this.context.one(), 0, acc, 0, acc.length);
+            boolean started = false;
+            for (int j = 0; j < this.windows; j++) {
+                int d = this.digit(e, j);
+                if (d != 0) {
+                    if (started) {
+                        this.context.montgomeryMultiply(acc, this.table[j][d - 1], acc);
+                    } else {
+                        System.arraycopy(this.table[j][d - 1], 0, acc, 0, acc.length);
+                        started = true;
+                    }
+                }
+            }
+            this.context.fromMontgomery(acc, out);
+        }
+    }
+
+    /**
+     * Replaces {@code result} by base ^ (p) mod m.
+     *
+     * @param p
+     *            the power
+     * @param result
+     *            the number to hold the result
+     * @replaces result
+     * @ensures result = base ^ (p) mod m
+     */
+    public void power(NaturalNumber p, NaturalNumber result) {
+        assert p != null : "Violation of: p is not null";
+        assert result != null : "Violation of: result is not null";
+
+        int[] out = new int[this.accumulator.length];
+        this.power(Limbs.fromNaturalNumber(p), out);
+        Limbs.toNaturalNumber(out, result);
+    }
+
+}
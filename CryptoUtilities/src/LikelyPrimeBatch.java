@@ -0,0 +1,267 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber2;
+
+/**
+ * Generates batches of distinct likely primes of a given bit length, spreading
+ * the search over a {@code ForkJoinPool}. Each search task draws from its own
+ * {@code SplittableRandom}, split off a root generator in task order, so the
+ * output depends only on the seed and not on the number of threads or on how
+ * the tasks are scheduled.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class LikelyPrimeBatch {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private LikelyPrimeBatch() {
+    }
+
+    /**
+     * Smallest supported bit length; every candidate is then larger than all
+     * of the sieving primes.
+     */
+    public static final int MIN_BIT_LENGTH = 16;
+
+    /**
+     * Number of Miller&ndash;Rabin rounds run on each sieve survivor, for an
+     * error probability below 4^(-40).
+     */
+    private static final int ROUNDS = 40;
+
+    /**
+     * Returns {@code count} distinct likely primes, each exactly
+     * {@code bitLength} bits long, using the common pool.
+     *
+     * @param count
+     *            number of primes to generate
+     * @param bitLength
+     *            bit length of each prime
+     * @param seed
+     *            seed for the root random generator
+     * @return the primes, in a seed-determined order
+     * @requires <pre>
+     * count >= 0  and  bitLength >= MIN_BIT_LENGTH  and
+     * count <= [number of primes with bitLength bits]
+     * </pre>
+     * @ensures <pre>
+     * |generate| = count  and
+     * [entries of generate are distinct, very likely prime, and in
+     *  [2^(bitLength-1), 2^bitLength)]  and
+     * [generate depends only on count, bitLength and seed]
+     * </pre>
+     */
+    public static NaturalNumber[] generate(int count, int bitLength, long seed) {
+        return generate(count, bitLength, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns {@code count} distinct likely primes, each exactly
+     * {@code bitLength} bits long, searching in {@code pool}.
+     *
+     * @param count
+     *            number of primes to generate
+     * @param bitLength
+     *            bit length of each prime
+     * @param seed
+     *            seed for the root random generator
+     * @param pool
+     *            the pool that runs the search tasks
+     * @return the primes, in a seed-determined order
+     * @requires <pre>
+     * count >= 0  and  bitLength >= MIN_BIT_LENGTH  and
+     * count <= [number of primes with bitLength bits]
+     * </pre>
+     * @ensures <pre>
+     * |generate| = count  and
+     * [entries of generate are distinct, very likely prime, and in
+     *  [2^(bitLength-1), 2^bitLength)]  and
+     * [generate depends only on count, bitLength and seed]
+     * </pre>
+     */
+    public static NaturalNumber[] generate(int count, int bitLength, long seed,
+            ForkJoinPool pool) {
+        assert count >= 0 : "Violation of: count >= 0";
+        assert bitLength >= MIN_BIT_LENGTH : "Violation of: bitLength >= MIN_BIT_LENGTH";
+        assert pool != null : "Violation of: pool is not null";
+
+        SplittableRandom root = new SplittableRandom(seed);
+        List<NaturalNumber> primes = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        /*
+         * Each round launches one task per missing prime and keeps the results
+         * in task order, dropping duplicates; another round is needed only
+         * when two tasks happened to land on the same prime
+         */
+        while (primes.size() < count) {
+            List<Callable<int[]>> tasks = new ArrayList<>();
+            for (int i = primes.size(); i < count; i++) {
+                SplittableRandom random = root.split();
+                tasks.add(() -> search(bitLength, random));
+            }
+            for (Future<int[]> result : pool.invokeAll(tasks)) {
+                NaturalNumber prime = new NaturalNumber2();
+                Limbs.toNaturalNumber(join(result), prime);
+                if (seen.add(prime.toString())) {
+                    primes.add(prime);
+                }
+            }
+        }
+        return primes.toArray(new NaturalNumber[0]);
+    }
+
+    /**
+     * Waits for and returns the value of a completed search task.
+     *
+     * @param result
+     *            the task's future
+     * @return the task's value
+     */
+    private static int[] join(Future<int[]> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating primes", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Prime search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Returns a likely prime of exactly {@code bitLength} bits: the first sieve
+     * survivor at or after a random odd starting point that passes
+     * Miller&ndash;Rabin.
+     *
+     * @param bitLength
+     *            bit length of the prime
+     * @param random
+     *            source of randomness, used by this task only
+     * @return limbs of the prime
+     * @requires bitLength >= MIN_BIT_LENGTH
+     */
+    private static int[] search(int bitLength, SplittableRandom random) {
+        int[] prime = null;
+        while (prime == null) {
+            int[] start = randomOdd(bitLength, random);
+            SmallPrimeSieve sieve = new SmallPrimeSieve(start);
+            long offset = 0;
+            boolean inRange = true;
+            while (prime == null && inRange) {
+                while (sieve.hasSmallFactor()) {
+                    sieve.advance(2);
+                    offset += 2;
+                }
+                int[] candidate = plus(start, offset);
+                inRange = Limbs.bitLength(candidate) == bitLength;
+                if (inRange && isStrongProbablePrime(candidate, ROUNDS, random)) {
+                    prime = candidate;
+                }
+                sieve.advance(2);
+                offset += 2;
+            }
+        }
+        return prime;
+    }
+
+    /**
+     * Returns a random odd number of exactly {@code bitLength} bits.
+     *
+     * @param bitLength
+     *            number of bits
+     * @param random
+     *            source of randomness
+     * @return limbs of the number
+     * @requires bitLength >= 2
+     */
+    static int[] randomOdd(int bitLength, SplittableRandom random) {
+        int length = (bitLength + Limbs.LIMB_BITS - 1) / Limbs.LIMB_BITS;
+        int[] result = new int[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = random.nextInt();
+        }
+        int topBits = bitLength - (length - 1) * Limbs.LIMB_BITS;
+        if (topBits < Limbs.LIMB_BITS) {
+            result[length - 1] &= (1 << topBits) - 1;
+        }
+        result[length - 1] |= 1 << (topBits - 1);
+        result[0] |= 1;
+        return result;
+    }
+
+    /**
+     * Returns a + b, with one limb more than a.
+     *
+     * @param a
+     *            the limbs
+     * @param b
+     *            the amount to add
+     * @return limbs of a + b
+     * @requires b >= 0
+     */
+    private static int[] plus(int[] a, long b) {
+        int[] sum = new int[a.length + 1];
+        long carry = b;
+        for (int i = 0; i < a.length; i++) {
+            long t = (a[i] & Limbs.MASK) + (carry & Limbs.MASK);
+            sum[i] = (int) t;
+            carry = (carry >>> Limbs.LIMB_BITS) + (t >>> Limbs.LIMB_BITS);
+        }
+        sum[a.length] = (int) carry;
+        return sum;
+    }
+
+    /**
+     * Returns a number uniformly distributed in [2, n - 2], in |n| limbs.
+     *
+     * @param n
+     *            the upper end, plus 2
+     * @param random
+     *            source of randomness
+     * @return limbs of the number, with no leading zero limbs
+     * @requires n > 4
+     */
+    static int[] randomBase(int[] n, SplittableRandom random) {
+        int[] span = Arrays.copyOf(n, Limbs.significantLength(n));
+        Limbs.subtractInt(span, 4);
+        return Limbs.add(UniformRandom.nextAtMost(span, random), new int[] { 2 });
+    }
+
+    /**
+     * Reports whether n passes {@code rounds} rounds of the Miller&ndash;Rabin
+     * test with random bases.
+     *
+     * @param n
+     *            number to be checked, as limbs
+     * @param rounds
+     *            number of random bases to try
+     * @param random
+     *            source of randomness for the bases
+     * @return true means n is very likely prime; false means n is definitely
+     *         composite
+     * @requires n is odd and n > 4
+     */
+    static boolean isStrongProbablePrime(int[] n, int rounds,
+            SplittableRandom random) {
+        PrimalityContext context = new PrimalityContext(n);
+        boolean isPrime = true;
+        for (int i = 0; i < rounds && isPrime; i++) {
+            isPrime = !context.isStrongWitness(randomBase(n, random));
+        }
+        return isPrime;
+    }
+
+}
@@ -0,0 +1,821 @@
+import java.util.Arrays;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * Static helpers for unsigned multi-precision integers stored as {@code int[]}
+ * arrays of 32-bit limbs, least significant limb first. Trailing (most
+ * significant) zero limbs are allowed; the value zero may be represented by
+ * an array of any length containing only zeros, including the empty array.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class Limbs {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private Limbs() {
+    }
+
+    /**
+     * Mask for treating an {@code int} limb as an unsigned value.
+     */
+    static final long MASK = 0xFFFFFFFFL;
+
+    /**
+     * Number of bits in one limb.
+     */
+    static final int LIMB_BITS = 32;
+
+    /**
+     * Number of decimal digits converted at a time.
+     */
+    private static final int CHUNK_DIGITS = 9;
+
+    /**
+     * 10 ^ CHUNK_DIGITS, the radix used when converting to and from decimal.
+     */
+    private static final int CHUNK_RADIX = 1_000_000_000;
+
+    /**
+     * Returns the limbs of the value of {@code n}.
+     *
+     * @param n
+     *            the number to convert
+     * @return limbs of n, with no leading zero limbs
+     * @ensures fromNaturalNumber = [limbs of n]
+     */
+    public static int[] fromNaturalNumber(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        int[] result;
+        if (n instanceof NaturalNumberBinary) {
+            result = ((NaturalNumberBinary) n).toLimbs();
+        } else {
+            result = fromDecimal(n.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the limbs of the number whose decimal representation is
+     * {@code digits}.
+     *
+     * @param digits
+     *            decimal digits, most significant first
+     * @return limbs of the number, with no leading zero limbs
+     * @requires there exists n: NATURAL (digits = TO_STRING(n))
+     */
+    static int[] fromDecimal(String digits) {
+        int[] result = new int[digits.length() / CHUNK_DIGITS + 1];
+        int length = 0;
+        int start = 0;
+        int end = digits.length() % CHUNK_DIGITS;
+        if (end == 0) {
+            end = CHUNK_DIGITS;
+        }
+        while (start < digits.length()) {
+            int chunk = Integer.parseInt(digits.substring(start, end));
+            /*
+             * result = result * 10^9 + chunk
+             */
+            long carry = chunk;
+            for (int i = 0; i < length; i++) {
+                long t = (result[i] & MASK) * CHUNK_RADIX + carry;
+                result[i] = (int) t;
+                carry = t >>> LIMB_BITS;
+            }
+            if (carry != 0) {
+                result[length] = (int) carry;
+                length++;
+            }
+            start = end;
+            end += CHUNK_DIGITS;
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    /**
+     * Sets {@code n} to the value represented by {@code a}.
+     *
+     * @param a
+     *            the limbs to convert
+     * @param n
+     *            the number to set
+     * @replaces n
+     * @ensures n = [value of a]
+     */
+    public static void toNaturalNumber(int[] a, NaturalNumber n) {
+        assert a != null : "Violation of: a is not null";
+        assert n != null : "Violation of: n is not null";
+
+        if (n instanceof NaturalNumberBinary) {
+            ((NaturalNumberBinary) n).setFromLimbs(a);
+        } else if (significantLength(a) == 0) {
+            n.clear();
+        } else {
+            n.setFromString(toDecimal(a));
+        }
+    }
+
+    /**
+     * Returns the decimal representation of the value of {@code a}.
+     *
+     * @param a
+     *            the limbs to convert
+     * @return decimal digits of a, most significant first
+     * @ensures toDecimal = TO_STRING([value of a])
+     */
+    static String toDecimal(int[] a) {
+        int length = significantLength(a);
+        String result = "0";
+        if (length > 0) {
+            int[] q = Arrays.copyOf(a, length);
+            StringBuilder reversed = new StringBuilder();
+            while (length > 0) {
+                /*
+                 * q = q / 10^9, emitting the remainder as 9 decimal digits
+                 */
+                long rem = divideInPlace(q, length, CHUNK_RADIX);
+                while (length > 0 && q[length - 1] == 0) {
+                    length--;
+                }
+                for (int i = 0; i < CHUNK_DIGITS; i++) {
+                    reversed.append((char) ('0' + rem % NaturalNumber.RADIX));
+                    rem /= NaturalNumber.RADIX;
+                }
+            }
+            int last = reversed.length() - 1;
+            while (last > 0 && reversed.charAt(last) == '0') {
+                last--;
+            }
+            reversed.setLength(last + 1);
+            result = reversed.reverse().toString();
+        }
+        return result;
+    }
+
+    /**
+     * Reports the number of limbs of {@code a} up to and including its most
+     * significant non-zero limb.
+     *
+     * @param a
+     *            the limbs
+     * @return number of significant limbs
+     * @ensures significantLength = [index of highest non-zero limb of a] + 1
+     */
+    public static int significantLength(int[] a) {
+        int length = a.length;
+        while (length > 0 && a[length - 1] == 0) {
+            length--;
+        }
+        return length;
+    }
+
+    /**
+     * Reports the number of bits needed to represent the value of {@code a}.
+     *
+     * @param a
+     *            the limbs
+     * @return bit length of a (0 if a = 0)
+     * @ensures bitLength = [number of bits in the binary representation of a]
+     */
+    public static int bitLength(int[] a) {
+        int length = significantLength(a);
+        int bits = 0;
+        if (length > 0) {
+            bits = (length - 1) * LIMB_BITS + LIMB_BITS
+                    - Integer.numberOfLeadingZeros(a[length - 1]);
+        }
+        return bits;
+    }
+
+    /**
+     * Reports whether bit {@code i} of {@code a} is set.
+     *
+     * @param a
+     *            the limbs
+     * @param i
+     *            bit index, 0 being least significant
+     * @return true iff bit i of a is 1
+     * @requires i >= 0
+     */
+    public static boolean testBit(int[] a, int i) {
+        int word = i >>> 5;
+        return word < a.length && ((a[word] >>> (i & (LIMB_BITS - 1))) & 1) != 0;
+    }
+
+    /**
+     * Compares the values of {@code a} and {@code b}.
+     *
+     * @param a
+     *            first number
+     * @param b
+     *            second number
+     * @return negative, zero, or positive as a is less than, equal to, or
+     *         greater than b
+     */
+    public static int compare(int[] a, int[] b) {
+        int aLength = significantLength(a);
+        int bLength = significantLength(b);
+        int result = Integer.compare(aLength, bLength);
+        for (int i = aLength - 1; result == 0 && i >= 0; i--) {
+            result = Integer.compareUnsigned(a[i], b[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Compares the values of the first {@code length} limbs of {@code a} and
+     * {@code b}.
+     *
+     * @param a
+     *            first number
+     * @param b
+     *            second number
+     * @param length
+     *            number of limbs to compare
+     * @return negative, zero, or positive as a[0, length) is less than, equal
+     *         to, or greater than b[0, length)
+     * @requires length <= |a| and length <= |b|
+     */
+    static int compare(int[] a, int[] b, int length) {
+        int result = 0;
+        for (int i = length - 1; result == 0 && i >= 0; i--) {
+            result = Integer.compareUnsigned(a[i], b[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Subtracts the first {@code length} limbs of {@code b} from those of
+     * {@code a}, in place.
+     *
+     * @param a
+     *            the minuend
+     * @param b
+     *            the subtrahend
+     * @param length
+     *            number of limbs to process
+     * @return the borrow out of the top limb (0 or 1)
+     * @updates a
+     * @requires length <= |a| and length <= |b|
+     * @ensures a[0, length) = (#a[0, length) - b[0, length)) mod 2^(32*length)
+     */
+    static int subtractInPlace(int[] a, int[] b, int length) {
+        long borrow = 0;
+        for (int i = 0; i < length; i++) {
+            long t = (a[i] & MASK) - (b[i] & MASK) - borrow;
+            a[i] = (int) t;
+            borrow = (t >>> (LIMB_BITS * 2 - 1));
+        }
+        return (int) borrow;
+    }
+
+    /**
+     * Subtracts {@code v} from {@code a}, in place.
+     *
+     * @param a
+     *            the minuend
+     * @param v
+     *            the subtrahend
+     * @updates a
+     * @requires 0 <= v <= a
+     * @ensures a = #a - v
+     */
+    static void subtractInt(int[] a, int v) {
+        long borrow = v;
+        for (int i = 0; i < a.length && borrow != 0; i++) {
+            long t = (a[i] & MASK) - borrow;
+            a[i] = (int) t;
+            borrow = t >>> (LIMB_BITS * 2 - 1);
+        }
+    }
+
+    /**
+     * Returns {@code a} shifted right by {@code bits} bits.
+     *
+     * @param a
+     *            the limbs
+     * @param bits
+     *            number of bits to shift by
+     * @return limbs of floor(a / 2^bits), of the same length as a
+     * @requires bits >= 0
+     */
+    static int[] shiftRight(int[] a, int bits) {
+        int[] result = new int[a.length];
+        int words = bits >>> 5;
+        int shift = bits & (LIMB_BITS - 1);
+        for (int i = 0; i + words < a.length; i++) {
+            long pair = a[i + words] & MASK;
+            if (i + words + 1 < a.length) {
+                pair |= (a[i + words + 1] & MASK) << LIMB_BITS;
+            }
+            result[i] = (int) (pair >>> shift);
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code a} shifted left by {@code bits} bits.
+     *
+     * @param a
+     *            the limbs
+     * @param bits
+     *            number of bits to shift by
+     * @return limbs of a * 2^bits, with room for every bit shifted out of a
+     * @requires bits >= 0
+     */
+    static int[] shiftLeft(int[] a, int bits) {
+        int words = bits >>> 5;
+        int shift = bits & (LIMB_BITS - 1);
+        int[] result = new int[a.length + words + 1];
+        for (int i = a.length - 1; i >= 0; i--) {
+            long wide = (a[i] & MASK) << shift;
+            result[i + words + 1] |= (int) (wide >>> LIMB_BITS);
+            result[i + words] = (int) wide;
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code a} without its leading zero limbs; returns {@code a}
+     * itself when it has none.
+     *
+     * @param a
+     *            the limbs
+     * @return limbs of a, with no leading zero limbs
+     */
+    static int[] trim(int[] a) {
+        int length = significantLength(a);
+        int[] result = a;
+        if (length < a.length) {
+            result = Arrays.copyOf(a, length);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a + b.
+     *
+     * @param a
+     *            first addend
+     * @param b
+     *            second addend
+     * @return limbs of a + b, with no leading zero limbs
+     */
+    static int[] add(int[] a, int[] b) {
+        int[] longer = a;
+        int[] shorter = b;
+        if (a.length < b.length) {
+            longer = b;
+            shorter = a;
+        }
+        int[] sum = new int[longer.length + 1];
+        long carry = 0;
+        for (int i = 0; i < longer.length; i++) {
+            long t = (longer[i] & MASK) + carry;
+            if (i < shorter.length) {
+                t += shorter[i] & MASK;
+            }
+            sum[i] = (int) t;
+            carry = t >>> LIMB_BITS;
+        }
+        sum[longer.length] = (int) carry;
+        return trim(sum);
+    }
+
+    /**
+     * Returns a - b.
+     *
+     * @param a
+     *            the minuend
+     * @param b
+     *            the subtrahend
+     * @return limbs of a - b, with no leading zero limbs
+     * @requires a >= b
+     */
+    static int[] subtract(int[] a, int[] b) {
+        assert compare(a, b) >= 0 : "Violation of: a >= b";
+
+        int[] difference = Arrays.copyOf(a, significantLength(a));
+        long borrow = 0;
+        int bLength = significantLength(b);
+        for (int i = 0; i < difference.length && (i < bLength || borrow != 0); i++) {
+            long t = (difference[i] & MASK) - borrow;
+            if (i < bLength) {
+                t -= b[i] & MASK;
+            }
+            difference[i] = (int) t;
+            borrow = t >>> (LIMB_BITS * 2 - 1);
+        }
+        return trim(difference);
+    }
+
+    /**
+     * Returns a * b, by the algorithm {@code Multiplication} picks for the
+     * operand sizes; a square (a and b the same array) uses the squaring
+     * routines.
+     *
+     * @param a
+     *            first factor
+     * @param b
+     *            second factor
+     * @return limbs of a * b, with no leading zero limbs
+     */
+    static int[] multiply(int[] a, int[] b) {
+        return Multiplication.multiply(a, b);
+    }
+
+    /**
+     * Divides the first {@code length} limbs of {@code a} by {@code divisor},
+     * in place.
+     *
+     * @param a
+     *            the dividend
+     * @param length
+     *            number of limbs of a to divide
+     * @param divisor
+     *            the divisor, as an unsigned 32-bit value
+     * @return the remainder
+     * @updates a
+     * @requires length <= |a| and divisor /= 0
+     * @ensures <pre>
+     * a[0, length) = #a[0, length) / divisor  and
+     * divideInPlace = #a[0, length) mod divisor
+     * </pre>
+     */
+    static long divideInPlace(int[] a, int length, long divisor) {
+        long remainder = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            long current = (remainder << LIMB_BITS) | (a[i] & MASK);
+            a[i] = (int) Long.divideUnsigned(current, divisor);
+            remainder = Long.remainderUnsigned(current, divisor);
+        }
+        return remainder;
+    }
+
+    /**
+     * Returns the quotient and remainder of a / b, using Knuth's Algorithm D
+     * (one estimated quotient limb per step, rather than one bit).
+     *
+     * @param a
+     *            the dividend
+     * @param b
+     *            the divisor
+     * @return { a / b, a mod b }, each with no leading zero limbs
+     * @requires b > 0
+     */
+    static int[][] divideAndRemainder(int[] a, int[] b) {
+        int n = significantLength(b);
+        assert n > 0 : "Violation of: b > 0";
+
+        int m = significantLength(a);
+        int[][] result;
+        if (compare(a, b) < 0) {
+            result = new int[][] { new int[0], Arrays.copyOf(a, m) };
+        } else if (n == 1) {
+            int[] quotient = Arrays.copyOf(a, m);
+            long remainder = divideInPlace(quotient, m, b[0] & MASK);
+            result = new int[][] { trim(quotient), trim(new int[] { (int) remainder }) };
+        } else {
+            /*
+             * Normalize so the divisor's top bit is set, which keeps every
+             * quotient-limb estimate within 2 of the true value
+             */
+            int shift = Integer.numberOfLeadingZeros(b[n - 1]);
+            int[] v = shiftLeft(Arrays.copyOf(b, n), shift);
+            int[] u = shiftLeft(Arrays.copyOf(a, m), shift);
+            long vTop = v[n - 1] & MASK;
+            long vNext = v[n - 2] & MASK;
+            int[] quotient = new int[m - n + 1];
+            for (int j = m - n; j >= 0; j--) {
+                long numerator = ((u[j + n] & MASK) << LIMB_BITS) | (u[j + n - 1] & MASK);
+                long qHat = Long.divideUnsigned(numerator, vTop);
+                long rHat = Long.remainderUnsigned(numerator, vTop);
+                while (qHat > MASK || Long.compareUnsigned(qHat * vNext,
+                        (rHat << LIMB_BITS) | (u[j + n - 2] & MASK)) > 0) {
+                    qHat--;
+                    rHat += vTop;
+                    if (rHat > MASK) {
+                        break;
+                    }
+                }
+                /*
+                 * u[j, j+n] = u[j, j+n] - qHat * v
+                 */
+                long borrow = 0;
+                for (int i = 0; i < n; i++) {
+                    long p = qHat * (v[i] & MASK);
+                    long t = (u[i + j] & MASK) - borrow - (p & MASK);
+                    u[i + j] = (int) t;
+                    borrow = (p >>> LIMB_BITS) - (t >> LIMB_BITS);
+                }
+                long t = (u[j + n] & MASK) - borrow;
+                u[j + n] = (int) t;
+                quotient[j] = (int) qHat;
+                if (t < 0) {
+                    /*
+                     * qHat was one too large (rare): add v back
+                     */
+                    quotient[j]--;
+                    long carry = 0;
+                    for (int i = 0; i < n; i++) {
+                        long sum = (u[i + j] & MASK) + (v[i] & MASK) + carry;
+                        u[i + j] = (int) sum;
+                        carry = sum >>> LIMB_BITS;
+                    }
+                    u[j + n] += (int) carry;
+                }
+            }
+            int[] remainder = shiftRight(Arrays.copyOf(u, n + 1), shift);
+            result = new int[][] { trim(quotient), trim(remainder) };
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code a} mod {@code m}, padded to {@code |m|} limbs.
+     *
+     * @param a
+     *            the dividend
+     * @param m
+     *            the modulus
+     * @return a mod m, as an array of length |m|
+     * @requires m > 0
+     * @ensures mod = a mod m
+     */
+    public static int[] mod(int[] a, int[] m) {
+        assert significantLength(m) > 0 : "Violation of: m > 0";
+
+        return Arrays.copyOf(divideAndRemainder(a, m)[1], m.length);
+    }
+
+    /**
+     * Adds the first {@code length} limbs of {@code b} to those of {@code a},
+     * in place.
+     *
+     * @param a
+     *            the first addend
+     * @param b
+     *            the second addend
+     * @param length
+     *            number of limbs to process
+     * @return the carry out of the top limb (0 or 1)
+     * @updates a
+     * @requires length <= |a| and length <= |b|
+     * @ensures a[0, length) = (#a[0, length) + b[0, length)) mod 2^(32*length)
+     */
+    static int addInPlace(int[] a, int[] b, int length) {
+        long carry = 0;
+        for (int i = 0; i < length; i++) {
+            long t = (a[i] & MASK) + (b[i] & MASK) + carry;
+            a[i] = (int) t;
+            carry = t >>> LIMB_BITS;
+        }
+        return (int) carry;
+    }
+
+    /**
+     * Shifts {@code a} right by {@code bits} bits, in place.
+     *
+     * @param a
+     *            the limbs
+     * @param bits
+     *            number of bits to shift by
+     * @updates a
+     * @requires bits >= 0
+     * @ensures a = #a / 2^bits
+     */
+    static void shiftRightInPlace(int[] a, int bits) {
+        int words = bits >>> 5;
+        int shift = bits & (LIMB_BITS - 1);
+        for (int i = 0; i < a.length; i++) {
+            long pair = 0;
+            if (i + words < a.length) {
+                pair = a[i + words] & MASK;
+                if (i + words + 1 < a.length) {
+                    pair |= (a[i + words + 1] & MASK) << LIMB_BITS;
+                }
+            }
+            a[i] = (int) (pair >>> shift);
+        }
+    }
+
+    /**
+     * Reports the number of trailing zero bits of {@code a}.
+     *
+     * @param a
+     *            the limbs
+     * @return the largest k such that 2^k divides a
+     * @requires a > 0
+     */
+    static int trailingZeros(int[] a) {
+        int i = 0;
+        while (a[i] == 0) {
+            i++;
+        }
+        return i * LIMB_BITS + Integer.numberOfTrailingZeros(a[i]);
+    }
+
+    /**
+     * Returns the greatest common divisor of a and b, by the binary (Stein)
+     * algorithm: no division, no recursion, and no allocation inside the
+     * loop.
+     *
+     * @param a
+     *            one number
+     * @param b
+     *            the other number
+     * @return limbs of gcd(a, b), with no leading zero limbs (gcd(0, 0) = 0)
+     */
+    static int[] gcd(int[] a, int[] b) {
+        int length = Math.max(a.length, b.length);
+        int[] u = Arrays.copyOf(a, length);
+        int[] v = Arrays.copyOf(b, length);
+        int[] result;
+        if (significantLength(u) == 0) {
+            result = trim(v);
+        } else if (significantLength(v) == 0) {
+            result = trim(u);
+        } else {
+            /*
+             * gcd(2^i * u', 2^j * v') = 2^min(i, j) * gcd(u', v'); with both
+             * odd, gcd(u, v) = gcd(u, v - u), and v - u is even
+             */
+            int uZeros = trailingZeros(u);
+            int vZeros = trailingZeros(v);
+            int common = Math.min(uZeros, vZeros);
+            shiftRightInPlace(u, uZeros);
+            while (significantLength(v) > 0) {
+                shiftRightInPlace(v, trailingZeros(v));
+                if (compare(u, v) > 0) {
+                    int[] swap = u;
+                    u = v;
+                    v = swap;
+                }
+                subtractInPlace(v, u, length);
+            }
+            result = trim(shiftLeft(u, common));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the inverse of a modulo m.
+     *
+     * @param a
+     *            the number to invert
+     * @param m
+     *            the modulus
+     * @return limbs of the x in [0, m) with a * x mod m = 1, with no leading
+     *         zero limbs
+     * @requires m > 1 and gcd(a, m) = 1
+     */
+    static int[] modInverse(int[] a, int[] m) {
+        assert bitLength(m) > 1 : "Violation of: m > 1";
+
+        int[] reduced = trim(mod(a, m));
+        int[] result;
+        if ((m[0] & 1) != 0) {
+            result = oddModInverse(reduced, m);
+        } else {
+            /*
+             * Even m (e.g., phi(n) for RSA): a must be odd, so invert m modulo
+             * a instead and recover x from a * x = 1 + m * (a - y), where y =
+             * m^(-1) mod a
+             */
+            assert (reduced.length > 0 && (reduced[0] & 1) != 0) : ""
+                    + "Violation of: gcd(a, m) = 1";
+            if (bitLength(reduced) == 1) {
+                result = new int[] { 1 };
+            } else {
+                int[] y = oddModInverse(trim(mod(m, reduced)), reduced);
+                int[] x = add(multiply(m, subtract(reduced, y)), new int[] { 1 });
+                result = divideAndRemainder(x, reduced)[0];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the inverse of a modulo an odd m, using the binary extended
+     * Euclidean algorithm so that the loop needs only shifts, additions and
+     * subtractions on preallocated buffers.
+     *
+     * @param a
+     *            the number to invert
+     * @param m
+     *            the modulus
+     * @return limbs of the x in [0, m) with a * x mod m = 1, with no leading
+     *         zero limbs
+     * @requires 0 < a < m and m is odd and gcd(a, m) = 1
+     */
+    private static int[] oddModInverse(int[] a, int[] m) {
+        assert significantLength(a) > 0 : "Violation of: gcd(a, m) = 1";
+
+        /*
+         * Invariants: a * x1 = u (mod m) and a * x2 = v (mod m), with x1, x2
+         * in [0, m); one extra limb leaves room for x + m
+         */
+        int length = significantLength(m) + 1;
+        int[] modulus = Arrays.copyOf(m, length);
+        int[] u = Arrays.copyOf(a, length);
+        int[] v = modulus.clone();
+        int[] x1 = new int[length];
+        int[] x2 = new int[length];
+        x1[0] = 1;
+        while (bitLength(u) > 1 && bitLength(v) > 1) {
+            while ((u[0] & 1) == 0) {
+                shiftRightInPlace(u, 1);
+                halveModulo(x1, modulus, length);
+            }
+            while ((v[0] & 1) == 0) {
+                shiftRightInPlace(v, 1);
+                halveModulo(x2, modulus, length);
+            }
+            if (compare(u, v) >= 0) {
+                subtractInPlace(u, v, length);
+                subtractModulo(x1, x2, modulus, length);
+            } else {
+                subtractInPlace(v, u, length);
+                subtractModulo(x2, x1, modulus, length);
+            }
+        }
+        assert bitLength(u) == 1 || bitLength(v) == 1 : ""
+                + "Violation of: gcd(a, m) = 1";
+        int[] result = x2;
+        if (bitLength(u) == 1) {
+            result = x1;
+        }
+        return trim(result);
+    }
+
+    /**
+     * Returns the integer square root of {@code a}, by Newton's method
+     * starting from a power of two no smaller than the root.
+     *
+     * @param a
+     *            the limbs
+     * @return limbs of floor(sqrt(a)), with no leading zero limbs
+     */
+    static int[] sqrt(int[] a) {
+        int[] x = new int[0];
+        int bits = bitLength(a);
+        if (bits > 0) {
+            x = trim(shiftLeft(new int[] { 1 }, (bits + 1) / 2));
+            boolean decreasing = true;
+            while (decreasing) {
+                int[] y = trim(shiftRight(add(x, divideAndRemainder(a, x)[0]), 1));
+                decreasing = compare(y, x) < 0;
+                if (decreasing) {
+                    x = y;
+                }
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Sets x to x / 2 mod m.
+     *
+     * @param x
+     *            the value to halve, in [0, m)
+     * @param m
+     *            the odd modulus
+     * @param length
+     *            number of limbs in x and m, with the top limb of m zero
+     * @updates x
+     * @ensures 2 * x mod m = #x  and  0 <= x < m
+     */
+    private static void halveModulo(int[] x, int[] m, int length) {
+        if ((x[0] & 1) != 0) {
+            addInPlace(x, m, length);
+        }
+        shiftRightInPlace(x, 1);
+    }
+
+    /**
+     * Sets x to (x - y) mod m.
+     *
+     * @param x
+     *            the minuend, in [0, m)
+     * @param y
+     *            the subtrahend, in [0, m)
+     * @param m
+     *            the modulus
+     * @param length
+     *            number of limbs in x, y and m, with the top limb of m zero
+     * @updates x
+     * @ensures x = (#x - y) mod m
+     */
+    private static void subtractModulo(int[] x, int[] y, int[] m, int length) {
+        if (compare(x, y) < 0) {
+            addInPlace(x, m, length);
+        }
+        subtractInPlace(x, y, length);
+    }
+
+}
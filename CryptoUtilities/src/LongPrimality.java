@@ -0,0 +1,211 @@
+/**
+ * Deterministic primality testing for numbers that fit in a {@code long}.
+ * Uses Miller&ndash;Rabin with the first twelve primes as bases, which is
+ * known to give no false positives for any n < 3.3 * 10^24 (and so for every
+ * non-negative {@code long}), with modular products computed in 64-bit
+ * Montgomery form so nothing overflows.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class LongPrimality {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private LongPrimality() {
+    }
+
+    /**
+     * Bases that make Miller&ndash;Rabin deterministic for all n < 2^64.
+     */
+    private static final long[] BASES = {
+            2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37 };
+
+    /**
+     * Number of bits in a long.
+     */
+    private static final int LONG_BITS = 64;
+
+    /**
+     * Reports whether n is prime; never wrong.
+     *
+     * @param n
+     *            number to be checked
+     * @return true iff n is a prime number
+     * @ensures isPrime = [n is a prime number]
+     */
+    public static boolean isPrime(long n) {
+        boolean isPrime = n > 1;
+        boolean decided = !isPrime;
+        /*
+         * Trial division by the bases themselves settles every n that is one of
+         * them or has one as a factor
+         */
+        for (int i = 0; i < BASES.length && !decided; i++) {
+            if (n % BASES[i] == 0) {
+                isPrime = (n == BASES[i]);
+                decided = true;
+            }
+        }
+        if (!decided) {
+            isPrime = millerRabin(n);
+        }
+        return isPrime;
+    }
+
+    /**
+     * Runs Miller&ndash;Rabin on n with every base in BASES.
+     *
+     * @param n
+     *            number to be checked
+     * @return true iff no base is a witness that n is composite
+     * @requires n is odd and n > 37
+     */
+    private static boolean millerRabin(long n) {
+        /*
+         * n - 1 = 2^s * d with d odd
+         */
+        long nMinusOne = n - 1;
+        int s = Long.numberOfTrailingZeros(nMinusOne);
+        long d = nMinusOne >>> s;
+
+        long nInverse = inverse(n);
+        long one = rModN(n);
+        long rSquared = one;
+        for (int i = 0; i < LONG_BITS; i++) {
+            rSquared = addMod(rSquared, rSquared, n);
+        }
+        long minusOne = n - one;
+
+        boolean isPrime = true;
+        for (int i = 0; i < BASES.length && isPrime; i++) {
+            long x = power(multiply(BASES[i], rSquared, n, nInverse), d, one, n,
+                    nInverse);
+            if (x != one && x != minusOne) {
+                int r = 1;
+                while (r < s && x != minusOne) {
+                    x = multiply(x, x, n, nInverse);
+                    r++;
+                }
+                isPrime = (x == minusOne);
+            }
+        }
+        return isPrime;
+    }
+
+    /**
+     * Returns n^(-1) mod 2^64.
+     *
+     * @param n
+     *            the number to invert
+     * @return the inverse
+     * @requires n is odd
+     */
+    private static long inverse(long n) {
+        /*
+         * Newton iteration: n is its own inverse mod 8, and each step doubles
+         * the number of correct low-order bits
+         */
+        long x = n;
+        final int steps = 5;
+        for (int i = 0; i < steps; i++) {
+            x *= 2 - n * x;
+        }
+        return x;
+    }
+
+    /**
+     * Returns 2^64 mod n.
+     *
+     * @param n
+     *            the modulus
+     * @return 2^64 mod n
+     * @requires n > 0
+     */
+    private static long rModN(long n) {
+        return Long.remainderUnsigned(-n, n);
+    }
+
+    /**
+     * Returns (a + b) mod n.
+     *
+     * @param a
+     *            first addend
+     * @param b
+     *            second addend
+     * @param n
+     *            the modulus
+     * @return (a + b) mod n
+     * @requires 0 <= a < n and 0 <= b < n and n < 2^63
+     */
+    private static long addMod(long a, long b, long n) {
+        long sum = a + b;
+        if (Long.compareUnsigned(sum, n) >= 0) {
+            sum -= n;
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the Montgomery product a * b * 2^(-64) mod n.
+     *
+     * @param a
+     *            first factor
+     * @param b
+     *            second factor
+     * @param n
+     *            the modulus
+     * @param nInverse
+     *            n^(-1) mod 2^64
+     * @return a * b * 2^(-64) mod n
+     * @requires 0 <= a < n and 0 <= b < n and n is odd and n < 2^63
+     */
+    private static long multiply(long a, long b, long n, long nInverse) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        /*
+         * m * n agrees with a * b in the low 64 bits, so subtracting the high
+         * halves divides the difference exactly by 2^64; m may have its top bit
+         * set, which multiplyHigh (being signed) needs corrected for
+         */
+        long m = low * nInverse;
+        long mnHigh = Math.multiplyHigh(m, n) + ((m >> (LONG_BITS - 1)) & n);
+        long result = high - mnHigh;
+        if (result < 0) {
+            result += n;
+        }
+        return result;
+    }
+
+    /**
+     * Returns x ^ (e) in Montgomery form.
+     *
+     * @param x
+     *            the base, in Montgomery form
+     * @param e
+     *            the exponent
+     * @param one
+     *            1 in Montgomery form (2^64 mod n)
+     * @param n
+     *            the modulus
+     * @param nInverse
+     *            n^(-1) mod 2^64
+     * @return x ^ (e) in Montgomery form
+     * @requires e >= 0
+     */
+    private static long power(long x, long e, long one, long n, long nInverse) {
+        long result = one;
+        long base = x;
+        long exponent = e;
+        while (exponent != 0) {
+            if ((exponent & 1) != 0) {
+                result = multiply(result, base, n, nInverse);
+            }
+            base = multiply(base, base, n, nInverse);
+            exponent >>>= 1;
+        }
+        return result;
+    }
+
+}
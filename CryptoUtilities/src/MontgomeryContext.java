@@ -0,0 +1,697 @@
+import java.util.Arrays;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * Precomputed Montgomery-form arithmetic for one odd modulus m. Values are
+ * kept in fixed-width arrays of |m| 32-bit limbs, and every modular product
+ * is reduced with a Montgomery reduction rather than a division, so repeated
+ * exponentiations with the same modulus do no division. Below
+ * SEPARATED_THRESHOLD (256) limbs they also do no per-step allocation after
+ * construction: each product is accumulated in the context's scratch
+ * buffers.
+ *
+ * <p>
+ * From SEPARATED_THRESHOLD limbs on, each product is instead formed by
+ * {@code Multiplication}, whose Karatsuba and Toom&ndash;Cook routines
+ * allocate their partial products, and is then reduced in a fixed scratch
+ * buffer. So every modular multiplication of a modulus that large allocates
+ * O(k) limbs of short-lived arrays; at that size the saving in
+ * multiplication time outweighs the allocation.
+ *
+ * <p>
+ * A context owns scratch buffers, so a single instance must not be used by
+ * more than one thread at a time.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class MontgomeryContext {
+
+    /**
+     * Largest sliding-window width used by {@code power}.
+     */
+    private static final int MAX_WINDOW = 6;
+
+    /**
+     * Exponent bit lengths at which the window width grows by one; index i
+     * holds the smallest bit length that uses a window of width i + 2.
+     */
+    private static final int[] WINDOW_THRESHOLDS = { 24, 80, 240, 672, 1792 };
+
+    /**
+     * Window width of powerConstantTime; its table of 2^width entries fits in
+     * the sliding-window table.
+     */
+    private static final int CONSTANT_TIME_WINDOW = 4;
+
+    /**
+     * Modulus length in limbs from which montgomeryMultiply forms the full
+     * product with {@code Multiplication} and reduces it afterwards. Below it
+     * the interleaved CIOS loop is faster even where Karatsuba already beats
+     * schoolbook multiplication, because the separate reduction pass costs as
+     * much as the k^2 partial products Karatsuba saves a fraction of.
+     */
+    static final int SEPARATED_THRESHOLD = 256;
+
+    /**
+     * Number of limbs in the modulus.
+     */
+    private final int k;
+
+    /**
+     * The modulus, in k limbs.
+     */
+    private final int[] modulus;
+
+    /**
+     * -m^(-1) mod 2^32.
+     */
+    private final int mPrime;
+
+    /**
+     * R^2 mod m, where R = 2^(32k); used to convert into Montgomery form.
+     */
+    private final int[] rSquared;
+
+    /**
+     * R mod m, i.e., 1 in Montgomery form.
+     */
+    private final int[] montgomeryOne;
+
+    /**
+     * The plain value 1, padded to k limbs; used to convert out of Montgomery
+     * form.
+     */
+    private final int[] plainOne;
+
+    /**
+     * Accumulator for montgomeryMultiply, k + 2 limbs.
+     */
+    private final int[] product;
+
+    /**
+     * Reduction buffer of 2k + 1 limbs if k >= SEPARATED_THRESHOLD;
+     * otherwise null.
+     */
+    private final int[] wide;
+
+    /**
+     * Running result of power.
+     */
+    private final int[] accumulator;
+
+    /**
+     * Second buffer for results that must not alias their operands.
+     */
+    private final int[] temp;
+
+    /**
+     * Odd powers g, g^3, g^5, ... of the base, in Montgomery form.
+     */
+    private final int[][] table;
+
+    /**
+     * Constructs a context for modulus {@code m}.
+     *
+     * @param m
+     *            the modulus
+     * @requires m > 1 and m is odd
+     */
+    public MontgomeryContext(NaturalNumber m) {
+        this(Limbs.fromNaturalNumber(m));
+    }
+
+    /**
+     * Constructs a context for the modulus whose limbs are {@code m}.
+     *
+     * @param m
+     *            limbs of the modulus
+     * @requires m > 1 and m is odd
+     */
+    MontgomeryContext(int[] m) {
+        assert Limbs.bitLength(m) > 1 : "Violation of: m > 1";
+        assert (m[0] & 1) != 0 : "Violation of: m is odd";
+
+        this.k = Limbs.significantLength(m);
+        this.modulus = Arrays.copyOf(m, this.k);
+
+        /*
+         * Newton iteration for the inverse of m[0] mod 2^32: each step doubles
+         * the number of correct low-order bits, starting from 3 (x = m[0] is
+         * its own inverse mod 8 for odd m[0])
+         */
+        int m0 = this.modulus[0];
+        int inverse = m0;
+        final int newtonSteps = 4;
+        for (int i = 0; i < newtonSteps; i++) {
+            inverse *= 2 - m0 * inverse;
+        }
+        this.mPrime = -inverse;
+
+        /*
+         * R^2 mod m by repeated doubling of 1, reducing after every step
+         */
+        this.rSquared = new int[this.k];
+        int[] r = new int[this.k + 1];
+        int[] mExt = Arrays.copyOf(this.modulus, this.k + 1);
+        r[0] = 1;
+        for (int i = 0; i < 2 * Limbs.LIMB_BITS * this.k; i++) {
+            int carry = 0;
+            for (int j = 0; j <= this.k; j++) {
+                int next = r[j] >>> (Limbs.LIMB_BITS - 1);
+                r[j] = (r[j] << 1) | carry;
+                carry = next;
+            }
+            if (Limbs.compare(r, mExt) >= 0) {
+                Limbs.subtractInPlace(r, mExt, this.k + 1);
+            }
+        }
+        System.arraycopy(r, 0, this.rSquared, 0, this.k);
+
+        this.product = new int[this.k + 2];
+        if (this.k >= SEPARATED_THRESHOLD) {
+            this.wide = new int[2 * this.k + 1];
+        } else {
+            this.wide = null;
+        }
+        this.accumulator = new int[this.k];
+        this.temp = new int[this.k];
+        this.plainOne = new int[this.k];
+        this.plainOne[0] = 1;
+        this.montgomeryOne = new int[this.k];
+        this.montgomeryMultiply(this.rSquared, this.plainOne, this.montgomeryOne);
+        this.table = new int[1 << (MAX_WINDOW - 1)][this.k];
+    }
+
+    /**
+     * Reports the number of limbs in the modulus.
+     *
+     * @return |m| in limbs
+     */
+    int width() {
+        return this.k;
+    }
+
+    /**
+     * Sets {@code out} to a * b * R^(-1) mod m. Below SEPARATED_THRESHOLD
+     * limbs this uses the coarsely integrated operand scanning (CIOS) method,
+     * which interleaves multiplication and reduction; from there on the full
+     * product is formed by {@code Multiplication} (by its squaring routines
+     * when a and b are the same array), which allocates, and then reduced in
+     * the fixed buffer wide.
+     *
+     * @param a
+     *            first factor, k limbs
+     * @param b
+     *            second factor, k limbs
+     * @param out
+     *            k-limb result; may alias a or b
+     * @replaces out
+     * @requires a < m and b < m
+     * @ensures out = a * b * R^(-1) mod m
+     */
+    void montgomeryMultiply(int[] a, int[] b, int[] out) {
+        if (this.k >= SEPARATED_THRESHOLD) {
+            this.reduce(Multiplication.multiply(a, b), out);
+        } else {
+            this.montgomeryMultiplyCios(a, b, out, false);
+        }
+    }
+
+    /**
+     * Sets {@code out} to t * R^(-1) mod m by Montgomery reduction, one limb
+     * of t at a time.
+     *
+     * @param t
+     *            the value to reduce, at most 2k limbs
+     * @param out
+     *            k-limb result
+     * @replaces out
+     * @requires t < m * R
+     * @ensures out = t * R^(-1) mod m
+     */
+    private void reduce(int[] t, int[] out) {
+        final long mask = Limbs.MASK;
+        final int w = Limbs.LIMB_BITS;
+        int[] x = this.wide;
+        Arrays.fill(x, 0);
+        System.arraycopy(t, 0, x, 0, Math.min(t.length, 2 * this.k));
+        for (int i = 0; i < this.k; i++) {
+            /*
+             * x = x + u * m * 2^(32i), where u makes limb i vanish
+             */
+            long u = (x[i] * this.mPrime) & mask;
+            long carry = 0;
+            for (int j = 0; j < this.k; j++) {
+                long s = (x[i + j] & mask) + u * (this.modulus[j] & mask) + carry;
+                x[i + j] = (int) s;
+                carry = s >>> w;
+            }
+            for (int j = i + this.k; carry != 0; j++) {
+                long s = (x[j] & mask) + carry;
+                x[j] = (int) s;
+                carry = s >>> w;
+            }
+        }
+        /*
+         * x / R < 2m here, so one conditional subtraction finishes the
+         * reduction
+         */
+        System.arraycopy(x, this.k, x, 0, this.k + 1);
+        if (x[this.k] != 0 || Limbs.compare(x, this.modulus, this.k) >= 0) {
+            Limbs.subtractInPlace(x, this.modulus, this.k);
+        }
+        System.arraycopy(x, 0, out, 0, this.k);
+    }
+
+    /**
+     * Sets {@code out} to a * b * R^(-1) mod m, using the coarsely integrated
+     * operand scanning (CIOS) method. With {@code constantTime} set, the
+     * final conditional subtraction is done with masks instead of a branch,
+     * so the sequence of operations and memory accesses does not depend on a
+     * or b.
+     *
+     * @param a
+     *            first factor, k limbs
+     * @param b
+     *            second factor, k limbs
+     * @param out
+     *            k-limb result; may alias a or b
+     * @param constantTime
+     *            whether to finish without data-dependent branches
+     * @replaces out
+     * @requires a < m and b < m
+     * @ensures out = a * b * R^(-1) mod m
+     */
+    private void montgomeryMultiplyCios(int[] a, int[] b, int[] out,
+            boolean constantTime) {
+        final long mask = Limbs.MASK;
+        final int w = Limbs.LIMB_BITS;
+        int[] t = this.product;
+        Arrays.fill(t, 0);
+        for (int i = 0; i < this.k; i++) {
+            /*
+             * t = t + a * b[i]
+             */
+            long bi = b[i] & mask;
+            long carry = 0;
+            for (int j = 0; j < this.k; j++) {
+                long s = (t[j] & mask) + (a[j] & mask) * bi + carry;
+                t[j] = (int) s;
+                carry = s >>> w;
+            }
+            long s = (t[this.k] & mask) + carry;
+            t[this.k] = (int) s;
+            t[this.k + 1] = (int) (s >>> w);
+
+            /*
+             * t = (t + u * m) / 2^32, where u makes the low limb vanish
+             */
+            long u = (t[0] * this.mPrime) & mask;
+            s = (t[0] & mask) + u * (this.modulus[0] & mask);
+            carry = s >>> w;
+            for (int j = 1; j < this.k; j++) {
+                s = (t[j] & mask) + u * (this.modulus[j] & mask) + carry;
+                t[j - 1] = (int) s;
+                carry = s >>> w;
+            }
+            s = (t[this.k] & mask) + carry;
+            t[this.k - 1] = (int) s;
+            t[this.k] = t[this.k + 1] + (int) (s >>> w);
+        }
+        /*
+         * t < 2m here, so one conditional subtraction finishes the reduction
+         */
+        if (constantTime) {
+            /*
+             * out = t - m, then keep it exactly when t >= m, i.e., when the
+             * subtraction does not borrow out of limb k
+             */
+            long borrow = 0;
+            for (int j = 0; j < this.k; j++) {
+                long d = (t[j] & mask) - (this.modulus[j] & mask) - borrow;
+                out[j] = (int) d;
+                borrow = d >>> (2 * w - 1);
+            }
+            int keep = -((t[this.k] | (int) (borrow ^ 1)) & 1);
+            for (int j = 0; j < this.k; j++) {
+                out[j] = (out[j] & keep) | (t[j] & ~keep);
+            }
+        } else {
+            if (t[this.k] != 0 || Limbs.compare(t, this.modulus, this.k) >= 0) {
+                Limbs.subtractInPlace(t, this.modulus, this.k);
+            }
+            System.arraycopy(t, 0, out, 0, this.k);
+        }
+    }
+
+    /**
+     * Reduces {@code a} modulo m and converts it into Montgomery form.
+     *
+     * @param a
+     *            limbs of any size
+     * @param out
+     *            k-limb result
+     * @replaces out
+     * @ensures out = (a mod m) * R mod m
+     */
+    void toMontgomery(int[] a, int[] out) {
+        int[] reduced;
+        if (Limbs.compare(a, this.modulus) < 0) {
+            reduced = Arrays.copyOf(a, this.k);
+        } else {
+            reduced = Limbs.mod(a, this.modulus);
+        }
+        this.montgomeryMultiply(reduced, this.rSquared, out);
+    }
+
+    /**
+     * Converts {@code a} out of Montgomery form.
+     *
+     * @param a
+     *            k-limb value in Montgomery form
+     * @param out
+     *            k-limb result; may alias a
+     * @replaces out
+     * @ensures out = a * R^(-1) mod m
+     */
+    void fromMontgomery(int[] a, int[] out) {
+        this.montgomeryMultiply(a, this.plainOne, out);
+    }
+
+    /**
+     * Returns the sliding-window width to use for an exponent of the given
+     * bit length.
+     *
+     * @param bits
+     *            bit length of the exponent
+     * @return window width in [1, MAX_WINDOW]
+     */
+    private static int windowWidth(int bits) {
+        int width = 1;
+        while (width < MAX_WINDOW && bits >= WINDOW_THRESHOLDS[width - 1]) {
+            width++;
+        }
+        return width;
+    }
+
+    /**
+     * Returns 1 in Montgomery form. The caller must not modify the array.
+     *
+     * @return R mod m, in k limbs
+     */
+    int[] one() {
+        return this.montgomeryOne;
+    }
+
+    /**
+     * Sets {@code out} to m - a, i.e., to -a mod m when a /= 0.
+     *
+     * @param a
+     *            k-limb value
+     * @param out
+     *            k-limb result; may alias a
+     * @replaces out
+     * @requires 0 < a < m
+     * @ensures out = m - a
+     */
+    void negate(int[] a, int[] out) {
+        long borrow = 0;
+        for (int i = 0; i < this.k; i++) {
+            long t = (this.modulus[i] & Limbs.MASK) - (a[i] & Limbs.MASK) - borrow;
+            out[i] = (int) t;
+            borrow = t >>> (2 * Limbs.LIMB_BITS - 1);
+        }
+    }
+
+    /**
+     * Sets {@code out} to (a + b) mod m. Works the same on values in
+     * Montgomery form.
+     *
+     * @param a
+     *            k-limb value
+     * @param b
+     *            k-limb value
+     * @param out
+     *            k-limb result; may alias a or b
+     * @replaces out
+     * @requires a < m and b < m
+     * @ensures out = (a + b) mod m
+     */
+    void add(int[] a, int[] b, int[] out) {
+        long carry = 0;
+        for (int i = 0; i < this.k; i++) {
+            long t = (a[i] & Limbs.MASK) + (b[i] & Limbs.MASK) + carry;
+            out[i] = (int) t;
+            carry = t >>> Limbs.LIMB_BITS;
+        }
+        if (carry != 0 || Limbs.compare(out, this.modulus, this.k) >= 0) {
+            Limbs.subtractInPlace(out, this.modulus, this.k);
+        }
+    }
+
+    /**
+     * Sets {@code out} to (a - b) mod m. Works the same on values in
+     * Montgomery form.
+     *
+     * @param a
+     *            k-limb value
+     * @param b
+     *            k-limb value
+     * @param out
+     *            k-limb result; may alias a or b
+     * @replaces out
+     * @requires a < m and b < m
+     * @ensures out = (a - b) mod m
+     */
+    void subtract(int[] a, int[] b, int[] out) {
+        long borrow = 0;
+        for (int i = 0; i < this.k; i++) {
+            long t = (a[i] & Limbs.MASK) - (b[i] & Limbs.MASK) - borrow;
+            out[i] = (int) t;
+            borrow = t >>> (2 * Limbs.LIMB_BITS - 1);
+        }
+        if (borrow != 0) {
+            Limbs.addInPlace(out, this.modulus, this.k);
+        }
+    }
+
+    /**
+     * Sets {@code out} to a / 2 mod m, i.e., to the x in [0, m) with 2x = a
+     * (mod m). Works the same on values in Montgomery form.
+     *
+     * @param a
+     *            k-limb value
+     * @param out
+     *            k-limb result; may alias a
+     * @replaces out
+     * @requires a < m
+     * @ensures 2 * out mod m = a  and  out < m
+     */
+    void halve(int[] a, int[] out) {
+        System.arraycopy(a, 0, out, 0, this.k);
+        int carry = 0;
+        if ((out[0] & 1) != 0) {
+            carry = Limbs.addInPlace(out, this.modulus, this.k);
+        }
+        Limbs.shiftRightInPlace(out, 1);
+        out[this.k - 1] |= carry << (Limbs.LIMB_BITS - 1);
+    }
+
+    /**
+     * Sets {@code out} to base ^ (e) mod m using left-to-right
+     * sliding-window exponentiation. With a modulus of at least
+     * SEPARATED_THRESHOLD limbs, every step allocates (see
+     * montgomeryMultiply).
+     *
+     * @param base
+     *            the base, of any size
+     * @param e
+     *            the exponent, of any size
+     * @param out
+     *            k-limb result (not in Montgomery form)
+     * @replaces out
+     * @ensures out = base ^ (e) mod m
+     */
+    void power(int[] base, int[] e, int[] out) {
+        this.powerToMontgomery(base, e, out);
+        this.fromMontgomery(out, out);
+    }
+
+    /**
+     * Sets {@code out} to base ^ (e) mod m, in Montgomery form, using
+     * left-to-right sliding-window exponentiation.
+     *
+     * @param base
+     *            the base, of any size (not in Montgomery form)
+     * @param e
+     *            the exponent, of any size
+     * @param out
+     *            k-limb result, in Montgomery form
+     * @replaces out
+     * @ensures out = base ^ (e) * R mod m
+     */
+    void powerToMontgomery(int[] base, int[] e, int[] out) {
+        int bits = Limbs.bitLength(e);
+        int width = windowWidth(bits);
+        int[] acc = this.accumulator;
+
+        /*
+         * table[i] = base^(2i+1) in Montgomery form; temp holds base^2
+         */
+        this.toMontgomery(base, this.table[0]);
+        if (width > 1) {
+            this.montgomeryMultiply(this.table[0], this.table[0], this.temp);
+            for (int i = 1; i < (1 << (width - 1)); i++) {
+                this.montgomeryMultiply(this.table[i - 1], this.temp, this.table[i]);
+            }
+        }
+
+        System.arraycopy(this.montgomeryOne, 0, acc, 0, this.k);
+        boolean started = false;
+        int i = bits - 1;
+        while (i >= 0) {
+            if (!Limbs.testBit(e, i)) {
+                if (started) {
+                    this.montgomeryMultiply(acc, acc, acc);
+                }
+                i--;
+            } else {
+                /*
+                 * Longest window e[low..i] of at most width bits that ends in
+                 * a 1 bit
+                 */
+                int low = Math.max(i - width + 1, 0);
+                while (!Limbs.testBit(e, low)) {
+                    low++;
+                }
+                int value = 0;
+                for (int j = i; j >= low; j--) {
+                    value = (value << 1) | (Limbs.testBit(e, j) ? 1 : 0);
+                    if (started) {
+                        this.montgomeryMultiply(acc, acc, acc);
+                    }
+                }
+                if (started) {
+                    this.montgomeryMultiply(acc, this.table[value >>> 1], acc);
+                } else {
+                    System.arraycopy(this.table[value >>> 1], 0, acc, 0, this.k);
+                    started = true;
+                }
+                i = low - 1;
+            }
+        }
+        System.arraycopy(acc, 0, out, 0, this.k);
+    }
+
+    /**
+     * Sets {@code out} to base ^ (e) mod m by fixed-window exponentiation
+     * whose sequence of operations and memory accesses depends only on k and
+     * |e|, not on the bits of e: the exponent is padded to at least k limbs,
+     * every window costs the same squarings and one multiplication (by 1
+     * for a zero window), every table entry is read to select the one
+     * needed, and every Montgomery product uses the CIOS method with a
+     * branch-free final subtraction.
+     *
+     * @param base
+     *            the base, of any size
+     * @param e
+     *            the exponent, of any size
+     * @param out
+     *            k-limb result (not in Montgomery form)
+     * @replaces out
+     * @ensures out = base ^ (e) mod m
+     */
+    void powerConstantTime(int[] base, int[] e, int[] out) {
+        final int width = CONSTANT_TIME_WINDOW;
+        final int entries = 1 << width;
+        int bits = Math.max(this.k, e.length) * Limbs.LIMB_BITS;
+        int[] acc = this.accumulator;
+        int[] selected = this.temp;
+
+        /*
+         * table[i] = base^i in Montgomery form, for i in [0, 2^width)
+         */
+        System.arraycopy(this.montgomeryOne, 0, this.table[0], 0, this.k);
+        this.toMontgomery(base, this.table[1]);
+        for (int i = 2; i < entries; i++) {
+            this.montgomeryMultiplyCios(this.table[i - 1], this.table[1],
+                    this.table[i], true);
+        }
+
+        System.arraycopy(this.montgomeryOne, 0, acc, 0, this.k);
+        for (int i = bits - width; i >= 0; i -= width) {
+            for (int j = 0; j < width; j++) {
+                this.montgomeryMultiplyCios(acc, acc, acc, true);
+            }
+            int digit = 0;
+            for (int j = width - 1; j >= 0; j--) {
+                int index = (i + j) / Limbs.LIMB_BITS;
+                int limb = 0;
+                if (index < e.length) {
+                    limb = e[index];
+                }
+                digit = (digit << 1) | ((limb >>> ((i + j) % Limbs.LIMB_BITS)) & 1);
+            }
+            /*
+             * selected = table[digit], reading every entry: the mask is all
+             * ones for the entry whose index equals digit and zero otherwise
+             */
+            Arrays.fill(selected, 0);
+            for (int entry = 0; entry < entries; entry++) {
+                int match = ((entry ^ digit) - 1) >> (Limbs.LIMB_BITS - 1);
+                for (int j = 0; j < this.k; j++) {
+                    selected[j] |= this.table[entry][j] & match;
+                }
+            }
+            this.montgomeryMultiplyCios(acc, selected, acc, true);
+        }
+        this.montgomeryMultiplyCios(acc, this.plainOne, out, true);
+    }
+
+    /**
+     * Updates {@code n} to its {@code p}-th power modulo the modulus of this
+     * context, in time that does not depend on the bits of p (see
+     * {@code CryptoUtilities.powerModConstantTime}).
+     *
+     * @param n
+     *            number to be raised to a power
+     * @param p
+     *            the power
+     * @updates n
+     * @ensures n = #n ^ (p) mod m
+     */
+    public void powerConstantTime(NaturalNumber n, NaturalNumber p) {
+        assert n != null : "Violation of: n is not null";
+        assert p != null : "Violation of: p is not null";
+
+        int[] result = new int[this.k];
+        this.powerConstantTime(Limbs.fromNaturalNumber(n), Limbs.fromNaturalNumber(p),
+                result);
+        Limbs.toNaturalNumber(result, n);
+    }
+
+    /**
+     * Updates {@code n} to its {@code p}-th power modulo the modulus of this
+     * context. Below SEPARATED_THRESHOLD (256) limbs of modulus the
+     * exponentiation allocates nothing per step; from there on each modular
+     * multiplication allocates its full product.
+     *
+     * @param n
+     *            number to be raised to a power
+     * @param p
+     *            the power
+     * @updates n
+     * @ensures n = #n ^ (p) mod m
+     */
+    public void power(NaturalNumber n, NaturalNumber p) {
+        assert n != null : "Violation of: n is not null";
+        assert p != null : "Violation of: p is not null";
+
+        int[] result = new int[this.k];
+        this.power(Limbs.fromNaturalNumber(n), Limbs.fromNaturalNumber(p), result);
+        Limbs.toNaturalNumber(result, n);
+    }
+
+}
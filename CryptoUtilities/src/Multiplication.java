@@ -0,0 +1,547 @@
+import java.util.Arrays;
+
+/**
+ * Multiplication and squaring of limb arrays (as in {@code Limbs}), choosing
+ * the algorithm by operand size: schoolbook long multiplication for small
+ * operands, Karatsuba's method (three half-size products) above
+ * {@code KARATSUBA_THRESHOLD} limbs, and Toom&ndash;Cook 3-way (five
+ * third-size products) above {@code TOOM3_THRESHOLD} limbs. Squaring
+ * has its own routines and thresholds, since a square needs only about half
+ * the partial products of a general product.
+ *
+ * <p>
+ * The thresholds are crossover points measured with
+ * {@code MultiplicationBenchmarks} in the bench folder; rerun it and adjust
+ * them when moving to a very different JVM or machine.
+ *
+ * @author Chris Ma
+ *
+ */
+final class Multiplication {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private Multiplication() {
+    }
+
+    /**
+     * Length in limbs of the shorter factor from which Karatsuba
+     * multiplication is used.
+     */
+    static final int KARATSUBA_THRESHOLD = 48;
+
+    /**
+     * Length in limbs of the shorter factor from which Toom&ndash;Cook 3-way
+     * multiplication is used.
+     */
+    static final int TOOM3_THRESHOLD = 192;
+
+    /**
+     * Length in limbs from which Karatsuba squaring is used.
+     */
+    static final int KARATSUBA_SQUARE_THRESHOLD = 80;
+
+    /**
+     * Length in limbs from which Toom&ndash;Cook 3-way squaring is used.
+     */
+    static final int TOOM3_SQUARE_THRESHOLD = 256;
+
+    /**
+     * A signed number, for the intermediate values of Toom&ndash;Cook
+     * interpolation.
+     */
+    private static final class Signed {
+
+        /**
+         * Magnitude, with no leading zero limbs.
+         */
+        private final int[] magnitude;
+
+        /**
+         * Whether the number is negative (never true for zero).
+         */
+        private final boolean negative;
+
+        /**
+         * Constructs a signed number.
+         *
+         * @param magnitude
+         *            limbs of the magnitude
+         * @param negative
+         *            whether the number is negative
+         */
+        private Signed(int[] magnitude, boolean negative) {
+            this.magnitude = Limbs.trim(magnitude);
+            this.negative = negative && this.magnitude.length > 0;
+        }
+
+    }
+
+    /**
+     * Returns a * b.
+     *
+     * @param a
+     *            first factor
+     * @param b
+     *            second factor
+     * @return limbs of a * b, with no leading zero limbs
+     */
+    static int[] multiply(int[] a, int[] b) {
+        int[] product;
+        if (a == b) {
+            product = square(a);
+        } else {
+            int aLength = Limbs.significantLength(a);
+            int bLength = Limbs.significantLength(b);
+            int shorter = Math.min(aLength, bLength);
+            int longer = Math.max(aLength, bLength);
+            if (shorter < KARATSUBA_THRESHOLD) {
+                product = schoolbook(a, aLength, b, bLength);
+            } else if (2 * shorter <= longer) {
+                product = unbalanced(a, aLength, b, bLength);
+            } else if (shorter < TOOM3_THRESHOLD) {
+                product = karatsuba(a, aLength, b, bLength);
+            } else {
+                product = toom3(a, aLength, b, bLength);
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Returns a * a.
+     *
+     * @param a
+     *            the number
+     * @return limbs of a * a, with no leading zero limbs
+     */
+    static int[] square(int[] a) {
+        int length = Limbs.significantLength(a);
+        int[] product;
+        if (length < KARATSUBA_SQUARE_THRESHOLD) {
+            product = schoolbookSquare(a, length);
+        } else if (length < TOOM3_SQUARE_THRESHOLD) {
+            product = karatsubaSquare(a, length);
+        } else {
+            product = toom3Square(a, length);
+        }
+        return product;
+    }
+
+    /**
+     * Returns a * b by schoolbook long multiplication.
+     *
+     * @param a
+     *            first factor
+     * @param aLength
+     *            number of significant limbs of a
+     * @param b
+     *            second factor
+     * @param bLength
+     *            number of significant limbs of b
+     * @return limbs of a * b, with no leading zero limbs
+     */
+    static int[] schoolbook(int[] a, int aLength, int[] b, int bLength) {
+        int[] product = new int[aLength + bLength];
+        for (int i = 0; i < aLength; i++) {
+            long ai = a[i] & Limbs.MASK;
+            long carry = 0;
+            for (int j = 0; j < bLength; j++) {
+                long t = ai * (b[j] & Limbs.MASK) + (product[i + j] & Limbs.MASK)
+                        + carry;
+                product[i + j] = (int) t;
+                carry = t >>> Limbs.LIMB_BITS;
+            }
+            product[i + bLength] = (int) carry;
+        }
+        return Limbs.trim(product);
+    }
+
+    /**
+     * Returns a * a by schoolbook squaring: each cross product a[i] * a[j]
+     * with i < j is computed once and doubled.
+     *
+     * @param a
+     *            the number
+     * @param length
+     *            number of significant limbs of a
+     * @return limbs of a * a, with no leading zero limbs
+     */
+    static int[] schoolbookSquare(int[] a, int length) {
+        int[] product = new int[2 * length];
+        for (int i = 0; i < length; i++) {
+            long ai = a[i] & Limbs.MASK;
+            long carry = 0;
+            for (int j = i + 1; j < length; j++) {
+                long t = ai * (a[j] & Limbs.MASK) + (product[i + j] & Limbs.MASK)
+                        + carry;
+                product[i + j] = (int) t;
+                carry = t >>> Limbs.LIMB_BITS;
+            }
+            product[i + length] = (int) carry;
+        }
+        /*
+         * Double the cross products and add the squares on the diagonal
+         */
+        long carry = 0;
+        int shiftedOut = 0;
+        for (int i = 0; i < length; i++) {
+            long ai = a[i] & Limbs.MASK;
+            long diagonal = ai * ai;
+            int low = product[2 * i];
+            int high = product[2 * i + 1];
+            long t = (((low << 1) | shiftedOut) & Limbs.MASK) + (diagonal & Limbs.MASK)
+                    + carry;
+            product[2 * i] = (int) t;
+            carry = t >>> Limbs.LIMB_BITS;
+            t = (((high << 1) | (low >>> (Limbs.LIMB_BITS - 1))) & Limbs.MASK)
+                    + (diagonal >>> Limbs.LIMB_BITS) + carry;
+            product[2 * i + 1] = (int) t;
+            carry = t >>> Limbs.LIMB_BITS;
+            shiftedOut = high >>> (Limbs.LIMB_BITS - 1);
+        }
+        return Limbs.trim(product);
+    }
+
+    /**
+     * Returns a * b when one factor is at least twice as long as the other,
+     * by multiplying the shorter factor with pieces of the longer one of its
+     * own length.
+     *
+     * @param a
+     *            first factor
+     * @param aLength
+     *            number of significant limbs of a
+     * @param b
+     *            second factor
+     * @param bLength
+     *            number of significant limbs of b
+     * @return limbs of a * b, with no leading zero limbs
+     */
+    private static int[] unbalanced(int[] a, int aLength, int[] b, int bLength) {
+        int[] longer = a;
+        int longerLength = aLength;
+        int[] shorter = Arrays.copyOf(b, bLength);
+        if (aLength < bLength) {
+            longer = b;
+            longerLength = bLength;
+            shorter = Arrays.copyOf(a, aLength);
+        }
+        int[] product = new int[aLength + bLength + 1];
+        for (int from = 0; from < longerLength; from += shorter.length) {
+            int[] piece = slice(longer, from, Math.min(longerLength, from + shorter.length));
+            addShifted(product, multiply(piece, shorter), from);
+        }
+        return Limbs.trim(product);
+    }
+
+    /**
+     * Returns a * b by Karatsuba's method: with a = a1 * B + a0 and b = b1 * B
+     * + b0, a * b = z2 * B^2 + z1 * B + z0, where z0 = a0 * b0, z2 = a1 * b1
+     * and z1 = (a0 + a1)(b0 + b1) - z0 - z2.
+     *
+     * @param a
+     *            first factor
+     * @param aLength
+     *            number of significant limbs of a
+     * @param b
+     *            second factor
+     * @param bLength
+     *            number of significant limbs of b
+     * @return limbs of a * b, with no leading zero limbs
+     */
+    static int[] karatsuba(int[] a, int aLength, int[] b, int bLength) {
+        int half = (Math.max(aLength, bLength) + 1) / 2;
+        int[] a0 = slice(a, 0, Math.min(half, aLength));
+        int[] a1 = slice(a, half, aLength);
+        int[] b0 = slice(b, 0, Math.min(half, bLength));
+        int[] b1 = slice(b, half, bLength);
+
+        int[] z0 = multiply(a0, b0);
+        int[] z2 = multiply(a1, b1);
+        int[] z1 = Limbs.subtract(
+                Limbs.subtract(multiply(Limbs.add(a0, a1), Limbs.add(b0, b1)), z0),
+                z2);
+
+        int[] product = new int[aLength + bLength + 1];
+        addShifted(product, z0, 0);
+        addShifted(product, z1, half);
+        addShifted(product, z2, 2 * half);
+        return Limbs.trim(product);
+    }
+
+    /**
+     * Returns a * a by Karatsuba's method.
+     *
+     * @param a
+     *            the number
+     * @param length
+     *            number of significant limbs of a
+     * @return limbs of a * a, with no leading zero limbs
+     */
+    static int[] karatsubaSquare(int[] a, int length) {
+        int half = (length + 1) / 2;
+        int[] a0 = slice(a, 0, half);
+        int[] a1 = slice(a, half, length);
+
+        int[] z0 = square(a0);
+        int[] z2 = square(a1);
+        int[] z1 = Limbs.subtract(Limbs.subtract(square(Limbs.add(a0, a1)), z0), z2);
+
+        int[] product = new int[2 * length + 1];
+        addShifted(product, z0, 0);
+        addShifted(product, z1, half);
+        addShifted(product, z2, 2 * half);
+        return Limbs.trim(product);
+    }
+
+    /**
+     * Returns a * b by Toom&ndash;Cook 3-way multiplication: a and b are split
+     * into thirds, read as polynomials of degree 2 in B, and their product is
+     * recovered from its values at 0, 1, -1, 2 and infinity, following
+     * Bodrato's interpolation sequence.
+     *
+     * @param a
+     *            first factor
+     * @param aLength
+     *            number of significant limbs of a
+     * @param b
+     *            second factor
+     * @param bLength
+     *            number of significant limbs of b
+     * @return limbs of a * b, with no leading zero limbs
+     */
+    static int[] toom3(int[] a, int aLength, int[] b, int bLength) {
+        int third = (Math.max(aLength, bLength) + 2) / 3;
+        int[] a0 = slice(a, 0, Math.min(third, aLength));
+        int[] a1 = slice(a, third, Math.min(2 * third, aLength));
+        int[] a2 = slice(a, 2 * third, aLength);
+        int[] b0 = slice(b, 0, Math.min(third, bLength));
+        int[] b1 = slice(b, third, Math.min(2 * third, bLength));
+        int[] b2 = slice(b, 2 * third, bLength);
+
+        int[] v0 = multiply(a0, b0);
+        int[] vInfinity = multiply(a2, b2);
+        int[] da = Limbs.add(a2, a0);
+        int[] db = Limbs.add(b2, b0);
+        Signed vMinusOne = times(difference(da, a1), difference(db, b1));
+        da = Limbs.add(da, a1);
+        db = Limbs.add(db, b1);
+        int[] v1 = multiply(da, db);
+        int[] v2 = multiply(
+                Limbs.subtract(Limbs.shiftLeft(Limbs.add(da, a2), 1), a0),
+                Limbs.subtract(Limbs.shiftLeft(Limbs.add(db, b2), 1), b0));
+
+        return interpolate(v0, v1, vMinusOne, v2, vInfinity, third,
+                aLength + bLength);
+    }
+
+    /**
+     * Returns a * a by Toom&ndash;Cook 3-way squaring.
+     *
+     * @param a
+     *            the number
+     * @param length
+     *            number of significant limbs of a
+     * @return limbs of a * a, with no leading zero limbs
+     */
+    static int[] toom3Square(int[] a, int length) {
+        int third = (length + 2) / 3;
+        int[] a0 = slice(a, 0, third);
+        int[] a1 = slice(a, third, 2 * third);
+        int[] a2 = slice(a, 2 * third, length);
+
+        int[] v0 = square(a0);
+        int[] vInfinity = square(a2);
+        int[] da = Limbs.add(a2, a0);
+        Signed vMinusOne = new Signed(square(difference(da, a1).magnitude), false);
+        da = Limbs.add(da, a1);
+        int[] v1 = square(da);
+        int[] v2 = square(Limbs.subtract(Limbs.shiftLeft(Limbs.add(da, a2), 1), a0));
+
+        return interpolate(v0, v1, vMinusOne, v2, vInfinity, third, 2 * length);
+    }
+
+    /**
+     * Recovers the product of two degree-2 polynomials in B = 2^(32 * third)
+     * from its values at 0, 1, -1, 2 and infinity, and evaluates it at B.
+     *
+     * @param v0
+     *            value at 0
+     * @param v1
+     *            value at 1
+     * @param vMinusOne
+     *            value at -1
+     * @param v2
+     *            value at 2
+     * @param vInfinity
+     *            value at infinity (the leading coefficient)
+     * @param third
+     *            number of limbs in B
+     * @param length
+     *            an upper bound on the length of the product, in limbs
+     * @return limbs of the product, with no leading zero limbs
+     */
+    private static int[] interpolate(int[] v0, int[] v1, Signed vMinusOne, int[] v2,
+            int[] vInfinity, int third, int length) {
+        Signed t2 = divideBy3(minus(plain(v2), vMinusOne));
+        Signed tMinusOne = halve(minus(plain(v1), vMinusOne));
+        Signed t1 = minus(plain(v1), plain(v0));
+        t2 = halve(minus(t2, t1));
+        t1 = minus(minus(t1, tMinusOne), plain(vInfinity));
+        t2 = minus(t2, plain(Limbs.shiftLeft(vInfinity, 1)));
+        tMinusOne = minus(tMinusOne, t2);
+        assert !t1.negative && !t2.negative && !tMinusOne.negative : ""
+                + "Violation of: coefficients of a product of naturals are natural";
+
+        int[] product = new int[length + 1];
+        addShifted(product, v0, 0);
+        addShifted(product, tMinusOne.magnitude, third);
+        addShifted(product, t1.magnitude, 2 * third);
+        addShifted(product, t2.magnitude, 3 * third);
+        addShifted(product, vInfinity, 4 * third);
+        return Limbs.trim(product);
+    }
+
+    /**
+     * Returns limbs {@code [from, to)} of {@code a}, trimmed.
+     *
+     * @param a
+     *            the limbs
+     * @param from
+     *            first limb
+     * @param to
+     *            one past the last limb
+     * @return the slice, with no leading zero limbs
+     */
+    private static int[] slice(int[] a, int from, int to) {
+        int[] result = new int[0];
+        if (from < to) {
+            result = Limbs.trim(Arrays.copyOfRange(a, from, to));
+        }
+        return result;
+    }
+
+    /**
+     * Adds {@code b * 2^(32 * shift)} to {@code a}, in place.
+     *
+     * @param a
+     *            the accumulator
+     * @param b
+     *            the addend
+     * @param shift
+     *            number of limbs to shift b by
+     * @updates a
+     * @requires a + b * 2^(32 * shift) < 2^(32 * |a|)
+     * @ensures a = #a + b * 2^(32 * shift)
+     */
+    private static void addShifted(int[] a, int[] b, int shift) {
+        long carry = 0;
+        int i = 0;
+        int bLength = Limbs.significantLength(b);
+        while (i < bLength || carry != 0) {
+            long t = (a[shift + i] & Limbs.MASK) + carry;
+            if (i < bLength) {
+                t += b[i] & Limbs.MASK;
+            }
+            a[shift + i] = (int) t;
+            carry = t >>> Limbs.LIMB_BITS;
+            i++;
+        }
+    }
+
+    /**
+     * Returns the natural number a as a signed number.
+     *
+     * @param a
+     *            the limbs
+     * @return a
+     */
+    private static Signed plain(int[] a) {
+        return new Signed(a, false);
+    }
+
+    /**
+     * Returns a - b for natural numbers a and b.
+     *
+     * @param a
+     *            the minuend
+     * @param b
+     *            the subtrahend
+     * @return a - b
+     */
+    private static Signed difference(int[] a, int[] b) {
+        Signed result;
+        if (Limbs.compare(a, b) >= 0) {
+            result = new Signed(Limbs.subtract(a, b), false);
+        } else {
+            result = new Signed(Limbs.subtract(b, a), true);
+        }
+        return result;
+    }
+
+    /**
+     * Returns x - y.
+     *
+     * @param x
+     *            the minuend
+     * @param y
+     *            the subtrahend
+     * @return x - y
+     */
+    private static Signed minus(Signed x, Signed y) {
+        Signed result;
+        if (x.negative != y.negative) {
+            result = new Signed(Limbs.add(x.magnitude, y.magnitude), x.negative);
+        } else {
+            Signed magnitudes = difference(x.magnitude, y.magnitude);
+            result = new Signed(magnitudes.magnitude,
+                    magnitudes.negative != x.negative);
+        }
+        return result;
+    }
+
+    /**
+     * Returns x * y.
+     *
+     * @param x
+     *            first factor
+     * @param y
+     *            second factor
+     * @return x * y
+     */
+    private static Signed times(Signed x, Signed y) {
+        return new Signed(multiply(x.magnitude, y.magnitude),
+                x.negative != y.negative);
+    }
+
+    /**
+     * Returns x / 2.
+     *
+     * @param x
+     *            the number
+     * @return x / 2
+     * @requires x is even
+     */
+    private static Signed halve(Signed x) {
+        return new Signed(Limbs.shiftRight(x.magnitude, 1), x.negative);
+    }
+
+    /**
+     * Returns x / 3.
+     *
+     * @param x
+     *            the number
+     * @return x / 3
+     * @requires x is divisible by 3
+     */
+    private static Signed divideBy3(Signed x) {
+        final int three = 3;
+        int[] quotient = x.magnitude.clone();
+        long remainder = Limbs.divideInPlace(quotient, quotient.length, three);
+        assert remainder == 0 : "Violation of: x is divisible by 3";
+        return new Signed(quotient, x.negative);
+    }
+
+}
@@ -0,0 +1,386 @@
+import java.util.Arrays;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumberSecondary;
+
+/**
+ * {@code NaturalNumber} represented as a binary array of 32-bit limbs, with
+ * the arithmetic secondary methods overridden to work a whole limb at a time.
+ * Parity and shifts by powers of two are O(1) and O(|limbs|) respectively,
+ * and {@code divide} produces one 32-bit quotient limb per step.
+ *
+ * <p>
+ * Arguments of other {@code NaturalNumber} implementations are accepted
+ * everywhere, but are converted through their decimal representation, so
+ * mixing implementations in a hot loop gives up most of the benefit.
+ *
+ * @convention <pre>
+ * |this.limbs| = 0  or  this.limbs[|this.limbs| - 1] /= 0
+ * </pre>
+ * @correspondence <pre>
+ * this = [sum of this.limbs[i] * 2^(32 * i), each limb read as unsigned]
+ * </pre>
+ *
+ * @author Chris Ma
+ *
+ */
+public class NaturalNumberBinary extends NaturalNumberSecondary {
+
+    /*
+     * Private members ---------------------------------------------------------
+     */
+
+    /**
+     * Limbs of this, least significant first.
+     */
+    private int[] limbs;
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.limbs = new int[0];
+    }
+
+    /**
+     * Returns the limbs of {@code n}, sharing the array when {@code n} is also
+     * a {@code NaturalNumberBinary}; the caller must not modify it.
+     *
+     * @param n
+     *            the number
+     * @return limbs of n, with no leading zero limbs
+     */
+    private static int[] limbsOf(NaturalNumber n) {
+        int[] result;
+        if (n instanceof NaturalNumberBinary) {
+            result = ((NaturalNumberBinary) n).limbs;
+        } else {
+            result = Limbs.fromNaturalNumber(n);
+        }
+        return result;
+    }
+
+    /*
+     * Constructors ------------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public NaturalNumberBinary() {
+        this.createNewRep();
+    }
+
+    /**
+     * Constructor from {@code int}.
+     *
+     * @param i
+     *            {@code int} to initialize from
+     * @requires i >= 0
+     */
+    public NaturalNumberBinary(int i) {
+        assert i >= 0 : "Violation of: i >= 0";
+        this.createNewRep();
+        this.setFromInt(i);
+    }
+
+    /**
+     * Constructor from {@code String}.
+     *
+     * @param s
+     *            {@code String} to initialize from
+     * @requires there exists n: NATURAL (s = TO_STRING(n))
+     */
+    public NaturalNumberBinary(String s) {
+        assert s != null : "Violation of: s is not null";
+        assert s.matches("0|[1-9]\\d*") : ""
+                + "Violation of: there exists n: NATURAL (s = TO_STRING(n))";
+        this.createNewRep();
+        this.setFromString(s);
+    }
+
+    /**
+     * Constructor from {@code NaturalNumber}.
+     *
+     * @param n
+     *            {@code NaturalNumber} to initialize from
+     */
+    public NaturalNumberBinary(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        this.createNewRep();
+        this.copyFrom(n);
+    }
+
+    /*
+     * Standard methods --------------------------------------------------------
+     */
+
+    @Override
+    public final NaturalNumber newInstance() {
+        return new NaturalNumberBinary();
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(NaturalNumber source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof NaturalNumberBinary : ""
+                + "Violation of: source is of dynamic type NaturalNumberBinary";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case.
+         */
+        NaturalNumberBinary localSource = (NaturalNumberBinary) source;
+        this.limbs = localSource.limbs;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ----------------------------------------------------------
+     */
+
+    @Override
+    public final void multiplyBy10(int k) {
+        assert 0 <= k : "Violation of: 0 <= k";
+        assert k < RADIX : "Violation of: k < 10";
+
+        long carry = k;
+        for (int i = 0; i < this.limbs.length; i++) {
+            long t = (this.limbs[i] & Limbs.MASK) * RADIX + carry;
+            this.limbs[i] = (int) t;
+            carry = t >>> Limbs.LIMB_BITS;
+        }
+        if (carry != 0) {
+            this.limbs = Arrays.copyOf(this.limbs, this.limbs.length + 1);
+            this.limbs[this.limbs.length - 1] = (int) carry;
+        }
+    }
+
+    @Override
+    public final int divideBy10() {
+        long remainder = Limbs.divideInPlace(this.limbs, this.limbs.length, RADIX);
+        this.limbs = Limbs.trim(this.limbs);
+        return (int) remainder;
+    }
+
+    @Override
+    public final boolean isZero() {
+        return this.limbs.length == 0;
+    }
+
+    /*
+     * Secondary methods overridden for efficiency -----------------------------
+     */
+
+    @Override
+    public final void setFromInt(int i) {
+        assert i >= 0 : "Violation of: i >= 0";
+
+        if (i == 0) {
+            this.limbs = new int[0];
+        } else {
+            this.limbs = new int[] { i };
+        }
+    }
+
+    @Override
+    public final boolean canConvertToInt() {
+        return this.limbs.length == 0
+                || (this.limbs.length == 1 && this.limbs[0] >= 0);
+    }
+
+    @Override
+    public final int toInt() {
+        assert this.canConvertToInt() : ""
+                + "Violation of: this <= Integer.MAX_VALUE";
+
+        int result = 0;
+        if (this.limbs.length > 0) {
+            result = this.limbs[0];
+        }
+        return result;
+    }
+
+    @Override
+    public final void setFromString(String s) {
+        assert s != null : "Violation of: s is not null";
+        assert this.canSetFromString(s) : ""
+                + "Violation of: there exists n: NATURAL (s = TO_STRING(n))";
+
+        this.limbs = Limbs.fromDecimal(s);
+    }
+
+    @Override
+    public final void copyFrom(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        this.limbs = limbsOf(n).clone();
+    }
+
+    @Override
+    public final int compareTo(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        return Integer.signum(Limbs.compare(this.limbs, limbsOf(n)));
+    }
+
+    @Override
+    public final void increment() {
+        this.limbs = Limbs.add(this.limbs, new int[] { 1 });
+    }
+
+    @Override
+    public final void decrement() {
+        assert !this.isZero() : "Violation of: this > 0";
+
+        Limbs.subtractInt(this.limbs, 1);
+        this.limbs = Limbs.trim(this.limbs);
+    }
+
+    @Override
+    public final void add(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        this.limbs = Limbs.add(this.limbs, limbsOf(n));
+    }
+
+    @Override
+    public final void subtract(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        assert this.compareTo(n) >= 0 : "Violation of: this >= n";
+
+        this.limbs = Limbs.subtract(this.limbs, limbsOf(n));
+    }
+
+    @Override
+    public final void multiply(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        int[] other = limbsOf(n);
+        if (Arrays.equals(other, this.limbs)) {
+            /*
+             * A square, as in powerMod's n.multiply(nCopy): passing the same
+             * array twice selects the squaring routines
+             */
+            other = this.limbs;
+        }
+        this.limbs = Limbs.multiply(this.limbs, other);
+    }
+
+    @Override
+    public final NaturalNumber divide(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        assert !n.isZero() : "Violation of: n > 0";
+
+        int[][] quotientAndRemainder = Limbs.divideAndRemainder(this.limbs,
+                limbsOf(n));
+        this.limbs = quotientAndRemainder[0];
+        NaturalNumberBinary remainder = new NaturalNumberBinary();
+        remainder.limbs = quotientAndRemainder[1];
+        return remainder;
+    }
+
+    @Override
+    public final void power(int p) {
+        assert p >= 0 : "Violation of: p >= 0";
+
+        int[] result = { 1 };
+        int[] square = this.limbs;
+        int exponent = p;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result = Limbs.multiply(result, square);
+            }
+            exponent >>>= 1;
+            if (exponent > 0) {
+                square = Limbs.multiply(square, square);
+            }
+        }
+        this.limbs = result;
+    }
+
+    @Override
+    public final String toString() {
+        return Limbs.toDecimal(this.limbs);
+    }
+
+    /*
+     * Additional methods ------------------------------------------------------
+     */
+
+    /**
+     * Reports whether this is even.
+     *
+     * @return true iff this is even
+     * @ensures isEven = (this mod 2 = 0)
+     */
+    public final boolean isEven() {
+        return this.limbs.length == 0 || (this.limbs[0] & 1) == 0;
+    }
+
+    /**
+     * Multiplies this by 2^k.
+     *
+     * @param k
+     *            number of bits to shift by
+     * @updates this
+     * @requires k >= 0
+     * @ensures this = #this * 2^k
+     */
+    public final void shiftLeft(int k) {
+        assert k >= 0 : "Violation of: k >= 0";
+
+        this.limbs = Limbs.trim(Limbs.shiftLeft(this.limbs, k));
+    }
+
+    /**
+     * Divides this by 2^k, discarding the remainder.
+     *
+     * @param k
+     *            number of bits to shift by
+     * @updates this
+     * @requires k >= 0
+     * @ensures this = #this / 2^k
+     */
+    public final void shiftRight(int k) {
+        assert k >= 0 : "Violation of: k >= 0";
+
+        this.limbs = Limbs.trim(Limbs.shiftRight(this.limbs, k));
+    }
+
+    /**
+     * Reports the number of bits in the binary representation of this.
+     *
+     * @return bit length of this (0 if this = 0)
+     */
+    public final int bitLength() {
+        return Limbs.bitLength(this.limbs);
+    }
+
+    /**
+     * Returns a copy of the limbs of this.
+     *
+     * @return limbs of this, with no leading zero limbs
+     */
+    final int[] toLimbs() {
+        return this.limbs.clone();
+    }
+
+    /**
+     * Sets this to the value of {@code a}.
+     *
+     * @param a
+     *            the limbs
+     * @replaces this
+     * @ensures this = [value of a]
+     */
+    final void setFromLimbs(int[] a) {
+        this.limbs = Arrays.copyOf(a, Limbs.significantLength(a));
+    }
+
+}
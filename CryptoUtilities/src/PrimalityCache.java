@@ -0,0 +1,202 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * A bounded cache of primality verdicts, keyed by the number tested, for
+ * callers that test the same numbers over and over (e.g., re-checking
+ * published moduli). When the cache is full, the least recently used verdict
+ * is dropped.
+ *
+ * <p>
+ * The cache may be shared between threads. The test itself runs outside the
+ * lock, so two threads asking about the same new number at the same moment
+ * may both run it; they get the same verdict either way, since a
+ * probabilistic test that reports "composite" is never wrong and one that
+ * reports "prime" is wrong with negligible probability.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class PrimalityCache {
+
+    /**
+     * Number of Miller&ndash;Rabin rounds used by the default test.
+     */
+    public static final int DEFAULT_ROUNDS = 40;
+
+    /**
+     * A number, as its limbs, usable as a hash key.
+     */
+    private static final class Key {
+
+        /**
+         * Limbs of the number, with no leading zero limbs.
+         */
+        private final int[] limbs;
+
+        /**
+         * Hash code of limbs.
+         */
+        private final int hash;
+
+        /**
+         * Constructs the key for {@code n}.
+         *
+         * @param n
+         *            the number
+         */
+        private Key(NaturalNumber n) {
+            this.limbs = Limbs.fromNaturalNumber(n);
+            this.hash = Arrays.hashCode(this.limbs);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && Arrays.equals(this.limbs, ((Key) obj).limbs);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+    }
+
+    /**
+     * Verdicts, least recently used first.
+     */
+    private final LinkedHashMap<Key, Boolean> verdicts;
+
+    /**
+     * The primality test run on numbers not in the cache.
+     */
+    private final Predicate<NaturalNumber> test;
+
+    /**
+     * Number of lookups answered from the cache.
+     */
+    private long hits;
+
+    /**
+     * Number of lookups that ran the test.
+     */
+    private long misses;
+
+    /**
+     * Constructs an empty cache holding at most {@code capacity} verdicts of
+     * {@code CryptoUtilities.isPrime3} with {@code DEFAULT_ROUNDS} rounds.
+     *
+     * @param capacity
+     *            maximum number of verdicts kept
+     * @requires capacity > 0
+     */
+    public PrimalityCache(int capacity) {
+        this(capacity, n -> CryptoUtilities.isPrime3(n, DEFAULT_ROUNDS));
+    }
+
+    /**
+     * Constructs an empty cache holding at most {@code capacity} verdicts of
+     * {@code test}.
+     *
+     * @param capacity
+     *            maximum number of verdicts kept
+     * @param test
+     *            the primality test, which must leave its argument unchanged
+     * @requires capacity > 0
+     */
+    public PrimalityCache(int capacity, Predicate<NaturalNumber> test) {
+        assert capacity > 0 : "Violation of: capacity > 0";
+        assert test != null : "Violation of: test is not null";
+
+        final float loadFactor = 0.75f;
+        this.verdicts = new LinkedHashMap<Key, Boolean>(16, loadFactor, true) {
+
+            /**
+             * Serialization version.
+             */
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+                return this.size() > capacity;
+            }
+
+        };
+        this.test = test;
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /**
+     * Reports whether n is a prime, running the test only if n is not in the
+     * cache.
+     *
+     * @param n
+     *            number to be checked
+     * @return the test's verdict on n
+     * @requires n > 1
+     * @ensures isPrime = [the test's verdict on n]
+     */
+    public boolean isPrime(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        Key key = new Key(n);
+        Boolean verdict;
+        synchronized (this) {
+            verdict = this.verdicts.get(key);
+            if (verdict != null) {
+                this.hits++;
+            } else {
+                this.misses++;
+            }
+        }
+        if (verdict == null) {
+            verdict = this.test.test(n);
+            synchronized (this) {
+                this.verdicts.put(key, verdict);
+            }
+        }
+        return verdict;
+    }
+
+    /**
+     * Reports the number of verdicts in the cache.
+     *
+     * @return number of verdicts kept
+     */
+    public synchronized int size() {
+        return this.verdicts.size();
+    }
+
+    /**
+     * Reports the number of lookups answered from the cache.
+     *
+     * @return number of cache hits
+     */
+    public synchronized long hits() {
+        return this.hits;
+    }
+
+    /**
+     * Reports the number of lookups that ran the test.
+     *
+     * @return number of cache misses
+     */
+    public synchronized long misses() {
+        return this.misses;
+    }
+
+    /**
+     * Drops every verdict and resets the hit and miss counts.
+     */
+    public synchronized void clear() {
+        this.verdicts.clear();
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+}
@@ -0,0 +1,382 @@
+import java.util.Arrays;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * Everything the witness tests need to know about one fixed odd n, worked out
+ * once: the Montgomery reduction context, n - 1 and n - 2, the decomposition
+ * n - 1 = 2^s * d with d odd, and 1 and -1 in Montgomery form. Both the
+ * Fermat-style criterion of {@code CryptoUtilities.isWitnessToCompositeness}
+ * and the Miller&ndash;Rabin criterion of {@code CryptoUtilities.isPrime3}
+ * are available, and each candidate then costs one modular exponentiation by
+ * d plus at most s squarings, with no division and no allocation. The strong
+ * Lucas test used by {@code CryptoUtilities.isPrime4} shares the same
+ * reduction context.
+ *
+ * <p>
+ * A context owns scratch buffers, so a single instance must not be used by
+ * more than one thread at a time.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class PrimalityContext {
+
+    /**
+     * Number of Selfridge parameters D tried before checking whether n is a
+     * perfect square, for which no D works.
+     */
+    private static final int SQUARE_CHECK_AFTER = 8;
+
+    /**
+     * Reduction context for n.
+     */
+    private final MontgomeryContext context;
+
+    /**
+     * n - 1, in k limbs.
+     */
+    private final int[] nMinusOne;
+
+    /**
+     * n - 2, the largest allowed candidate, in k limbs.
+     */
+    private final int[] nMinusTwo;
+
+    /**
+     * Odd part d of n - 1 = 2^s * d.
+     */
+    private final int[] d;
+
+    /**
+     * Power of two s in n - 1 = 2^s * d.
+     */
+    private final int s;
+
+    /**
+     * 1 in Montgomery form.
+     */
+    private final int[] one;
+
+    /**
+     * -1, i.e., n - 1, in Montgomery form.
+     */
+    private final int[] minusOne;
+
+    /**
+     * Candidate raised to successive powers, in Montgomery form.
+     */
+    private final int[] x;
+
+    /**
+     * Candidate in Montgomery form, and then its square.
+     */
+    private final int[] square;
+
+    /**
+     * Constructs a context for {@code n}.
+     *
+     * @param n
+     *            number being checked
+     * @requires n > 3 and n is odd
+     */
+    public PrimalityContext(NaturalNumber n) {
+        this(Limbs.fromNaturalNumber(n));
+    }
+
+    /**
+     * Constructs a context for the number whose limbs are {@code n}.
+     *
+     * @param n
+     *            limbs of the number being checked
+     * @requires n > 3 and n is odd
+     */
+    PrimalityContext(int[] n) {
+        assert Limbs.bitLength(n) > 2 : "Violation of: n > 3";
+        assert (n[0] & 1) != 0 : "Violation of: n is odd";
+
+        this.context = new MontgomeryContext(n);
+        int k = this.context.width();
+        this.nMinusOne = Arrays.copyOf(n, k);
+        Limbs.subtractInt(this.nMinusOne, 1);
+        this.s = Limbs.trailingZeros(this.nMinusOne);
+        this.d = Limbs.shiftRight(this.nMinusOne, this.s);
+        this.nMinusTwo = this.nMinusOne.clone();
+        Limbs.subtractInt(this.nMinusTwo, 1);
+        this.one = this.context.one();
+        this.minusOne = new int[k];
+        this.context.negate(this.one, this.minusOne);
+        this.x = new int[k];
+        this.square = new int[k];
+    }
+
+    /**
+     * Returns n - 2, the largest allowed witness candidate. The caller must
+     * not modify the array.
+     *
+     * @return limbs of n - 2
+     */
+    int[] nMinusTwo() {
+        return this.nMinusTwo;
+    }
+
+    /**
+     * Reports whether w is a "witness" that n is composite, in the sense that
+     * either it is a square root of 1 (mod n), or it fails to satisfy the
+     * criterion for primality from Fermat's theorem.
+     *
+     * @param w
+     *            witness candidate
+     * @return true iff w is a "witness" that n is composite
+     * @requires 1 < w < n - 1
+     * @ensures <pre>
+     * isWitness =
+     *     (w ^ 2 mod n = 1)  or  (w ^ (n-1) mod n /= 1)
+     * </pre>
+     */
+    public boolean isWitness(NaturalNumber w) {
+        return this.isWitness(Limbs.fromNaturalNumber(w));
+    }
+
+    /**
+     * Reports whether the number whose limbs are {@code w} is a "witness" that
+     * n is composite.
+     *
+     * @param w
+     *            limbs of the witness candidate
+     * @return true iff w is a "witness" that n is composite
+     * @requires 1 < w < n - 1
+     * @ensures <pre>
+     * isWitness =
+     *     (w ^ 2 mod n = 1)  or  (w ^ (n-1) mod n /= 1)
+     * </pre>
+     */
+    boolean isWitness(int[] w) {
+        assert Limbs.bitLength(w) > 1 : "Violation of: 1 < w";
+        assert Limbs.compare(w, this.nMinusTwo) <= 0 : "Violation of: w < n - 1";
+
+        this.context.toMontgomery(w, this.square);
+        this.context.montgomeryMultiply(this.square, this.square, this.square);
+        boolean witness = Arrays.equals(this.square, this.one);
+        if (!witness) {
+            /*
+             * w^(n-1) = (w^d)^(2^s)
+             */
+            this.context.powerToMontgomery(w, this.d, this.x);
+            for (int i = 0; i < this.s; i++) {
+                this.context.montgomeryMultiply(this.x, this.x, this.x);
+            }
+            witness = !Arrays.equals(this.x, this.one);
+        }
+        return witness;
+    }
+
+    /**
+     * Reports whether a is a Miller&ndash;Rabin witness that n is composite,
+     * i.e., whether neither a^d = 1 (mod n) nor a^(2^r * d) = -1 (mod n) for
+     * some 0 <= r < s.
+     *
+     * @param a
+     *            the base
+     * @return true iff a is a Miller&ndash;Rabin witness that n is composite
+     * @requires 1 < a < n - 1
+     * @ensures <pre>
+     * isStrongWitness = (a ^ d mod n /= 1  and
+     *     for all r: integer where (0 <= r < s)
+     *       (a ^ (2^r * d) mod n /= n - 1))
+     * </pre>
+     */
+    public boolean isStrongWitness(NaturalNumber a) {
+        return this.isStrongWitness(Limbs.fromNaturalNumber(a));
+    }
+
+    /**
+     * Reports whether the number whose limbs are {@code a} is a
+     * Miller&ndash;Rabin witness that n is composite.
+     *
+     * @param a
+     *            limbs of the base
+     * @return true iff a is a Miller&ndash;Rabin witness that n is composite
+     * @requires 1 < a < n - 1
+     * @ensures <pre>
+     * isStrongWitness = (a ^ d mod n /= 1  and
+     *     for all r: integer where (0 <= r < s)
+     *       (a ^ (2^r * d) mod n /= n - 1))
+     * </pre>
+     */
+    boolean isStrongWitness(int[] a) {
+        assert Limbs.bitLength(a) > 1 : "Violation of: 1 < a";
+        assert Limbs.compare(a, this.nMinusTwo) <= 0 : "Violation of: a < n - 1";
+
+        this.context.powerToMontgomery(a, this.d, this.x);
+        boolean witness = !Arrays.equals(this.x, this.one)
+                && !Arrays.equals(this.x, this.minusOne);
+        int r = 1;
+        while (witness && r < this.s) {
+            this.context.montgomeryMultiply(this.x, this.x, this.x);
+            witness = !Arrays.equals(this.x, this.minusOne);
+            r++;
+        }
+        return witness;
+    }
+
+    /**
+     * Reports whether n is a strong Lucas probable prime with Selfridge's
+     * parameters: D is the first of 5, -7, 9, -11, 13, ... with Jacobi symbol
+     * (D/n) = -1, P = 1 and Q = (1 - D)/4. With n + 1 = 2^r * e, e odd, n
+     * passes if U_e = 0 (mod n) or V_(2^j * e) = 0 (mod n) for some 0 <= j <
+     * r. Every odd prime that does not divide D passes; the composites that
+     * pass are rare, and none is known that also passes the base-2
+     * Miller&ndash;Rabin test.
+     *
+     * @return true iff n is a strong Lucas probable prime
+     * @requires n > 3 and n is odd
+     */
+    public boolean isStrongLucasProbablePrime() {
+        int[] n = Limbs.add(this.nMinusOne, new int[] { 1 });
+        int k = this.context.width();
+
+        /*
+         * Find D; a Jacobi symbol of 0 means |D| shares a factor with n
+         */
+        int d = 5;
+        int jacobi = jacobi(d, n);
+        int tried = 1;
+        boolean square = false;
+        while (jacobi == 1 && !square) {
+            d = -Integer.signum(d) * (Math.abs(d) + 2);
+            jacobi = jacobi(d, n);
+            tried++;
+            if (tried == SQUARE_CHECK_AFTER) {
+                int[] root = Limbs.sqrt(n);
+                square = Arrays.equals(Limbs.multiply(root, root), n);
+            }
+        }
+
+        boolean isPrime;
+        if (square) {
+            isPrime = false;
+        } else if (jacobi == 0) {
+            isPrime = Limbs.compare(n, new int[] { Math.abs(d) }) == 0
+                    && LongPrimality.isPrime(Math.abs(d));
+        } else {
+            int[] dMontgomery = this.toMontgomery(d);
+            int[] qMontgomery = this.toMontgomery((1 - d) / 4);
+
+            /*
+             * n + 1 = 2^r * e with e odd
+             */
+            int[] nPlusOne = Limbs.add(n, new int[] { 1 });
+            int r = Limbs.trailingZeros(nPlusOne);
+            int[] e = Limbs.trim(Limbs.shiftRight(nPlusOne, r));
+
+            /*
+             * Left to right over the bits of e, keeping U_j, V_j and Q^j for
+             * the prefix j of e read so far:
+             * U_2j = U_j V_j, V_2j = V_j^2 - 2 Q^j, and
+             * U_(j+1) = (U_j + V_j)/2, V_(j+1) = (D U_j + V_j)/2
+             */
+            int[] u = this.one.clone();
+            int[] v = this.one.clone();
+            int[] qPower = qMontgomery.clone();
+            int[] t = new int[k];
+            for (int i = Limbs.bitLength(e) - 2; i >= 0; i--) {
+                this.context.montgomeryMultiply(u, v, u);
+                this.context.montgomeryMultiply(v, v, v);
+                this.context.add(qPower, qPower, t);
+                this.context.subtract(v, t, v);
+                this.context.montgomeryMultiply(qPower, qPower, qPower);
+                if (Limbs.testBit(e, i)) {
+                    this.context.montgomeryMultiply(dMontgomery, u, t);
+                    this.context.add(u, v, u);
+                    this.context.halve(u, u);
+                    this.context.add(t, v, v);
+                    this.context.halve(v, v);
+                    this.context.montgomeryMultiply(qPower, qMontgomery, qPower);
+                }
+            }
+
+            isPrime = Limbs.bitLength(u) == 0 || Limbs.bitLength(v) == 0;
+            for (int j = 1; j < r && !isPrime; j++) {
+                this.context.montgomeryMultiply(v, v, v);
+                this.context.add(qPower, qPower, t);
+                this.context.subtract(v, t, v);
+                this.context.montgomeryMultiply(qPower, qPower, qPower);
+                isPrime = Limbs.bitLength(v) == 0;
+            }
+        }
+        return isPrime;
+    }
+
+    /**
+     * Returns {@code value} mod n in Montgomery form.
+     *
+     * @param value
+     *            a small integer, possibly negative
+     * @return k-limb Montgomery form of value mod n
+     */
+    private int[] toMontgomery(int value) {
+        int[] result = new int[this.context.width()];
+        this.context.toMontgomery(new int[] { Math.abs(value) }, result);
+        if (value < 0 && Limbs.bitLength(result) > 0) {
+            this.context.negate(result, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the Jacobi symbol (a/n).
+     *
+     * @param a
+     *            the numerator, odd in absolute value
+     * @param n
+     *            limbs of the denominator
+     * @return the Jacobi symbol (a/n): -1, 0 or 1
+     * @requires n is odd and n > 0
+     */
+    private static int jacobi(int a, int[] n) {
+        final int mod4 = 3;
+        final int mod8 = 7;
+        int b = Math.abs(a);
+        int nMod4 = n[0] & mod4;
+        int sign = 1;
+        /*
+         * (-1/n) = -1 iff n = 3 (mod 4); then reciprocity for odd b:
+         * (b/n) = (n/b), negated iff b = n = 3 (mod 4)
+         */
+        if (a < 0 && nMod4 == mod4) {
+            sign = -sign;
+        }
+        if ((b & mod4) == mod4 && nMod4 == mod4) {
+            sign = -sign;
+        }
+        int[] copy = n.clone();
+        int top = (int) Limbs.divideInPlace(copy, copy.length, b);
+        int bottom = b;
+        /*
+         * Jacobi symbol (top/bottom) of small numbers, bottom odd
+         */
+        while (top != 0) {
+            while ((top & 1) == 0) {
+                top >>= 1;
+                int r = bottom & mod8;
+                if (r == mod4 || r == mod8 - 2) {
+                    sign = -sign;
+                }
+            }
+            int swap = top;
+            top = bottom;
+            bottom = swap;
+            if ((top & mod4) == mod4 && (bottom & mod4) == mod4) {
+                sign = -sign;
+            }
+            top %= bottom;
+        }
+        int result = 0;
+        if (bottom == 1) {
+            result = sign;
+        }
+        return result;
+    }
+
+}
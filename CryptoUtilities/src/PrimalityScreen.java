@@ -0,0 +1,357 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Screens a file of newline-separated decimal numbers for primality, testing
+ * them in parallel batches on a {@code ForkJoinPool} with
+ * {@code CryptoUtilities.isPrime4}. For every nonblank input line one line
+ * is written, in input order: the number as it appeared (without surrounding
+ * blanks), a tab, and one of {@code prime}, {@code composite},
+ * {@code neither} (for 0 and 1) or {@code invalid} (for a line that is not a
+ * decimal number). Blank lines are skipped.
+ *
+ * <p>
+ * The file is read through a {@code FileChannel} into a fixed buffer, and
+ * lines are handled in groups of a few batches per worker thread: while one
+ * group is being tested the next one is read, and only those two groups are
+ * in memory at any time, so files of any length can be screened.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class PrimalityScreen {
+
+    /**
+     * Default number of numbers in one batch task.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * Size in bytes of the file read buffer.
+     */
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+
+    /**
+     * Initial capacity in bytes of the line buffer; it grows as needed.
+     */
+    private static final int LINE_BYTES = 64;
+
+    /**
+     * Verdict for a (probable) prime.
+     */
+    private static final String PRIME = "prime";
+
+    /**
+     * Verdict for a composite number.
+     */
+    private static final String COMPOSITE = "composite";
+
+    /**
+     * Verdict for 0 and 1.
+     */
+    private static final String NEITHER = "neither";
+
+    /**
+     * Verdict for a line that is not a number.
+     */
+    private static final String INVALID = "invalid";
+
+    /**
+     * The pool that runs the batch tasks.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Number of numbers in one batch task.
+     */
+    private final int batchSize;
+
+    /**
+     * Constructs a screen that runs on the common pool with the default batch
+     * size.
+     */
+    public PrimalityScreen() {
+        this(ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a screen that runs on {@code pool} with {@code batchSize}
+     * numbers per task.
+     *
+     * @param pool
+     *            the pool that runs the batch tasks
+     * @param batchSize
+     *            number of numbers in one batch task
+     * @requires batchSize > 0
+     */
+    public PrimalityScreen(ForkJoinPool pool, int batchSize) {
+        assert pool != null : "Violation of: pool is not null";
+        assert batchSize > 0 : "Violation of: batchSize > 0";
+
+        this.pool = pool;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Reads the lines of a file a buffer at a time.
+     */
+    private static final class LineReader {
+
+        /**
+         * The file.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Bytes read from the file and not yet consumed.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Bytes of the line being assembled.
+         */
+        private byte[] line;
+
+        /**
+         * Whether the end of the file has been reached.
+         */
+        private boolean atEnd;
+
+        /**
+         * Constructs a reader of {@code channel}.
+         *
+         * @param channel
+         *            the file
+         */
+        private LineReader(FileChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+            this.buffer.flip();
+            this.line = new byte[LINE_BYTES];
+            this.atEnd = false;
+        }
+
+        /**
+         * Returns the next line, without its line terminator ("\n" or
+         * "\r\n"), or null at the end of the file.
+         *
+         * @return the next line, or null
+         * @throws IOException
+         *             if reading fails
+         */
+        private String next() throws IOException {
+            int length = 0;
+            boolean found = false;
+            boolean any = false;
+            while (!found && !(this.atEnd && !this.buffer.hasRemaining())) {
+                if (!this.buffer.hasRemaining()) {
+                    this.buffer.clear();
+                    this.atEnd = this.channel.read(this.buffer) < 0;
+                    this.buffer.flip();
+                } else {
+                    any = true;
+                    byte b = this.buffer.get();
+                    if (b == '\n') {
+                        found = true;
+                    } else {
+                        if (length == this.line.length) {
+                            this.line = Arrays.copyOf(this.line, 2 * length);
+                        }
+                        this.line[length] = b;
+                        length++;
+                    }
+                }
+            }
+            String result = null;
+            if (any) {
+                if (length > 0 && this.line[length - 1] == '\r') {
+                    length--;
+                }
+                result = new String(this.line, 0, length, StandardCharsets.US_ASCII);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Returns the verdict for the line {@code text}.
+     *
+     * @param text
+     *            the line, without surrounding blanks
+     * @return the verdict
+     */
+    private static String verdict(String text) {
+        boolean digits = true;
+        for (int i = 0; i < text.length() && digits; i++) {
+            char c = text.charAt(i);
+            digits = '0' <= c && c <= '9';
+        }
+        String result;
+        if (!digits) {
+            result = INVALID;
+        } else {
+            int[] limbs = Limbs.fromDecimal(text);
+            if (Limbs.bitLength(limbs) < 2) {
+                result = NEITHER;
+            } else {
+                NaturalNumberBinary n = new NaturalNumberBinary();
+                n.setFromLimbs(limbs);
+                if (CryptoUtilities.isPrime4(n)) {
+                    result = PRIME;
+                } else {
+                    result = COMPOSITE;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads up to {@code count} nonblank lines from {@code in}.
+     *
+     * @param in
+     *            the reader
+     * @param count
+     *            largest number of lines to read
+     * @return the lines, without surrounding blanks; fewer than count only at
+     *         the end of the file
+     * @throws IOException
+     *             if reading fails
+     */
+    private static List<String> readGroup(LineReader in, int count)
+            throws IOException {
+        List<String> group = new ArrayList<>(count);
+        String line = in.next();
+        while (line != null) {
+            String text = line.trim();
+            if (!text.isEmpty()) {
+                group.add(text);
+            }
+            if (group.size() < count) {
+                line = in.next();
+            } else {
+                line = null;
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Starts testing {@code group}, one task per batch; each task stores the
+     * verdicts for its batch in {@code verdicts}.
+     *
+     * @param group
+     *            the lines to test
+     * @param verdicts
+     *            where to store the verdicts, in the same order
+     * @return the futures of the batch tasks
+     * @requires |verdicts| = |group|
+     */
+    private List<Future<?>> submit(List<String> group, String[] verdicts) {
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int start = 0; start < group.size(); start += this.batchSize) {
+            int from = start;
+            int to = Math.min(group.size(), start + this.batchSize);
+            tasks.add(this.pool.submit(() -> {
+                for (int i = from; i < to; i++) {
+                    verdicts[i] = verdict(group.get(i));
+                }
+            }));
+        }
+        return tasks;
+    }
+
+    /**
+     * Waits for a batch task and reports any failure.
+     *
+     * @param done
+     *            the task's future
+     */
+    private static void join(Future<?> done) {
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while testing numbers", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Primality testing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Writes the verdicts for {@code group} to {@code out}.
+     *
+     * @param group
+     *            the lines
+     * @param verdicts
+     *            their verdicts
+     * @param out
+     *            the output
+     * @throws IOException
+     *             if writing fails
+     */
+    private static void write(List<String> group, String[] verdicts, OutputStream out)
+            throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < verdicts.length; i++) {
+            text.append(group.get(i)).append('\t').append(verdicts[i]).append('\n');
+        }
+        out.write(text.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Tests every number in the file {@code input} and writes the verdicts to
+     * {@code out}.
+     *
+     * @param input
+     *            the file of numbers, one per line
+     * @param out
+     *            the output
+     * @return number of nonblank lines screened
+     * @throws IOException
+     *             if reading or writing fails
+     * @ensures <pre>
+     * [out has had one verdict line appended per nonblank line of input,
+     *  in input order]  and
+     * screen = [number of nonblank lines of input]
+     * </pre>
+     */
+    public long screen(Path input, OutputStream out) throws IOException {
+        assert input != null : "Violation of: input is not null";
+        assert out != null : "Violation of: out is not null";
+
+        final int batchesPerThread = 4;
+        int groupSize = this.batchSize * batchesPerThread * this.pool.getParallelism();
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            LineReader in = new LineReader(channel);
+            List<String> group = readGroup(in, groupSize);
+            while (!group.isEmpty()) {
+                String[] verdicts = new String[group.size()];
+                List<Future<?>> tasks = this.submit(group, verdicts);
+                List<String> next = readGroup(in, groupSize);
+                for (Future<?> done : tasks) {
+                    join(done);
+                }
+                write(group, verdicts, out);
+                count += group.size();
+                group = next;
+            }
+        }
+        out.flush();
+        return count;
+    }
+
+}
@@ -0,0 +1,388 @@
+import java.util.Arrays;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * An RSA key pair with public exponent 65537, built from two likely primes
+ * found by {@code CryptoUtilities.generateNextLikelyPrime}. Besides the
+ * private exponent d, the key keeps d mod (p - 1), d mod (q - 1) and q^(-1)
+ * mod p, so decryption can use the Chinese Remainder Theorem: two
+ * exponentiations with half-size exponents modulo half-size primes, each
+ * about an eighth of the work of one full-size exponentiation.
+ *
+ * <p>
+ * This is unpadded ("textbook") RSA, as in the course project; it is not
+ * meant to protect real data. A key pair is immutable and may be shared
+ * between threads; each call to {@code encrypt} or {@code decrypt} sets up
+ * its own reduction contexts, so to process many blocks with one key use an
+ * {@code RsaPipeline}, which sets them up once per batch.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class RsaKeyPair {
+
+    /**
+     * The public exponent, a prime.
+     */
+    public static final int PUBLIC_EXPONENT = 65537;
+
+    /**
+     * Smallest supported modulus bit length.
+     */
+    public static final int MIN_BIT_LENGTH = 2 * LikelyPrimeBatch.MIN_BIT_LENGTH;
+
+    /**
+     * Bit length of the modulus.
+     */
+    private final int bitLength;
+
+    /**
+     * The modulus n = p * q.
+     */
+    private final int[] modulus;
+
+    /**
+     * The public exponent e.
+     */
+    private final int[] publicExponent;
+
+    /**
+     * The private exponent d = e^(-1) mod (p - 1)(q - 1).
+     */
+    private final int[] privateExponent;
+
+    /**
+     * The larger prime factor p.
+     */
+    private final int[] p;
+
+    /**
+     * The smaller prime factor q.
+     */
+    private final int[] q;
+
+    /**
+     * d mod (p - 1).
+     */
+    private final int[] dP;
+
+    /**
+     * d mod (q - 1).
+     */
+    private final int[] dQ;
+
+    /**
+     * q^(-1) mod p.
+     */
+    private final int[] qInverse;
+
+    /**
+     * Constructs the key pair with prime factors {@code first} and
+     * {@code second}.
+     *
+     * @param first
+     *            limbs of one prime factor
+     * @param second
+     *            limbs of the other prime factor
+     * @requires <pre>
+     * first and second are distinct odd primes  and
+     * gcd(PUBLIC_EXPONENT, (first - 1)(second - 1)) = 1
+     * </pre>
+     */
+    private RsaKeyPair(int[] first, int[] second) {
+        if (Limbs.compare(first, second) > 0) {
+            this.p = Limbs.trim(first);
+            this.q = Limbs.trim(second);
+        } else {
+            this.p = Limbs.trim(second);
+            this.q = Limbs.trim(first);
+        }
+        this.modulus = Limbs.multiply(this.p, this.q);
+        this.bitLength = Limbs.bitLength(this.modulus);
+        this.publicExponent = new int[] { PUBLIC_EXPONENT };
+
+        int[] pMinusOne = this.p.clone();
+        Limbs.subtractInt(pMinusOne, 1);
+        int[] qMinusOne = this.q.clone();
+        Limbs.subtractInt(qMinusOne, 1);
+        this.privateExponent = Limbs.modInverse(this.publicExponent,
+                Limbs.multiply(pMinusOne, qMinusOne));
+        this.dP = Limbs.trim(Limbs.mod(this.privateExponent, pMinusOne));
+        this.dQ = Limbs.trim(Limbs.mod(this.privateExponent, qMinusOne));
+        this.qInverse = Limbs.modInverse(this.q, this.p);
+    }
+
+    /**
+     * Generates a key pair whose modulus is exactly {@code bitLength} bits
+     * long, drawing from a generator with an unpredictable seed.
+     *
+     * @param bitLength
+     *            bit length of the modulus
+     * @return the key pair
+     * @requires bitLength >= MIN_BIT_LENGTH
+     * @ensures generate.bitLength() = bitLength
+     */
+    public static RsaKeyPair generate(int bitLength) {
+        return generate(bitLength, new UniformRandom());
+    }
+
+    /**
+     * Generates a key pair whose modulus is exactly {@code bitLength} bits
+     * long, drawing the starting points of the prime searches from
+     * {@code random}.
+     *
+     * @param bitLength
+     *            bit length of the modulus
+     * @param random
+     *            source of random numbers
+     * @return the key pair
+     * @updates random
+     * @requires bitLength >= MIN_BIT_LENGTH
+     * @ensures generate.bitLength() = bitLength
+     */
+    public static RsaKeyPair generate(int bitLength, UniformRandom random) {
+        assert bitLength >= MIN_BIT_LENGTH : "Violation of: bitLength >= MIN_BIT_LENGTH";
+        assert random != null : "Violation of: random is not null";
+
+        int[] first = randomPrime(bitLength - bitLength / 2, random);
+        int[] second = randomPrime(bitLength / 2, random);
+        while (Arrays.equals(first, second)) {
+            second = randomPrime(bitLength / 2, random);
+        }
+        return new RsaKeyPair(first, second);
+    }
+
+    /**
+     * Returns a likely prime p of exactly {@code bits} bits, with its top two
+     * bits set and with p - 1 not divisible by PUBLIC_EXPONENT.
+     *
+     * @param bits
+     *            bit length of the prime
+     * @param random
+     *            source of random numbers
+     * @return limbs of the prime, with no leading zero limbs
+     * @updates random
+     * @requires bits >= LikelyPrimeBatch.MIN_BIT_LENGTH
+     */
+    private static int[] randomPrime(int bits, UniformRandom random) {
+        /*
+         * With the top two bits of both factors set, their product is at
+         * least (3/4)^2 * 2^(bits of p + bits of q) and so has every bit
+         * asked for
+         */
+        NaturalNumberBinary span = new NaturalNumberBinary(1);
+        span.shiftLeft(bits - 2);
+        span.decrement();
+        NaturalNumberBinary low = new NaturalNumberBinary(3);
+        low.shiftLeft(bits - 2);
+
+        int[] prime = null;
+        while (prime == null) {
+            NaturalNumber candidate = random.next(span);
+            candidate.add(low);
+            CryptoUtilities.generateNextLikelyPrime(candidate);
+            int[] limbs = Limbs.fromNaturalNumber(candidate);
+            int[] pMinusOne = limbs.clone();
+            Limbs.subtractInt(pMinusOne, 1);
+            if (Limbs.bitLength(limbs) == bits && Limbs.divideInPlace(pMinusOne,
+                    pMinusOne.length, PUBLIC_EXPONENT) != 0) {
+                prime = limbs;
+            }
+        }
+        return prime;
+    }
+
+    /**
+     * Reports the bit length of the modulus.
+     *
+     * @return bit length of the modulus
+     */
+    public int bitLength() {
+        return this.bitLength;
+    }
+
+    /**
+     * Returns the modulus n.
+     *
+     * @return the modulus
+     */
+    public NaturalNumber modulus() {
+        return toNaturalNumber(this.modulus);
+    }
+
+    /**
+     * Returns the public exponent e.
+     *
+     * @return the public exponent
+     */
+    public NaturalNumber publicExponent() {
+        return toNaturalNumber(this.publicExponent);
+    }
+
+    /**
+     * Returns the private exponent d.
+     *
+     * @return the private exponent
+     */
+    public NaturalNumber privateExponent() {
+        return toNaturalNumber(this.privateExponent);
+    }
+
+    /**
+     * Returns a new {@code NaturalNumberBinary} with the value of {@code a}.
+     *
+     * @param a
+     *            the limbs
+     * @return the number
+     */
+    private static NaturalNumber toNaturalNumber(int[] a) {
+        NaturalNumberBinary result = new NaturalNumberBinary();
+        result.setFromLimbs(a);
+        return result;
+    }
+
+    /**
+     * Encrypts one block.
+     *
+     * @param m
+     *            the plaintext block
+     * @return m ^ (e) mod n
+     * @requires m < n
+     * @ensures encrypt = m ^ (e) mod n
+     */
+    public NaturalNumber encrypt(NaturalNumber m) {
+        assert m != null : "Violation of: m is not null";
+
+        return toNaturalNumber(this.newEngine().encrypt(Limbs.fromNaturalNumber(m)));
+    }
+
+    /**
+     * Decrypts one block.
+     *
+     * @param c
+     *            the ciphertext block
+     * @return c ^ (d) mod n
+     * @requires c < n
+     * @ensures decrypt = c ^ (d) mod n
+     */
+    public NaturalNumber decrypt(NaturalNumber c) {
+        assert c != null : "Violation of: c is not null";
+
+        return toNaturalNumber(this.newEngine().decrypt(Limbs.fromNaturalNumber(c)));
+    }
+
+    /**
+     * Returns a new engine for this key pair.
+     *
+     * @return the engine
+     */
+    Engine newEngine() {
+        return new Engine();
+    }
+
+    /**
+     * Reduction contexts and scratch buffers for encrypting and decrypting
+     * with the enclosing key pair. Like {@code MontgomeryContext}, an engine
+     * must not be used by more than one thread at a time.
+     */
+    final class Engine {
+
+        /**
+         * Context for the modulus n, used to encrypt.
+         */
+        private final MontgomeryContext nContext;
+
+        /**
+         * Context for p.
+         */
+        private final MontgomeryContext pContext;
+
+        /**
+         * Context for q.
+         */
+        private final MontgomeryContext qContext;
+
+        /**
+         * p, padded to the width of pContext.
+         */
+        private final int[] pPadded;
+
+        /**
+         * q^(-1) mod p, in Montgomery form for pContext.
+         */
+        private final int[] qInverseMontgomery;
+
+        /**
+         * c ^ (dP) mod p, and then h = q^(-1) (m1 - m2) mod p.
+         */
+        private final int[] m1;
+
+        /**
+         * c ^ (dQ) mod q.
+         */
+        private final int[] m2;
+
+        /**
+         * Constructs an engine for the enclosing key pair.
+         */
+        private Engine() {
+            this.nContext = new MontgomeryContext(RsaKeyPair.this.modulus);
+            this.pContext = new MontgomeryContext(RsaKeyPair.this.p);
+            this.qContext = new MontgomeryContext(RsaKeyPair.this.q);
+            int kp = this.pContext.width();
+            this.pPadded = Arrays.copyOf(RsaKeyPair.this.p, kp);
+            this.qInverseMontgomery = new int[kp];
+            this.pContext.toMontgomery(RsaKeyPair.this.qInverse,
+                    this.qInverseMontgomery);
+            this.m1 = new int[kp];
+            this.m2 = new int[this.qContext.width()];
+        }
+
+        /**
+         * Encrypts the block whose limbs are {@code m}.
+         *
+         * @param m
+         *            limbs of the plaintext block
+         * @return limbs of m ^ (e) mod n, with no leading zero limbs
+         * @requires m < n
+         */
+        int[] encrypt(int[] m) {
+            assert Limbs.compare(m, RsaKeyPair.this.modulus) < 0 : "Violation of: m < n";
+
+            int[] c = new int[this.nContext.width()];
+            this.nContext.power(m, RsaKeyPair.this.publicExponent, c);
+            return Limbs.trim(c);
+        }
+
+        /**
+         * Decrypts the block whose limbs are {@code c}, combining c ^ (dP) mod
+         * p and c ^ (dQ) mod q with Garner's formula.
+         *
+         * @param c
+         *            limbs of the ciphertext block
+         * @return limbs of c ^ (d) mod n, with no leading zero limbs
+         * @requires c < n
+         */
+        int[] decrypt(int[] c) {
+            assert Limbs.compare(c, RsaKeyPair.this.modulus) < 0 : "Violation of: c < n";
+
+            this.pContext.power(c, RsaKeyPair.this.dP, this.m1);
+            this.qContext.power(c, RsaKeyPair.this.dQ, this.m2);
+            /*
+             * m = m2 + q * h, where h = q^(-1) (m1 - m2) mod p; since q < p,
+             * m2 is already reduced mod p
+             */
+            int[] m2Padded = Arrays.copyOf(this.m2, this.m1.length);
+            if (Limbs.subtractInPlace(this.m1, m2Padded, this.m1.length) != 0) {
+                Limbs.addInPlace(this.m1, this.pPadded, this.m1.length);
+            }
+            this.pContext.montgomeryMultiply(this.m1, this.qInverseMontgomery,
+                    this.m1);
+            return Limbs.add(this.m2, Limbs.multiply(Limbs.trim(this.m1),
+                    RsaKeyPair.this.q));
+        }
+
+    }
+
+}
@@ -0,0 +1,436 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * Encrypts and decrypts many blocks with one {@code RsaKeyPair}, splitting
+ * them into batches that run in parallel on a {@code ForkJoinPool}. Each
+ * batch task sets up its own {@code RsaKeyPair.Engine}, so the reduction
+ * contexts are built once per batch rather than once per block, and results
+ * always come back in input order.
+ *
+ * <p>
+ * The stream methods turn bytes into blocks as follows: the plaintext is cut
+ * into chunks of {@code plaintextBlockBytes()} bytes (the last one possibly
+ * shorter), each chunk is read as a big-endian number with an extra leading
+ * 0x01 byte so that leading zero bytes and the chunk length survive, and each
+ * ciphertext block is written big-endian in exactly
+ * {@code ciphertextBlockBytes()} bytes. Only one group of batches is held in
+ * memory at a time, so streams of any length can be processed.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class RsaPipeline {
+
+    /**
+     * Default number of blocks in one batch task.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    /**
+     * The key pair.
+     */
+    private final RsaKeyPair key;
+
+    /**
+     * The pool that runs the batch tasks.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Number of blocks in one batch task.
+     */
+    private final int batchSize;
+
+    /**
+     * Number of plaintext bytes in a full block.
+     */
+    private final int plaintextBytes;
+
+    /**
+     * Number of bytes in a ciphertext block.
+     */
+    private final int ciphertextBytes;
+
+    /**
+     * Constructs a pipeline for {@code key} that runs on the common pool with
+     * the default batch size.
+     *
+     * @param key
+     *            the key pair
+     */
+    public RsaPipeline(RsaKeyPair key) {
+        this(key, ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a pipeline for {@code key} that runs on {@code pool} with
+     * {@code batchSize} blocks per task.
+     *
+     * @param key
+     *            the key pair
+     * @param pool
+     *            the pool that runs the batch tasks
+     * @param batchSize
+     *            number of blocks in one batch task
+     * @requires batchSize > 0
+     */
+    public RsaPipeline(RsaKeyPair key, ForkJoinPool pool, int batchSize) {
+        assert key != null : "Violation of: key is not null";
+        assert pool != null : "Violation of: pool is not null";
+        assert batchSize > 0 : "Violation of: batchSize > 0";
+
+        this.key = key;
+        this.pool = pool;
+        this.batchSize = batchSize;
+        /*
+         * The marker byte plus a full chunk is at most 2^(bitLength - 1) - 1,
+         * which is less than n
+         */
+        this.plaintextBytes = (key.bitLength() - 1) / Byte.SIZE - 1;
+        this.ciphertextBytes = (key.bitLength() + Byte.SIZE - 1) / Byte.SIZE;
+    }
+
+    /**
+     * Reports the number of plaintext bytes in a full block.
+     *
+     * @return number of plaintext bytes in a full block
+     */
+    public int plaintextBlockBytes() {
+        return this.plaintextBytes;
+    }
+
+    /**
+     * Reports the number of bytes in a ciphertext block.
+     *
+     * @return number of bytes in a ciphertext block
+     */
+    public int ciphertextBlockBytes() {
+        return this.ciphertextBytes;
+    }
+
+    /**
+     * Encrypts every block in {@code messages}.
+     *
+     * @param messages
+     *            the plaintext blocks
+     * @return the ciphertext blocks, in the same order
+     * @requires [every entry of messages < n]
+     * @ensures <pre>
+     * |encryptAll| = |messages|  and
+     * [encryptAll[i] = messages[i] ^ (e) mod n]
+     * </pre>
+     */
+    public NaturalNumber[] encryptAll(NaturalNumber[] messages) {
+        assert messages != null : "Violation of: messages is not null";
+
+        return this.processAll(messages, false);
+    }
+
+    /**
+     * Decrypts every block in {@code ciphertexts}.
+     *
+     * @param ciphertexts
+     *            the ciphertext blocks
+     * @return the plaintext blocks, in the same order
+     * @requires [every entry of ciphertexts < n]
+     * @ensures <pre>
+     * |decryptAll| = |ciphertexts|  and
+     * [decryptAll[i] = ciphertexts[i] ^ (d) mod n]
+     * </pre>
+     */
+    public NaturalNumber[] decryptAll(NaturalNumber[] ciphertexts) {
+        assert ciphertexts != null : "Violation of: ciphertexts is not null";
+
+        return this.processAll(ciphertexts, true);
+    }
+
+    /**
+     * Encrypts or decrypts every block in {@code blocks}.
+     *
+     * @param blocks
+     *            the input blocks
+     * @param decrypt
+     *            true to decrypt, false to encrypt
+     * @return the output blocks, in the same order
+     */
+    private NaturalNumber[] processAll(NaturalNumber[] blocks, boolean decrypt) {
+        int[][] input = new int[blocks.length][];
+        for (int i = 0; i < blocks.length; i++) {
+            input[i] = Limbs.fromNaturalNumber(blocks[i]);
+        }
+        int[][] output = this.process(input, input.length, decrypt);
+        NaturalNumber[] result = new NaturalNumber[output.length];
+        for (int i = 0; i < output.length; i++) {
+            NaturalNumberBinary block = new NaturalNumberBinary();
+            block.setFromLimbs(output[i]);
+            result[i] = block;
+        }
+        return result;
+    }
+
+    /**
+     * Encrypts everything readable from {@code in} and writes the ciphertext
+     * blocks to {@code out}.
+     *
+     * @param in
+     *            the plaintext
+     * @param out
+     *            the ciphertext
+     * @throws IOException
+     *             if reading or writing fails
+     * @ensures <pre>
+     * [out has had the ciphertext blocks of the bytes read from in appended]
+     * </pre>
+     */
+    public void encrypt(InputStream in, OutputStream out) throws IOException {
+        assert in != null : "Violation of: in is not null";
+        assert out != null : "Violation of: out is not null";
+
+        int groupBlocks = this.groupBlocks();
+        byte[] buffer = new byte[groupBlocks * this.plaintextBytes];
+        int[][] blocks = new int[groupBlocks][];
+        byte[] encoded = new byte[groupBlocks * this.ciphertextBytes];
+        int read = readFully(in, buffer);
+        while (read > 0) {
+            int count = 0;
+            for (int offset = 0; offset < read; offset += this.plaintextBytes) {
+                blocks[count] = fromBytes(buffer, offset,
+                        Math.min(this.plaintextBytes, read - offset), true);
+                count++;
+            }
+            int[][] ciphertext = this.process(blocks, count, false);
+            for (int i = 0; i < count; i++) {
+                toBytes(ciphertext[i], encoded, i * this.ciphertextBytes,
+                        this.ciphertextBytes);
+            }
+            out.write(encoded, 0, count * this.ciphertextBytes);
+            read = readFully(in, buffer);
+        }
+    }
+
+    /**
+     * Decrypts the ciphertext blocks readable from {@code in} and writes the
+     * plaintext to {@code out}.
+     *
+     * @param in
+     *            the ciphertext, as written by {@code encrypt}
+     * @param out
+     *            the plaintext
+     * @throws IOException
+     *             if reading or writing fails, or if {@code in} does not hold
+     *             ciphertext blocks produced with this key
+     * @ensures [out has had the plaintext of the blocks read from in appended]
+     */
+    public void decrypt(InputStream in, OutputStream out) throws IOException {
+        assert in != null : "Violation of: in is not null";
+        assert out != null : "Violation of: out is not null";
+
+        int groupBlocks = this.groupBlocks();
+        byte[] buffer = new byte[groupBlocks * this.ciphertextBytes];
+        int[][] blocks = new int[groupBlocks][];
+        byte[] decoded = new byte[groupBlocks * (this.ciphertextBytes + 1)];
+        int[] modulus = Limbs.fromNaturalNumber(this.key.modulus());
+        int read = readFully(in, buffer);
+        while (read > 0) {
+            if (read % this.ciphertextBytes != 0) {
+                throw new IOException("Truncated ciphertext block");
+            }
+            int count = read / this.ciphertextBytes;
+            for (int i = 0; i < count; i++) {
+                blocks[i] = fromBytes(buffer, i * this.ciphertextBytes,
+                        this.ciphertextBytes, false);
+                if (Limbs.compare(blocks[i], modulus) >= 0) {
+                    throw new IOException("Ciphertext block is not less than the modulus");
+                }
+            }
+            int[][] plaintext = this.process(blocks, count, true);
+            int length = 0;
+            for (int i = 0; i < count; i++) {
+                length += unmarkedBytes(plaintext[i], decoded, length);
+            }
+            out.write(decoded, 0, length);
+            read = readFully(in, buffer);
+        }
+    }
+
+    /**
+     * Returns the number of blocks read from a stream at a time: enough for
+     * four batches per worker thread.
+     *
+     * @return number of blocks read at a time
+     */
+    private int groupBlocks() {
+        final int batchesPerThread = 4;
+        return this.batchSize * batchesPerThread * this.pool.getParallelism();
+    }
+
+    /**
+     * Encrypts or decrypts {@code blocks[0, count)}, one task per batch.
+     *
+     * @param blocks
+     *            limbs of the input blocks
+     * @param count
+     *            number of blocks to process
+     * @param decrypt
+     *            true to decrypt, false to encrypt
+     * @return limbs of the output blocks, in the same order
+     * @requires count <= |blocks|
+     */
+    private int[][] process(int[][] blocks, int count, boolean decrypt) {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        int[][] result = new int[count][];
+        for (int start = 0; start < count; start += this.batchSize) {
+            int from = start;
+            int to = Math.min(count, start + this.batchSize);
+            tasks.add(() -> {
+                RsaKeyPair.Engine engine = this.key.newEngine();
+                for (int i = from; i < to; i++) {
+                    if (decrypt) {
+                        result[i] = engine.decrypt(blocks[i]);
+                    } else {
+                        result[i] = engine.encrypt(blocks[i]);
+                    }
+                }
+                return null;
+            });
+        }
+        for (Future<Void> done : this.pool.invokeAll(tasks)) {
+            join(done);
+        }
+        return result;
+    }
+
+    /**
+     * Waits for a completed batch task and reports any failure.
+     *
+     * @param done
+     *            the task's future
+     */
+    private static void join(Future<Void> done) {
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing blocks", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Block processing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Reads from {@code in} until {@code buffer} is full or the stream ends.
+     *
+     * @param in
+     *            the stream
+     * @param buffer
+     *            the buffer
+     * @return number of bytes read (less than |buffer| only at end of stream)
+     * @throws IOException
+     *             if reading fails
+     */
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        int read = 0;
+        while (length < buffer.length && read >= 0) {
+            read = in.read(buffer, length, buffer.length - length);
+            if (read > 0) {
+                length += read;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns the limbs of the big-endian number in
+     * {@code bytes[offset, offset + length)}, optionally preceded by a 0x01
+     * marker byte.
+     *
+     * @param bytes
+     *            the bytes
+     * @param offset
+     *            index of the most significant byte
+     * @param length
+     *            number of bytes
+     * @param marked
+     *            whether to put a 0x01 byte in front
+     * @return limbs of the number, with no leading zero limbs
+     */
+    private static int[] fromBytes(byte[] bytes, int offset, int length,
+            boolean marked) {
+        int total = length;
+        if (marked) {
+            total++;
+        }
+        int[] result = new int[(total + Integer.BYTES - 1) / Integer.BYTES];
+        for (int i = 0; i < length; i++) {
+            int position = length - 1 - i;
+            result[position / Integer.BYTES] |= (bytes[offset + i] & 0xFF) << (Byte.SIZE
+                    * (position % Integer.BYTES));
+        }
+        if (marked) {
+            result[length / Integer.BYTES] |= 1 << (Byte.SIZE * (length % Integer.BYTES));
+        }
+        return Limbs.trim(result);
+    }
+
+    /**
+     * Writes {@code a} big-endian into {@code bytes[offset, offset + length)}.
+     *
+     * @param a
+     *            limbs of the number
+     * @param bytes
+     *            the destination
+     * @param offset
+     *            index for the most significant byte
+     * @param length
+     *            number of bytes to write
+     * @requires a < 2^(8 * length)
+     */
+    private static void toBytes(int[] a, byte[] bytes, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            int position = length - 1 - i;
+            int limb = position / Integer.BYTES;
+            int value = 0;
+            if (limb < a.length) {
+                value = a[limb] >>> (Byte.SIZE * (position % Integer.BYTES));
+            }
+            bytes[offset + i] = (byte) value;
+        }
+    }
+
+    /**
+     * Writes the bytes of a decrypted block, without its 0x01 marker byte,
+     * into {@code bytes} starting at {@code offset}.
+     *
+     * @param a
+     *            limbs of the decrypted block
+     * @param bytes
+     *            the destination
+     * @param offset
+     *            index for the first byte
+     * @return number of bytes written
+     * @throws IOException
+     *             if the block does not start with a marker byte
+     */
+    private static int unmarkedBytes(int[] a, byte[] bytes, int offset)
+            throws IOException {
+        int bits = Limbs.bitLength(a);
+        if (bits % Byte.SIZE != 1) {
+            throw new IOException("Ciphertext was not produced with this key");
+        }
+        int length = bits / Byte.SIZE;
+        toBytes(a, bytes, offset, length);
+        return length;
+    }
+
+}
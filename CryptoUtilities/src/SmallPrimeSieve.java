@@ -0,0 +1,150 @@
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * Incremental sieve over a candidate c that tracks c mod p for every odd prime
+ * p below {@code LIMIT}. Stepping the candidate only adds to these residues,
+ * so candidates with a small factor can be skipped without touching the
+ * (possibly huge) candidate itself.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class SmallPrimeSieve {
+
+    /**
+     * Number of bits in the largest sieving prime.
+     */
+    private static final int LIMIT_BITS = 15;
+
+    /**
+     * Exclusive upper bound on the sieving primes.
+     */
+    public static final int LIMIT = 1 << LIMIT_BITS;
+
+    /**
+     * Odd primes below LIMIT, in increasing order.
+     */
+    private static final int[] PRIMES = oddPrimesBelow(LIMIT);
+
+    /**
+     * residues[i] = c mod PRIMES[i].
+     */
+    private final int[] residues;
+
+    /**
+     * The value of c while it is below LIMIT, or -1 once it is not; needed
+     * because a small c that is itself a sieving prime has residue 0 there.
+     */
+    private int smallValue;
+
+    /**
+     * Returns the odd primes below {@code bound}, via the sieve of
+     * Eratosthenes.
+     *
+     * @param bound
+     *            exclusive upper bound
+     * @return odd primes below bound, in increasing order
+     * @requires bound > 2
+     */
+    private static int[] oddPrimesBelow(int bound) {
+        boolean[] composite = new boolean[bound];
+        int count = 0;
+        for (int i = 3; i < bound; i += 2) {
+            if (!composite[i]) {
+                count++;
+                for (long j = (long) i * i; j < bound; j += 2 * i) {
+                    composite[(int) j] = true;
+                }
+            }
+        }
+        int[] primes = new int[count];
+        int next = 0;
+        for (int i = 3; i < bound; i += 2) {
+            if (!composite[i]) {
+                primes[next] = i;
+                next++;
+            }
+        }
+        return primes;
+    }
+
+    /**
+     * Constructs a sieve whose candidate is {@code n}.
+     *
+     * @param n
+     *            the initial candidate
+     * @ensures this.candidate = n
+     */
+    public SmallPrimeSieve(NaturalNumber n) {
+        this(Limbs.fromNaturalNumber(n));
+    }
+
+    /**
+     * Constructs a sieve whose candidate is the value of {@code limbs}.
+     *
+     * @param limbs
+     *            the initial candidate, as limbs
+     * @ensures this.candidate = [value of limbs]
+     */
+    SmallPrimeSieve(int[] limbs) {
+        assert limbs != null : "Violation of: limbs is not null";
+
+        this.residues = new int[PRIMES.length];
+        for (int i = 0; i < PRIMES.length; i++) {
+            long p = PRIMES[i];
+            long r = 0;
+            for (int j = limbs.length - 1; j >= 0; j--) {
+                r = ((r << Limbs.LIMB_BITS) | (limbs[j] & Limbs.MASK)) % p;
+            }
+            this.residues[i] = (int) r;
+        }
+        this.smallValue = -1;
+        if (Limbs.significantLength(limbs) == 0) {
+            this.smallValue = 0;
+        } else if (Limbs.bitLength(limbs) <= LIMIT_BITS) {
+            this.smallValue = limbs[0];
+        }
+    }
+
+    /**
+     * Adds {@code delta} to the candidate.
+     *
+     * @param delta
+     *            amount to add
+     * @requires 0 <= delta < 3
+     * @ensures this.candidate = #this.candidate + delta
+     */
+    public void advance(int delta) {
+        assert 0 <= delta && delta < PRIMES[0] : "Violation of: 0 <= delta < 3";
+
+        for (int i = 0; i < this.residues.length; i++) {
+            int r = this.residues[i] + delta;
+            if (r >= PRIMES[i]) {
+                r -= PRIMES[i];
+            }
+            this.residues[i] = r;
+        }
+        if (this.smallValue >= 0) {
+            this.smallValue += delta;
+            if (this.smallValue >= LIMIT) {
+                this.smallValue = -1;
+            }
+        }
+    }
+
+    /**
+     * Reports whether the candidate has an odd prime factor below LIMIT other
+     * than itself.
+     *
+     * @return true iff the candidate is divisible by some odd prime p < LIMIT
+     *         with p /= candidate
+     */
+    public boolean hasSmallFactor() {
+        boolean found = false;
+        for (int i = 0; i < this.residues.length && !found; i++) {
+            found = (this.residues[i] == 0 && PRIMES[i] != this.smallValue);
+        }
+        return found;
+    }
+
+}
@@ -0,0 +1,91 @@
+import java.util.SplittableRandom;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * Generator of uniformly distributed natural numbers in [0, n]. Draws whole
+ * 32-bit words from a {@code SplittableRandom}, masks the top word to the bit
+ * length of n, and rejects the draw as a whole if it exceeds n; since n has
+ * the same bit length, fewer than two draws are needed on average.
+ *
+ * <p>
+ * Like {@code SplittableRandom}, a single instance must not be used by more
+ * than one thread at a time.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class UniformRandom {
+
+    /**
+     * Source of random words.
+     */
+    private final SplittableRandom source;
+
+    /**
+     * Constructs a generator with an unpredictable seed.
+     */
+    public UniformRandom() {
+        this.source = new SplittableRandom();
+    }
+
+    /**
+     * Constructs a generator whose output is determined by {@code seed}.
+     *
+     * @param seed
+     *            the seed
+     */
+    public UniformRandom(long seed) {
+        this.source = new SplittableRandom(seed);
+    }
+
+    /**
+     * Returns a random number uniformly distributed in the interval [0, n].
+     *
+     * @param n
+     *            top end of interval
+     * @return random number in interval, of the same implementation as n
+     * @requires n > 0
+     * @ensures <pre>
+     * next = [a random number uniformly distributed in [0, n]]
+     * </pre>
+     */
+    public NaturalNumber next(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        assert !n.isZero() : "Violation of: n > 0";
+
+        NaturalNumber result = n.newInstance();
+        Limbs.toNaturalNumber(nextAtMost(Limbs.fromNaturalNumber(n), this.source),
+                result);
+        return result;
+    }
+
+    /**
+     * Returns a number uniformly distributed in [0, n], drawn from
+     * {@code random}.
+     *
+     * @param n
+     *            limbs of the top end of the interval
+     * @param random
+     *            source of random words
+     * @return limbs of the number, as many as n has significant limbs
+     * @requires n > 0
+     */
+    static int[] nextAtMost(int[] n, SplittableRandom random) {
+        int length = Limbs.significantLength(n);
+        assert length > 0 : "Violation of: n > 0";
+
+        int topMask = -1 >>> Integer.numberOfLeadingZeros(n[length - 1]);
+        int[] result = new int[length];
+        boolean accepted = false;
+        while (!accepted) {
+            for (int i = 0; i < length; i++) {
+                result[i] = random.nextInt();
+            }
+            result[length - 1] &= topMask;
+            accepted = Limbs.compare(result, n) <= 0;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,174 @@
+import java.util.function.Supplier;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * Checks witness candidates against one fixed odd n, using the same criterion
+ * as {@code CryptoUtilities.isWitnessToCompositeness}, and keeps count of the
+ * work done. Everything that depends only on n is held in a
+ * {@code PrimalityContext}, so each candidate costs one modular
+ * exponentiation by d plus s squarings.
+ *
+ * <p>
+ * An engine uses its context's scratch buffers, so a single instance must not
+ * be used by more than one thread at a time.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class WitnessEngine {
+
+    /**
+     * Running totals for one or more witness searches.
+     */
+    public static final class Statistics {
+
+        /**
+         * Number of candidates checked.
+         */
+        private int basesTried;
+
+        /**
+         * Time spent, in nanoseconds.
+         */
+        private long elapsedNanos;
+
+        /**
+         * Constructs statistics with all totals zero.
+         */
+        public Statistics() {
+            this.basesTried = 0;
+            this.elapsedNanos = 0;
+        }
+
+        /**
+         * Adds to the totals.
+         *
+         * @param bases
+         *            number of candidates checked
+         * @param nanos
+         *            time spent, in nanoseconds
+         */
+        void record(int bases, long nanos) {
+            this.basesTried += bases;
+            this.elapsedNanos += nanos;
+        }
+
+        /**
+         * Reports the number of candidates checked.
+         *
+         * @return number of candidates checked
+         */
+        public int basesTried() {
+            return this.basesTried;
+        }
+
+        /**
+         * Reports the time spent.
+         *
+         * @return time spent, in nanoseconds
+         */
+        public long elapsedNanos() {
+            return this.elapsedNanos;
+        }
+
+        /**
+         * Resets all totals to zero.
+         */
+        public void clear() {
+            this.basesTried = 0;
+            this.elapsedNanos = 0;
+        }
+
+        @Override
+        public String toString() {
+            return "bases tried = " + this.basesTried + ", time = "
+                    + this.elapsedNanos + " ns";
+        }
+
+    }
+
+    /**
+     * Values worked out once for n.
+     */
+    private final PrimalityContext context;
+
+    /**
+     * Constructs an engine for {@code n}.
+     *
+     * @param n
+     *            number being checked
+     * @requires n > 3 and n is odd
+     */
+    public WitnessEngine(NaturalNumber n) {
+        this(new PrimalityContext(n));
+    }
+
+    /**
+     * Constructs an engine that checks candidates against the number of
+     * {@code context}.
+     *
+     * @param context
+     *            values worked out once for the number being checked
+     */
+    public WitnessEngine(PrimalityContext context) {
+        assert context != null : "Violation of: context is not null";
+
+        this.context = context;
+    }
+
+    /**
+     * Reports whether w is a "witness" that n is composite, in the sense that
+     * either it is a square root of 1 (mod n), or it fails to satisfy the
+     * criterion for primality from Fermat's theorem.
+     *
+     * @param w
+     *            witness candidate
+     * @return true iff w is a "witness" that n is composite
+     * @requires 1 < w < n - 1
+     * @ensures <pre>
+     * isWitness =
+     *     (w ^ 2 mod n = 1)  or  (w ^ (n-1) mod n /= 1)
+     * </pre>
+     */
+    public boolean isWitness(NaturalNumber w) {
+        return this.context.isWitness(w);
+    }
+
+    /**
+     * Checks witness candidates produced by {@code candidates} until one is a
+     * witness that n is composite or {@code limit} have been checked,
+     * recording the work done in {@code stats}.
+     *
+     * @param candidates
+     *            source of witness candidates, each in (1, n - 1)
+     * @param limit
+     *            maximum number of candidates to check
+     * @param stats
+     *            totals to add this search to
+     * @return true iff a witness was found
+     * @updates stats
+     * @requires limit >= 0
+     * @ensures <pre>
+     * findWitness = [one of the first limit candidates is a witness]  and
+     * stats.basesTried = #stats.basesTried +
+     *     [number of candidates checked]
+     * </pre>
+     */
+    public boolean findWitness(Supplier<NaturalNumber> candidates,
+            int limit, Statistics stats) {
+        assert candidates != null : "Violation of: candidates is not null";
+        assert stats != null : "Violation of: stats is not null";
+
+        long start = System.nanoTime();
+        boolean found = false;
+        int tried = 0;
+        while (tried < limit && !found) {
+            found = this.isWitness(candidates.get());
+            tried++;
+        }
+        stats.record(tried, System.nanoTime() - start);
+        return found;
+    }
+
+}
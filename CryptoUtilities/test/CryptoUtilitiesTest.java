@@ -1,4 +1,5 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -49,6 +50,56 @@ public class CryptoUtilitiesTest {
         assertEquals(mExpected, m);
     }
 
+    @Test
+    public void testReduceToGCD_Large() {
+        // (2^89 - 1) * 2^40 * 3 and (2^89 - 1) * 2^35 * 7
+        NaturalNumber n = new NaturalNumber2("2041694201525630780780247641292074385408");
+        NaturalNumber nExpected = new NaturalNumber2("21267647932558653966460912930125774848");
+        NaturalNumber m = new NaturalNumber2("148873535527910577765226390510880423936");
+        NaturalNumber mExpected = new NaturalNumber2(0);
+        CryptoUtilities.reduceToGCD(n, m);
+        assertEquals(nExpected, n);
+        assertEquals(mExpected, m);
+    }
+
+    /*
+     * Tests of modInverse
+     */
+
+    @Test
+    public void testModInverse_17_3120() {
+        NaturalNumber a = new NaturalNumber2(17);
+        NaturalNumber aExpected = new NaturalNumber2(17);
+        NaturalNumber m = new NaturalNumber2(3120);
+        NaturalNumber mExpected = new NaturalNumber2(3120);
+        NaturalNumber resultExpected = new NaturalNumber2(2753);
+        NaturalNumber result = CryptoUtilities.modInverse(a, m);
+        assertEquals(aExpected, a);
+        assertEquals(mExpected, m);
+        assertEquals(resultExpected, result);
+    }
+
+    @Test
+    public void testModInverse_1_2() {
+        NaturalNumber a = new NaturalNumber2(1);
+        NaturalNumber m = new NaturalNumber2(2);
+        NaturalNumber resultExpected = new NaturalNumber2(1);
+        NaturalNumber result = CryptoUtilities.modInverse(a, m);
+        assertEquals(resultExpected, result);
+    }
+
+    @Test
+    public void testModInverse_AboveOddModulus() {
+        NaturalNumber a = new NaturalNumber2("98765432109876543210987654321");
+        NaturalNumber m = new NaturalNumber2("523347633027360537213687137");
+        NaturalNumber result = CryptoUtilities.modInverse(a, m);
+        NaturalNumber product = new NaturalNumber2(a);
+        product.multiply(result);
+        NaturalNumber remainder = product.divide(m);
+        assertEquals(new NaturalNumber2(1), remainder);
+        assertTrue(result.compareTo(m) < 0);
+    }
+
     /*
      * Tests of isEven
      */
@@ -128,6 +179,85 @@ public class CryptoUtilitiesTest {
         assertEquals(mExpected, m);
     }
 
+    /*
+     * Tests of powerMod with a MontgomeryContext
+     */
+
+    @Test
+    public void testPowerModContext_0_0_3() {
+        NaturalNumber n = new NaturalNumber2(0);
+        NaturalNumber nExpected = new NaturalNumber2(1);
+        NaturalNumber p = new NaturalNumber2(0);
+        NaturalNumber pExpected = new NaturalNumber2(0);
+        MontgomeryContext m = new MontgomeryContext(new NaturalNumber2(3));
+        CryptoUtilities.powerMod(n, p, m);
+        assertEquals(nExpected, n);
+        assertEquals(pExpected, p);
+    }
+
+    @Test
+    public void testPowerModContext_174_55_221() {
+        NaturalNumber n = new NaturalNumber2(174);
+        NaturalNumber nExpected = new NaturalNumber2(47);
+        NaturalNumber p = new NaturalNumber2(55);
+        NaturalNumber pExpected = new NaturalNumber2(55);
+        MontgomeryContext m = new MontgomeryContext(new NaturalNumber2(221));
+        CryptoUtilities.powerMod(n, p, m);
+        assertEquals(nExpected, n);
+        assertEquals(pExpected, p);
+    }
+
+    @Test
+    public void testPowerModContext_LargeBaseAboveModulus() {
+        NaturalNumber n = new NaturalNumber2("98765432109876543210987654321");
+        NaturalNumber p = new NaturalNumber2("12345678901234567890123");
+        NaturalNumber m = new NaturalNumber2("523347633027360537213687137");
+        NaturalNumber nExpected = new NaturalNumber2(n);
+        CryptoUtilities.powerMod(nExpected, p, m);
+        CryptoUtilities.powerMod(n, p, new MontgomeryContext(m));
+        assertEquals(nExpected, n);
+    }
+
+    @Test
+    public void testPowerModConstantTime_0_0_3() {
+        NaturalNumber n = new NaturalNumber2(0);
+        NaturalNumber nExpected = new NaturalNumber2(1);
+        NaturalNumber p = new NaturalNumber2(0);
+        NaturalNumber pExpected = new NaturalNumber2(0);
+        NaturalNumber m = new NaturalNumber2(3);
+        NaturalNumber mExpected = new NaturalNumber2(3);
+        CryptoUtilities.powerModConstantTime(n, p, m);
+        assertEquals(nExpected, n);
+        assertEquals(pExpected, p);
+        assertEquals(mExpected, m);
+    }
+
+    @Test
+    public void testPowerModConstantTime_174_55_221() {
+        NaturalNumber n = new NaturalNumber2(174);
+        NaturalNumber nExpected = new NaturalNumber2(47);
+        NaturalNumber p = new NaturalNumber2(55);
+        NaturalNumber pExpected = new NaturalNumber2(55);
+        NaturalNumber m = new NaturalNumber2(221);
+        NaturalNumber mExpected = new NaturalNumber2(221);
+        CryptoUtilities.powerModConstantTime(n, p, m);
+        assertEquals(nExpected, n);
+        assertEquals(pExpected, p);
+        assertEquals(mExpected, m);
+    }
+
+    @Test
+    public void testPowerModConstantTime_ExponentLongerThanModulus() {
+        NaturalNumber n = new NaturalNumber2("98765432109876543210987654321");
+        NaturalNumber p = new NaturalNumber2(
+                "340282366920938463463374607431768211457123456789");
+        NaturalNumber m = new NaturalNumber2("523347633027360537213687137");
+        NaturalNumber nExpected = new NaturalNumber2(n);
+        CryptoUtilities.powerMod(nExpected, p, m);
+        CryptoUtilities.powerModConstantTime(n, p, m);
+        assertEquals(nExpected, n);
+    }
+
     // added tests for isWitnessToCompositeness
     /*
      * Tests of isWitnessToCompositeness
@@ -164,8 +294,43 @@ public class CryptoUtilitiesTest {
      */
     @Test
     public void testIsPrime1_340561() {
+        /*
+         * 340561 is a Carmichael number that fools base 2, but it fits in a
+         * long and so is tested exactly
+         */
         NaturalNumber n = new NaturalNumber2(340561);
         NaturalNumber nExpected = new NaturalNumber2(n);
+        boolean resultExpected = false;
+        boolean result = CryptoUtilities.isPrime1(n);
+        assertEquals(nExpected, n);
+        assertEquals(resultExpected, result);
+    }
+
+    @Test
+    public void testIsPrime1_2() {
+        NaturalNumber n = new NaturalNumber2(2);
+        NaturalNumber nExpected = new NaturalNumber2(n);
+        boolean resultExpected = true;
+        boolean result = CryptoUtilities.isPrime1(n);
+        assertEquals(nExpected, n);
+        assertEquals(resultExpected, result);
+    }
+
+    @Test
+    public void testIsPrime1_LongMax() {
+        // 2^63 - 1 = 7^2 * 73 * 127 * 337 * 92737 * 649657
+        NaturalNumber n = new NaturalNumber2("9223372036854775807");
+        NaturalNumber nExpected = new NaturalNumber2(n);
+        boolean resultExpected = false;
+        boolean result = CryptoUtilities.isPrime1(n);
+        assertEquals(nExpected, n);
+        assertEquals(resultExpected, result);
+    }
+
+    @Test
+    public void testIsPrime1_LargestPrimeBelow2To63() {
+        NaturalNumber n = new NaturalNumber2("9223372036854775783");
+        NaturalNumber nExpected = new NaturalNumber2(n);
         boolean resultExpected = true;
         boolean result = CryptoUtilities.isPrime1(n);
         assertEquals(nExpected, n);
@@ -207,6 +372,68 @@ public class CryptoUtilitiesTest {
         assertEquals(resultExpected, result);
     }
 
+    @Test
+    public void testIsPrime2Stats_Leyland() {
+        NaturalNumber n = new NaturalNumber2("523347633027360537213687137");
+        NaturalNumber nExpected = new NaturalNumber2(n);
+        WitnessEngine.Statistics stats = new WitnessEngine.Statistics();
+        boolean resultExpected = true;
+        boolean result = CryptoUtilities.isPrime2(n, stats);
+        assertEquals(nExpected, n);
+        assertEquals(resultExpected, result);
+        assertEquals(50, stats.basesTried());
+    }
+
+    @Test
+    public void testIsPrime2Stats_Composite() {
+        // 523347633027360537213687137 * 3
+        NaturalNumber n = new NaturalNumber2("1570042899082081611641061411");
+        NaturalNumber nExpected = new NaturalNumber2(n);
+        WitnessEngine.Statistics stats = new WitnessEngine.Statistics();
+        boolean resultExpected = false;
+        boolean result = CryptoUtilities.isPrime2(n, stats);
+        assertEquals(nExpected, n);
+        assertEquals(resultExpected, result);
+        assertTrue(stats.basesTried() >= 1 && stats.basesTried() < 50);
+    }
+
+    /*
+     * Tests of generateNextLikelyPrime
+     */
+
+    @Test
+    public void testGenerateNextLikelyPrime_17() {
+        NaturalNumber n = new NaturalNumber2(17);
+        NaturalNumber nExpected = new NaturalNumber2(17);
+        CryptoUtilities.generateNextLikelyPrime(n);
+        assertEquals(nExpected, n);
+    }
+
+    @Test
+    public void testGenerateNextLikelyPrime_1000() {
+        NaturalNumber n = new NaturalNumber2(1000);
+        NaturalNumber nExpected = new NaturalNumber2(1009);
+        CryptoUtilities.generateNextLikelyPrime(n);
+        assertEquals(nExpected, n);
+    }
+
+    @Test
+    public void testGenerateNextLikelyPrime_32760() {
+        // crosses the largest sieving prime
+        NaturalNumber n = new NaturalNumber2(32760);
+        NaturalNumber nExpected = new NaturalNumber2(32771);
+        CryptoUtilities.generateNextLikelyPrime(n);
+        assertEquals(nExpected, n);
+    }
+
+    @Test
+    public void testGenerateNextLikelyPrime_Large() {
+        NaturalNumber n = new NaturalNumber2("6553130926752006031481762");
+        NaturalNumber nExpected = new NaturalNumber2("6553130926752006031481777");
+        CryptoUtilities.generateNextLikelyPrime(n);
+        assertEquals(nExpected, n);
+    }
+
     // added tests for isPrime3
     /*
      * Tests of isPrime3
@@ -223,6 +450,18 @@ public class CryptoUtilitiesTest {
         assertEquals(resultExpected, result);
     }
 
+    @Test
+    public void testIsPrime3_StrongPseudoprime_3() {
+        // strong pseudoprime to bases 2 through 31 (but not 37)
+        NaturalNumber n = new NaturalNumber2("3825123056546413051");
+        NaturalNumber nExpected = new NaturalNumber2(n);
+        int k = 3;
+        boolean resultExpected = false;
+        boolean result = CryptoUtilities.isPrime3(n, k);
+        assertEquals(nExpected, n);
+        assertEquals(resultExpected, result);
+    }
+
     @Test
     public void testIsPrime3_Carmichael_40() {
         String largeCarmichael = "6553130926752006031481761";
@@ -247,4 +486,49 @@ public class CryptoUtilitiesTest {
         assertEquals(resultExpected, result);
     }
 
+    @Test
+    public void testIsPrime4_Leyland() {
+        NaturalNumber n = new NaturalNumber2("523347633027360537213687137");
+        NaturalNumber nExpected = new NaturalNumber2(n);
+        boolean resultExpected = true;
+        boolean result = CryptoUtilities.isPrime4(n);
+        assertEquals(nExpected, n);
+        assertEquals(resultExpected, result);
+    }
+
+    @Test
+    public void testIsPrime4_Carmichael() {
+        NaturalNumber n = new NaturalNumber2("6553130926752006031481761");
+        NaturalNumber nExpected = new NaturalNumber2(n);
+        boolean resultExpected = false;
+        boolean result = CryptoUtilities.isPrime4(n);
+        assertEquals(nExpected, n);
+        assertEquals(resultExpected, result);
+    }
+
+    @Test
+    public void testIsPrime4_StrongPseudoprimeBase2() {
+        /*
+         * 295147989609825968701 = 8589935821 * 34359743281 passes the base-2
+         * Miller-Rabin test, but not the Lucas test
+         */
+        NaturalNumber n = new NaturalNumber2("295147989609825968701");
+        NaturalNumber nExpected = new NaturalNumber2(n);
+        boolean resultExpected = false;
+        boolean result = CryptoUtilities.isPrime4(n);
+        assertEquals(nExpected, n);
+        assertEquals(resultExpected, result);
+    }
+
+    @Test
+    public void testIsPrime4_SquareOfPrime() {
+        NaturalNumber n = new NaturalNumber2("170141183460469231731687303715884105727");
+        n.multiply(new NaturalNumber2(n));
+        NaturalNumber nExpected = new NaturalNumber2(n);
+        boolean resultExpected = false;
+        boolean result = CryptoUtilities.isPrime4(n);
+        assertEquals(nExpected, n);
+        assertEquals(resultExpected, result);
+    }
+
 }
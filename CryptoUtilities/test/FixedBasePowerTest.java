@@ -0,0 +1,108 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber2;
+
+/**
+ * @author Chris Ma
+ *
+ */
+public class FixedBasePowerTest {
+
+    /**
+     * An odd modulus spanning several limbs.
+     */
+    private static final String MODULUS = "340282366920938463463374607431768211507";
+
+    /**
+     * A base spanning several limbs.
+     */
+    private static final String BASE = "98765432109876543210987654321";
+
+    /**
+     * Returns base ^ (p) mod m by CryptoUtilities.powerMod.
+     *
+     * @param base
+     *            the base
+     * @param p
+     *            the power
+     * @param m
+     *            the modulus
+     * @return base ^ (p) mod m
+     */
+    private static NaturalNumber expected(String base, String p, String m) {
+        NaturalNumber n = new NaturalNumber2(base);
+        CryptoUtilities.powerMod(n, new NaturalNumber2(p), new NaturalNumber2(m));
+        return n;
+    }
+
+    @Test
+    public void testPower_AllWidths() {
+        String p = "170141183460469231731687303715884105727";
+        NaturalNumber nExpected = expected(BASE, p, MODULUS);
+        for (int width = 1; width <= FixedBasePower.MAX_WIDTH; width++) {
+            FixedBasePower power = new FixedBasePower(new NaturalNumber2(BASE),
+                    new NaturalNumber2(MODULUS), 128, width);
+            NaturalNumber n = new NaturalNumber2();
+            power.power(new NaturalNumber2(p), n);
+            assertEquals(nExpected, n);
+        }
+    }
+
+    @Test
+    public void testPower_ManyExponents() {
+        FixedBasePower power = new FixedBasePower(new NaturalNumber2(BASE),
+                new NaturalNumber2(MODULUS), 128);
+        NaturalNumber p = new NaturalNumber2(1);
+        for (int i = 0; i < 40; i++) {
+            p.multiply(new NaturalNumber2(9));
+            p.increment();
+            NaturalNumber n = new NaturalNumberBinary(5);
+            power.power(p, n);
+            assertEquals(expected(BASE, p.toString(), MODULUS), n);
+        }
+    }
+
+    @Test
+    public void testPower_Zero() {
+        FixedBasePower power = new FixedBasePower(new NaturalNumber2(BASE),
+                new NaturalNumber2(MODULUS), 64);
+        NaturalNumber n = new NaturalNumber2(5);
+        power.power(new NaturalNumber2(0), n);
+        assertEquals(new NaturalNumber2(1), n);
+    }
+
+    @Test
+    public void testPower_BaseAtLeastModulus() {
+        FixedBasePower power = new FixedBasePower(new NaturalNumber2(1000),
+                new NaturalNumber2(221), 16, 3);
+        NaturalNumber n = new NaturalNumber2();
+        power.power(new NaturalNumber2(55), n);
+        assertEquals(expected("1000", "55", "221"), n);
+    }
+
+    @Test
+    public void testPower_ExponentLongerThanTable() {
+        FixedBasePower power = new FixedBasePower(new NaturalNumber2(BASE),
+                new NaturalNumber2(MODULUS), 16);
+        String p = "18446744073709551629";
+        NaturalNumber n = new NaturalNumber2();
+        power.power(new NaturalNumber2(p), n);
+        assertEquals(expected(BASE, p, MODULUS), n);
+        assertEquals(16, power.exponentBits());
+    }
+
+    @Test
+    public void testWidthFor() {
+        assertEquals(4 * 255 * 32 * 4, FixedBasePower.tableBytes(1024, 32, 8));
+        assertEquals(FixedBasePower.MAX_WIDTH,
+                FixedBasePower.widthFor(1024, 32, 1L << 20));
+        int width = FixedBasePower.widthFor(2048, 2048, 1L << 20);
+        assertEquals(true, FixedBasePower.tableBytes(2048, 2048, width) <= 1L << 20);
+        assertEquals(true, FixedBasePower.tableBytes(2048, 2048, width + 1) > 1L << 20);
+        assertEquals(1, FixedBasePower.widthFor(2048, 2048, 0));
+    }
+
+}
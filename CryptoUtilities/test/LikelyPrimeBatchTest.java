@@ -0,0 +1,61 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber2;
+
+/**
+ * @author Chris Ma
+ *
+ */
+public class LikelyPrimeBatchTest {
+
+    @Test
+    public void testGenerate_0_64() {
+        NaturalNumber[] primes = LikelyPrimeBatch.generate(0, 64, 1L);
+        assertEquals(0, primes.length);
+    }
+
+    @Test
+    public void testGenerate_25_16() {
+        final int count = 25;
+        NaturalNumber low = new NaturalNumber2(1 << 15);
+        NaturalNumber high = new NaturalNumber2(1 << 16);
+        NaturalNumber[] primes = LikelyPrimeBatch.generate(count, 16, 7L);
+        assertEquals(count, primes.length);
+        for (int i = 0; i < primes.length; i++) {
+            assertTrue(primes[i].compareTo(low) >= 0);
+            assertTrue(primes[i].compareTo(high) < 0);
+            assertTrue(CryptoUtilities.isPrime1(primes[i]));
+            for (int j = 0; j < i; j++) {
+                assertTrue(!primes[i].equals(primes[j]));
+            }
+        }
+    }
+
+    @Test
+    public void testGenerate_SameSeedDifferentPools() {
+        final int count = 12;
+        final int bitLength = 128;
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool several = new ForkJoinPool(4);
+        try {
+            NaturalNumber[] one = LikelyPrimeBatch.generate(count, bitLength, 2221L,
+                    single);
+            NaturalNumber[] many = LikelyPrimeBatch.generate(count, bitLength, 2221L,
+                    several);
+            assertEquals(count, one.length);
+            for (int i = 0; i < count; i++) {
+                assertEquals(one[i], many[i]);
+            }
+        } finally {
+            single.shutdown();
+            several.shutdown();
+        }
+    }
+
+}
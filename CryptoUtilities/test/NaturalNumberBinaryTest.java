@@ -0,0 +1,276 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber2;
+
+/**
+ * @author Chris Ma
+ *
+ */
+public class NaturalNumberBinaryTest {
+
+    /**
+     * A number spanning several limbs.
+     */
+    private static final String BIG = "340282366920938463463374607431768211457";
+
+    /**
+     * Returns a number of exactly {@code length} limbs, with limbs from a
+     * fixed pseudo-random sequence that depends on {@code seed}.
+     *
+     * @param length
+     *            number of limbs
+     * @param seed
+     *            picks the sequence
+     * @return the number, as a NaturalNumber2
+     */
+    private static NaturalNumber limbs(int length, int seed) {
+        final NaturalNumber radix = new NaturalNumber2("4294967296");
+        NaturalNumber n = new NaturalNumber2(1);
+        int x = seed;
+        for (int i = 1; i < length; i++) {
+            /*
+             * Steps of a linear congruential generator, kept to 31 bits
+             */
+            x = x * 1103515245 + 12345;
+            n.multiply(radix);
+            n.add(new NaturalNumber2(x & Integer.MAX_VALUE));
+        }
+        return n;
+    }
+
+    /**
+     * Checks that NaturalNumberBinary computes a * b as NaturalNumber2 does.
+     *
+     * @param a
+     *            first factor
+     * @param b
+     *            second factor
+     */
+    private static void checkProduct(NaturalNumber a, NaturalNumber b) {
+        NaturalNumber n = new NaturalNumberBinary(a);
+        NaturalNumber m = new NaturalNumberBinary(b);
+        NaturalNumber nExpected = new NaturalNumber2(a);
+        nExpected.multiply(new NaturalNumber2(b));
+        n.multiply(m);
+        assertEquals(nExpected, n);
+        assertEquals(b, m);
+    }
+
+    /*
+     * Tests of kernel methods
+     */
+
+    @Test
+    public void testMultiplyBy10_0_7() {
+        NaturalNumber n = new NaturalNumberBinary(0);
+        NaturalNumber nExpected = new NaturalNumber2(7);
+        n.multiplyBy10(7);
+        assertEquals(nExpected, n);
+    }
+
+    @Test
+    public void testMultiplyBy10_Big() {
+        NaturalNumber n = new NaturalNumberBinary(BIG);
+        NaturalNumber nExpected = new NaturalNumber2(BIG + "3");
+        n.multiplyBy10(3);
+        assertEquals(nExpected, n);
+    }
+
+    @Test
+    public void testDivideBy10_Big() {
+        NaturalNumber n = new NaturalNumberBinary(BIG);
+        NaturalNumber nExpected = new NaturalNumber2(BIG.substring(0, BIG.length() - 1));
+        int digit = n.divideBy10();
+        assertEquals(nExpected, n);
+        assertEquals(7, digit);
+    }
+
+    @Test
+    public void testToString_Big() {
+        NaturalNumber n = new NaturalNumberBinary(BIG);
+        assertEquals(BIG, n.toString());
+    }
+
+    @Test
+    public void testToString_0() {
+        NaturalNumber n = new NaturalNumberBinary();
+        assertEquals("0", n.toString());
+    }
+
+    /*
+     * Tests of overridden secondary methods
+     */
+
+    @Test
+    public void testDecrement_2To32() {
+        NaturalNumber n = new NaturalNumberBinary("4294967296");
+        NaturalNumber nExpected = new NaturalNumber2("4294967295");
+        n.decrement();
+        assertEquals(nExpected, n);
+    }
+
+    @Test
+    public void testMultiply_Big_Big() {
+        NaturalNumber n = new NaturalNumberBinary(BIG);
+        NaturalNumber m = new NaturalNumberBinary(BIG);
+        NaturalNumber nExpected = new NaturalNumber2(BIG);
+        nExpected.multiply(new NaturalNumber2(BIG));
+        n.multiply(m);
+        assertEquals(nExpected, n);
+        assertEquals(new NaturalNumber2(BIG), m);
+    }
+
+    @Test
+    public void testMultiply_Huge_Huge() {
+        /*
+         * Thousands of digits, so the Karatsuba and Toom-3 paths are taken
+         */
+        String huge = "";
+        for (int i = 0; i < 60; i++) {
+            huge = huge + BIG;
+        }
+        NaturalNumber n = new NaturalNumberBinary(huge);
+        NaturalNumber m = new NaturalNumber2(huge + "12345");
+        NaturalNumber nExpected = new NaturalNumber2(huge);
+        nExpected.multiply(m);
+        n.multiply(m);
+        assertEquals(nExpected, n);
+    }
+
+    @Test
+    public void testMultiply_Huge_Square() {
+        /*
+         * About 243 limbs, so Karatsuba squaring is used
+         */
+        String huge = "";
+        for (int i = 0; i < 60; i++) {
+            huge = huge + BIG;
+        }
+        NaturalNumber n = new NaturalNumberBinary(huge);
+        NaturalNumber nExpected = new NaturalNumber2(huge);
+        nExpected.multiply(new NaturalNumber2(huge));
+        n.multiply(new NaturalNumberBinary(huge));
+        assertEquals(nExpected, n);
+    }
+
+    @Test
+    public void testMultiply_KaratsubaThreshold() {
+        for (int length = 47; length <= 49; length++) {
+            checkProduct(limbs(length, 1), limbs(length, 2));
+        }
+    }
+
+    @Test
+    public void testMultiply_Toom3Threshold() {
+        for (int length = 191; length <= 193; length++) {
+            checkProduct(limbs(length, 3), limbs(length, 4));
+        }
+    }
+
+    @Test
+    public void testMultiply_Unbalanced() {
+        /*
+         * 2 * shorter <= longer, so the longer factor is cut into pieces
+         */
+        checkProduct(limbs(48, 5), limbs(96, 6));
+        checkProduct(limbs(300, 7), limbs(100, 8));
+    }
+
+    @Test
+    public void testSquare_KaratsubaThreshold() {
+        for (int length = 79; length <= 81; length++) {
+            NaturalNumber a = limbs(length, 9);
+            checkProduct(a, new NaturalNumber2(a));
+        }
+    }
+
+    @Test
+    public void testSquare_Toom3Threshold() {
+        for (int length = 255; length <= 257; length++) {
+            NaturalNumber a = limbs(length, 10);
+            checkProduct(a, new NaturalNumber2(a));
+        }
+    }
+
+    @Test
+    public void testDivide_Big_Mixed() {
+        NaturalNumber n = new NaturalNumberBinary(BIG);
+        NaturalNumber m = new NaturalNumber2("18446744073709551629");
+        NaturalNumber nExpected = new NaturalNumber2(BIG);
+        NaturalNumber rExpected = nExpected.divide(m);
+        NaturalNumber r = n.divide(m);
+        assertEquals(nExpected, n);
+        assertEquals(rExpected, r);
+    }
+
+    @Test
+    public void testCanConvertToInt_2To31() {
+        NaturalNumber n = new NaturalNumberBinary("2147483648");
+        assertEquals(false, n.canConvertToInt());
+        n.decrement();
+        assertEquals(true, n.canConvertToInt());
+        assertEquals(Integer.MAX_VALUE, n.toInt());
+    }
+
+    @Test
+    public void testShifts() {
+        NaturalNumberBinary n = new NaturalNumberBinary(BIG);
+        n.shiftLeft(45);
+        n.shiftRight(45);
+        assertEquals(new NaturalNumber2(BIG), n);
+        n.shiftRight(128);
+        assertEquals(new NaturalNumber2(1), n);
+        assertEquals(false, n.isEven());
+    }
+
+    /*
+     * CryptoUtilities running on NaturalNumberBinary
+     */
+
+    @Test
+    public void testPowerMod_174_55_221() {
+        NaturalNumber n = new NaturalNumberBinary(174);
+        NaturalNumber nExpected = new NaturalNumber2(47);
+        NaturalNumber p = new NaturalNumberBinary(55);
+        NaturalNumber pExpected = new NaturalNumber2(55);
+        NaturalNumber m = new NaturalNumberBinary(221);
+        NaturalNumber mExpected = new NaturalNumber2(221);
+        CryptoUtilities.powerMod(n, p, m);
+        assertEquals(nExpected, n);
+        assertEquals(pExpected, p);
+        assertEquals(mExpected, m);
+    }
+
+    @Test
+    public void testReduceToGCD_30_21() {
+        NaturalNumber n = new NaturalNumberBinary(30);
+        NaturalNumber nExpected = new NaturalNumber2(3);
+        NaturalNumber m = new NaturalNumberBinary(21);
+        NaturalNumber mExpected = new NaturalNumber2(0);
+        CryptoUtilities.reduceToGCD(n, m);
+        assertEquals(nExpected, n);
+        assertEquals(mExpected, m);
+    }
+
+    @Test
+    public void testIsEven_512() {
+        NaturalNumber n = new NaturalNumberBinary(512);
+        NaturalNumber nExpected = new NaturalNumber2(512);
+        boolean result = CryptoUtilities.isEven(n);
+        assertEquals(nExpected, n);
+        assertEquals(true, result);
+    }
+
+    @Test
+    public void testIsPrime3_Carmichael_40() {
+        NaturalNumber n = new NaturalNumberBinary("6553130926752006031481761");
+        NaturalNumber nExpected = new NaturalNumber2(n);
+        boolean result = CryptoUtilities.isPrime3(n, 40);
+        assertEquals(nExpected, n);
+        assertEquals(false, result);
+    }
+
+}
@@ -0,0 +1,64 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber2;
+
+/**
+ * @author Chris Ma
+ *
+ */
+public class PrimalityCacheTest {
+
+    @Test
+    public void testIsPrime_HitsAndMisses() {
+        PrimalityCache cache = new PrimalityCache(4);
+        NaturalNumber p = new NaturalNumber2("170141183460469231731687303715884105727");
+        NaturalNumber c = new NaturalNumber2("6553130926752006031481761");
+        assertEquals(true, cache.isPrime(p));
+        assertEquals(false, cache.isPrime(c));
+        assertEquals(true, cache.isPrime(new NaturalNumberBinary(p)));
+        assertEquals(false, cache.isPrime(c));
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(new NaturalNumber2("170141183460469231731687303715884105727"), p);
+    }
+
+    @Test
+    public void testIsPrime_EvictsLeastRecentlyUsed() {
+        int[] calls = new int[1];
+        PrimalityCache cache = new PrimalityCache(2, n -> {
+            calls[0]++;
+            return CryptoUtilities.isPrime1(n);
+        });
+        NaturalNumber a = new NaturalNumber2(101);
+        NaturalNumber b = new NaturalNumber2(103);
+        NaturalNumber c = new NaturalNumber2(105);
+        cache.isPrime(a);
+        cache.isPrime(b);
+        cache.isPrime(a);
+        cache.isPrime(c);
+        assertEquals(3, calls[0]);
+        assertEquals(2, cache.size());
+        /*
+         * b was least recently used when c came in, so it was dropped
+         */
+        cache.isPrime(a);
+        assertEquals(3, calls[0]);
+        cache.isPrime(b);
+        assertEquals(4, calls[0]);
+    }
+
+    @Test
+    public void testClear() {
+        PrimalityCache cache = new PrimalityCache(8);
+        cache.isPrime(new NaturalNumber2(97));
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.hits());
+        assertEquals(0, cache.misses());
+    }
+
+}
@@ -0,0 +1,93 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber2;
+
+/**
+ * @author Chris Ma
+ *
+ */
+public class PrimalityContextTest {
+
+    @Test
+    public void testIsStrongWitness_3215031751() {
+        /*
+         * 3215031751 = 151 * 751 * 28351 is a strong pseudoprime to bases 2,
+         * 3, 5 and 7, but not to 11
+         */
+        NaturalNumber n = new NaturalNumber2("3215031751");
+        PrimalityContext context = new PrimalityContext(n);
+        assertEquals(false, context.isStrongWitness(new NaturalNumber2(2)));
+        assertEquals(false, context.isStrongWitness(new NaturalNumber2(7)));
+        assertEquals(true, context.isStrongWitness(new NaturalNumber2(11)));
+        assertEquals(new NaturalNumber2("3215031751"), n);
+    }
+
+    @Test
+    public void testIsStrongWitness_Prime_MinusOne() {
+        /*
+         * n - 2 is -1 times 2 mod n, so it is never a witness for a prime
+         */
+        NaturalNumber n = new NaturalNumber2("170141183460469231731687303715884105727");
+        NaturalNumber a = new NaturalNumber2(n);
+        a.subtract(new NaturalNumber2(2));
+        PrimalityContext context = new PrimalityContext(n);
+        assertEquals(false, context.isStrongWitness(a));
+        assertEquals(false, context.isStrongWitness(new NaturalNumber2(3)));
+    }
+
+    @Test
+    public void testIsWitness_MatchesPowerMod() {
+        /*
+         * Expected values from w^2 mod n = 1 or w^(n-1) mod n /= 1, computed
+         * with the division-based powerMod on NaturalNumber2 and checked
+         * against the hard-coded answers (6553130926752006031481761 is a
+         * Fermat pseudoprime to bases 2, 3, 5, 7 and 23)
+         */
+        NaturalNumber n = new NaturalNumber2("6553130926752006031481761");
+        NaturalNumber nMinusOne = new NaturalNumber2(n);
+        nMinusOne.decrement();
+        NaturalNumber one = new NaturalNumber2(1);
+        PrimalityContext context = new PrimalityContext(n);
+        final int[] bases = { 2, 3, 5, 7, 11, 13, 17, 19, 23 };
+        final boolean[] witness = { false, false, false, false, true, true, true,
+                true, false };
+        for (int i = 0; i < bases.length; i++) {
+            NaturalNumber square = new NaturalNumber2(bases[i]);
+            CryptoUtilities.powerMod(square, new NaturalNumber2(2), n);
+            NaturalNumber fermat = new NaturalNumber2(bases[i]);
+            CryptoUtilities.powerMod(fermat, nMinusOne, n);
+            boolean expected = square.equals(one) || !fermat.equals(one);
+            assertEquals(witness[i], expected);
+            assertEquals(expected, context.isWitness(new NaturalNumber2(bases[i])));
+        }
+    }
+
+    @Test
+    public void testIsStrongLucasProbablePrime_5777() {
+        /*
+         * 5777 = 53 * 109 is the smallest strong Lucas pseudoprime
+         */
+        PrimalityContext context = new PrimalityContext(new NaturalNumber2(5777));
+        assertEquals(true, context.isStrongLucasProbablePrime());
+        assertEquals(true, context.isStrongWitness(new NaturalNumber2(2)));
+    }
+
+    @Test
+    public void testIsStrongLucasProbablePrime_3215031751() {
+        PrimalityContext context = new PrimalityContext(new NaturalNumber2("3215031751"));
+        assertEquals(false, context.isStrongLucasProbablePrime());
+    }
+
+    @Test
+    public void testIsStrongLucasProbablePrime_Primes() {
+        final int[] primes = { 5, 7, 11, 13, 1009, 65537 };
+        for (int p : primes) {
+            PrimalityContext context = new PrimalityContext(new NaturalNumber2(p));
+            assertEquals(true, context.isStrongLucasProbablePrime());
+        }
+    }
+
+}
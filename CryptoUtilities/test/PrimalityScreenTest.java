@@ -0,0 +1,78 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * @author Chris Ma
+ *
+ */
+public class PrimalityScreenTest {
+
+    /**
+     * Screens a file holding {@code text} and returns the output.
+     *
+     * @param text
+     *            contents of the file
+     * @param screen
+     *            the screen to use
+     * @return the verdict lines
+     * @throws IOException
+     *             if the temporary file cannot be used
+     */
+    private static String screen(String text, PrimalityScreen screen)
+            throws IOException {
+        Path file = Files.createTempFile("screen", ".txt");
+        try {
+            Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            screen.screen(file, out);
+            return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testScreen_MixedLines() throws IOException {
+        String text = "97\n221\r\n\n  0 \n1\n12a\n"
+                + "170141183460469231731687303715884105727\n561";
+        String expected = "97\tprime\n221\tcomposite\n0\tneither\n1\tneither\n"
+                + "12a\tinvalid\n170141183460469231731687303715884105727\tprime\n"
+                + "561\tcomposite\n";
+        assertEquals(expected, screen(text, new PrimalityScreen()));
+    }
+
+    @Test
+    public void testScreen_Empty() throws IOException {
+        assertEquals("", screen("", new PrimalityScreen()));
+    }
+
+    @Test
+    public void testScreen_ManyGroupsInOrder() throws IOException {
+        StringBuilder text = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int n = 2; n < 3000; n++) {
+            text.append(n).append('\n');
+            String verdict = "composite";
+            if (LongPrimality.isPrime(n)) {
+                verdict = "prime";
+            }
+            expected.append(n).append('\t').append(verdict).append('\n');
+        }
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            assertEquals(expected.toString(),
+                    screen(text.toString(), new PrimalityScreen(pool, 7)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber2;
+
+/**
+ * @author Chris Ma
+ *
+ */
+public class RsaPipelineTest {
+
+    /**
+     * Key shared by the tests, generated from a fixed seed.
+     */
+    private static final RsaKeyPair KEY = RsaKeyPair.generate(256,
+            new UniformRandom(2221L));
+
+    @Test
+    public void testGenerate_256() {
+        NaturalNumber n = KEY.modulus();
+        NaturalNumber e = KEY.publicExponent();
+        NaturalNumber d = KEY.privateExponent();
+        assertEquals(256, KEY.bitLength());
+        assertEquals(new NaturalNumber2(65537), e);
+        /*
+         * e * d = 1 mod lambda(n) means m^(e*d) = m (mod n) for every m
+         */
+        NaturalNumber m = new NaturalNumber2(123456789);
+        NaturalNumber c = new NaturalNumber2(m);
+        CryptoUtilities.powerMod(c, e, n);
+        CryptoUtilities.powerMod(c, d, n);
+        assertEquals(m, c);
+    }
+
+    @Test
+    public void testDecrypt_MatchesPowerMod() {
+        NaturalNumber c = new NaturalNumber2("98765432109876543210987654321");
+        NaturalNumber mExpected = new NaturalNumber2(c);
+        CryptoUtilities.powerMod(mExpected, KEY.privateExponent(), KEY.modulus());
+        NaturalNumber m = KEY.decrypt(c);
+        assertEquals(mExpected, m);
+        assertEquals(new NaturalNumber2("98765432109876543210987654321"), c);
+    }
+
+    @Test
+    public void testEncryptDecrypt_0_1() {
+        assertEquals(new NaturalNumber2(0), KEY.decrypt(KEY.encrypt(new NaturalNumber2(0))));
+        assertEquals(new NaturalNumber2(1), KEY.decrypt(KEY.encrypt(new NaturalNumber2(1))));
+    }
+
+    @Test
+    public void testEncryptAll_DecryptAll() {
+        final int count = 37;
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            RsaPipeline pipeline = new RsaPipeline(KEY, pool, 5);
+            NaturalNumber[] messages = new NaturalNumber[count];
+            for (int i = 0; i < count; i++) {
+                messages[i] = new NaturalNumber2(i * i * i + 2);
+            }
+            NaturalNumber[] ciphertexts = pipeline.encryptAll(messages);
+            assertEquals(count, ciphertexts.length);
+            assertEquals(KEY.encrypt(messages[count - 1]), ciphertexts[count - 1]);
+            NaturalNumber[] decrypted = pipeline.decryptAll(ciphertexts);
+            for (int i = 0; i < count; i++) {
+                assertEquals(messages[i], decrypted[i]);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testEncryptDecrypt_Stream() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            RsaPipeline pipeline = new RsaPipeline(KEY, pool, 3);
+            /*
+             * Leading zero bytes, and a length that leaves a short last block
+             */
+            byte[] message = new byte[10 * pipeline.plaintextBlockBytes() + 7];
+            for (int i = 0; i < message.length; i++) {
+                message[i] = (byte) (i * 37 % 251);
+            }
+            message[0] = 0;
+            message[1] = 0;
+            ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+            pipeline.encrypt(new ByteArrayInputStream(message), encrypted);
+            assertEquals(11 * pipeline.ciphertextBlockBytes(), encrypted.size());
+            ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+            pipeline.decrypt(new ByteArrayInputStream(encrypted.toByteArray()),
+                    decrypted);
+            assertArrayEquals(message, decrypted.toByteArray());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecrypt_Truncated() throws IOException {
+        RsaPipeline pipeline = new RsaPipeline(KEY);
+        byte[] ciphertext = new byte[pipeline.ciphertextBlockBytes() - 1];
+        pipeline.decrypt(new ByteArrayInputStream(ciphertext), new ByteArrayOutputStream());
+    }
+
+}
@@ -0,0 +1,67 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber2;
+
+/**
+ * @author Chris Ma
+ *
+ */
+public class UniformRandomTest {
+
+    @Test
+    public void testNext_1_BothValues() {
+        final int draws = 200;
+        UniformRandom random = new UniformRandom(2221L);
+        NaturalNumber n = new NaturalNumber2(1);
+        int[] count = new int[2];
+        for (int i = 0; i < draws; i++) {
+            count[random.next(n).toInt()]++;
+        }
+        assertEquals(new NaturalNumber2(1), n);
+        assertTrue(count[0] > 0);
+        assertTrue(count[1] > 0);
+    }
+
+    @Test
+    public void testNext_2To32_InRange() {
+        final int draws = 1000;
+        UniformRandom random = new UniformRandom(7L);
+        NaturalNumber n = new NaturalNumber2("4294967296");
+        NaturalNumber half = new NaturalNumber2("2147483648");
+        int upperHalf = 0;
+        for (int i = 0; i < draws; i++) {
+            NaturalNumber r = random.next(n);
+            assertTrue(r.compareTo(n) <= 0);
+            if (r.compareTo(half) >= 0) {
+                upperHalf++;
+            }
+        }
+        assertTrue(upperHalf > draws / 4);
+        assertTrue(upperHalf < 3 * draws / 4);
+    }
+
+    @Test
+    public void testNext_SameSeedSameSequence() {
+        final int draws = 20;
+        NaturalNumber n = new NaturalNumber2("340282366920938463463374607431768211457");
+        UniformRandom first = new UniformRandom(42L);
+        UniformRandom second = new UniformRandom(42L);
+        for (int i = 0; i < draws; i++) {
+            assertEquals(first.next(n), second.next(n));
+        }
+    }
+
+    @Test
+    public void testNext_Binary_KeepsImplementation() {
+        UniformRandom random = new UniformRandom(3L);
+        NaturalNumber n = new NaturalNumberBinary("18446744073709551629");
+        NaturalNumber r = random.next(n);
+        assertTrue(r instanceof NaturalNumberBinary);
+        assertTrue(r.compareTo(n) <= 0);
+    }
+
+}
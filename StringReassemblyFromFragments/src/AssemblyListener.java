@@ -0,0 +1,28 @@
+/**
+ * Receives the progress of a greedy assembly: told after every merge, and
+ * once at the end, with the assembly's running {@code AssemblyStats}. It is
+ * called on the assembling thread, between merges, so it should return
+ * quickly; the stats it is given are live and change after it returns.
+ *
+ * @author Chris Ma
+ *
+ */
+public interface AssemblyListener {
+
+    /**
+     * Reports that two strings have just been merged.
+     *
+     * @param stats
+     *            the assembly's statistics, including that merge
+     */
+    void merged(AssemblyStats stats);
+
+    /**
+     * Reports that no two strings left overlap, so the assembly is done.
+     *
+     * @param stats
+     *            the assembly's final statistics
+     */
+    void finished(AssemblyStats stats);
+
+}
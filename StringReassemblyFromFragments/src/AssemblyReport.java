@@ -0,0 +1,67 @@
+import components.simplewriter.SimpleWriter;
+
+/**
+ * An {@code AssemblyListener} that prints the assembly's statistics to a
+ * {@code SimpleWriter} at most once per interval, and once more when the
+ * assembly is done. The interval is checked after each merge, so no extra
+ * thread is involved and a report may come late if merges are slow.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class AssemblyReport implements AssemblyListener {
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    /**
+     * Where the reports go.
+     */
+    private final SimpleWriter out;
+
+    /**
+     * Shortest time between reports, in nanoseconds.
+     */
+    private final long intervalNanos;
+
+    /**
+     * System.nanoTime() of the last report, or of construction.
+     */
+    private long lastNanos;
+
+    /**
+     * Constructs a listener that prints to {@code out} every
+     * {@code intervalMillis} milliseconds.
+     *
+     * @param out
+     *            the output stream
+     * @param intervalMillis
+     *            shortest time between reports, in milliseconds
+     * @requires out.is_open and intervalMillis >= 0
+     */
+    public AssemblyReport(SimpleWriter out, long intervalMillis) {
+        assert out != null : "Violation of: out is not null";
+        assert intervalMillis >= 0 : "Violation of: intervalMillis >= 0";
+
+        this.out = out;
+        this.intervalNanos = intervalMillis * NANOS_PER_MILLI;
+        this.lastNanos = System.nanoTime();
+    }
+
+    @Override
+    public void merged(AssemblyStats stats) {
+        long now = System.nanoTime();
+        if (now - this.lastNanos >= this.intervalNanos) {
+            this.lastNanos = now;
+            this.out.println("assembling: " + stats);
+        }
+    }
+
+    @Override
+    public void finished(AssemblyStats stats) {
+        this.out.println("assembled: " + stats);
+    }
+
+}
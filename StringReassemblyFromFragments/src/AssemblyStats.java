@@ -0,0 +1,198 @@
+/**
+ * Running statistics of a greedy assembly: how many strings are left, how
+ * many candidate overlaps have been looked at, how long the merges made so
+ * far overlapped, and how the time spent has divided between searching for
+ * the best overlap (building the overlap index and finding each next merge)
+ * and maintaining the set of strings (joining the chains of a merge).
+ *
+ * @author Chris Ma
+ *
+ */
+public final class AssemblyStats {
+
+    /**
+     * Nanoseconds per second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * System.nanoTime() when the assembly started.
+     */
+    private final long startNanos;
+
+    /**
+     * Number of fragments assembled.
+     */
+    private final int fragments;
+
+    /**
+     * Number of strings left.
+     */
+    private int remaining;
+
+    /**
+     * Number of candidate overlaps looked at.
+     */
+    private long overlapComputations;
+
+    /**
+     * Number of merges made.
+     */
+    private int merges;
+
+    /**
+     * Sum of the overlaps of the merges made.
+     */
+    private long overlapTotal;
+
+    /**
+     * Nanoseconds spent searching for overlaps.
+     */
+    private long searchNanos;
+
+    /**
+     * Nanoseconds spent joining strings.
+     */
+    private long maintenanceNanos;
+
+    /**
+     * Constructs the statistics of an assembly of {@code fragments} fragments
+     * starting now.
+     *
+     * @param fragments
+     *            the number of fragments
+     */
+    AssemblyStats(int fragments) {
+        this.startNanos = System.nanoTime();
+        this.fragments = fragments;
+        this.remaining = fragments;
+    }
+
+    /**
+     * Records a search for overlaps.
+     *
+     * @param nanos
+     *            the time it took
+     * @param candidates
+     *            the number of candidate overlaps it looked at
+     */
+    void searched(long nanos, long candidates) {
+        this.searchNanos += nanos;
+        this.overlapComputations += candidates;
+    }
+
+    /**
+     * Records a merge.
+     *
+     * @param overlap
+     *            the overlap of the strings merged
+     * @param nanos
+     *            the time the join took
+     */
+    void merged(int overlap, long nanos) {
+        this.remaining--;
+        this.merges++;
+        this.overlapTotal += overlap;
+        this.maintenanceNanos += nanos;
+    }
+
+    /**
+     * Reports the number of fragments assembled.
+     *
+     * @return the number of fragments
+     */
+    public int fragments() {
+        return this.fragments;
+    }
+
+    /**
+     * Reports the number of strings left.
+     *
+     * @return the number of strings left
+     */
+    public int remaining() {
+        return this.remaining;
+    }
+
+    /**
+     * Reports the number of candidate overlaps looked at, i.e., of pairs of
+     * strings whose overlap has been read off the overlap index.
+     *
+     * @return the number of overlaps computed
+     */
+    public long overlapComputations() {
+        return this.overlapComputations;
+    }
+
+    /**
+     * Reports the number of merges made.
+     *
+     * @return the number of merges
+     */
+    public int merges() {
+        return this.merges;
+    }
+
+    /**
+     * Reports the mean overlap of the merges made.
+     *
+     * @return the average overlap, or 0 if there have been no merges
+     */
+    public double averageOverlap() {
+        double average = 0;
+        if (this.merges > 0) {
+            average = (double) this.overlapTotal / this.merges;
+        }
+        return average;
+    }
+
+    /**
+     * Reports the time since the assembly started.
+     *
+     * @return the elapsed time, in nanoseconds
+     */
+    public long elapsedNanos() {
+        return System.nanoTime() - this.startNanos;
+    }
+
+    /**
+     * Reports the number of merges made per second since the assembly
+     * started.
+     *
+     * @return the merge rate
+     */
+    public double mergeRate() {
+        return this.merges * NANOS_PER_SECOND / Math.max(1, this.elapsedNanos());
+    }
+
+    /**
+     * Reports the time spent searching for overlaps: building the overlap
+     * index and finding the best overlap for each merge.
+     *
+     * @return the search time, in nanoseconds
+     */
+    public long searchNanos() {
+        return this.searchNanos;
+    }
+
+    /**
+     * Reports the time spent joining the strings merged.
+     *
+     * @return the set maintenance time, in nanoseconds
+     */
+    public long maintenanceNanos() {
+        return this.maintenanceNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d of %d strings left, %d overlaps computed, %.1f mean overlap, "
+                        + "%.0f merges/s, %.3f s search, %.3f s maintenance",
+                this.remaining, this.fragments, this.overlapComputations,
+                this.averageOverlap(), this.mergeRate(),
+                this.searchNanos / NANOS_PER_SECOND,
+                this.maintenanceNanos / NANOS_PER_SECOND);
+    }
+
+}
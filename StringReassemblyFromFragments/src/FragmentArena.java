@@ -0,0 +1,275 @@
+import java.util.Arrays;
+
+/**
+ * A list of fragments stored end to end in one shared {@code char[]}, with
+ * the offset and length of each fragment in {@code int[]}s, instead of as one
+ * {@code String} object per fragment. Fragments can only be appended, and
+ * are numbered in the order they are appended.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class FragmentArena {
+
+    /**
+     * Initial capacity of the arrays; they grow as needed.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Largest number of characters an arena can hold (the largest array
+     * length Java virtual machines generally allow).
+     */
+    private static final int MAX_CHARS = Integer.MAX_VALUE - 8;
+
+    /**
+     * Characters of all fragments, end to end.
+     */
+    private char[] chars;
+
+    /**
+     * Number of characters used in chars.
+     */
+    private int used;
+
+    /**
+     * Offset of each fragment in chars.
+     */
+    private int[] offsets;
+
+    /**
+     * Length of each fragment.
+     */
+    private int[] lengths;
+
+    /**
+     * Number of fragments.
+     */
+    private int count;
+
+    /**
+     * Constructs an empty arena.
+     */
+    public FragmentArena() {
+        this.chars = new char[INITIAL_CAPACITY];
+        this.used = 0;
+        this.offsets = new int[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.count = 0;
+    }
+
+    /**
+     * Returns an arena holding {@code fragments}, in the same order.
+     *
+     * @param fragments
+     *            the fragments
+     * @return the arena
+     * @requires [fragments contains no null entry]
+     */
+    public static FragmentArena of(String[] fragments) {
+        assert fragments != null : "Violation of: fragments is not null";
+
+        FragmentArena arena = new FragmentArena();
+        for (String str : fragments) {
+            arena.add(str);
+        }
+        return arena;
+    }
+
+    /**
+     * Makes room for one more fragment of {@code length} characters.
+     *
+     * @param length
+     *            length of the fragment
+     * @throws IllegalStateException
+     *             if the arena would hold more than MAX_CHARS characters
+     */
+    private void reserve(int length) {
+        if (this.count == this.offsets.length) {
+            this.offsets = Arrays.copyOf(this.offsets, 2 * this.count);
+            this.lengths = Arrays.copyOf(this.lengths, 2 * this.count);
+        }
+        if (this.chars.length - this.used < length) {
+            long needed = (long) this.used + length;
+            if (needed > MAX_CHARS) {
+                throw new IllegalStateException(
+                        "Fragments exceed " + MAX_CHARS + " characters");
+            }
+            long capacity = Math.min(MAX_CHARS, Math.max(2L * this.chars.length, needed));
+            this.chars = Arrays.copyOf(this.chars, (int) capacity);
+        }
+    }
+
+    /**
+     * Appends the fragment {@code text[from, from + length)}.
+     *
+     * @param text
+     *            characters of the fragment
+     * @param from
+     *            position of the fragment in text
+     * @param length
+     *            length of the fragment
+     * @return the number of the fragment
+     * @requires 0 <= from and 0 <= length and from + length <= |text|
+     */
+    public int add(char[] text, int from, int length) {
+        assert text != null : "Violation of: text is not null";
+        assert 0 <= from && 0 <= length && from + length <= text.length : ""
+                + "Violation of: 0 <= from and 0 <= length and from + length <= |text|";
+
+        this.reserve(length);
+        System.arraycopy(text, from, this.chars, this.used, length);
+        return this.append(length);
+    }
+
+    /**
+     * Appends the fragment {@code str}.
+     *
+     * @param str
+     *            the fragment
+     * @return the number of the fragment
+     */
+    public int add(CharSequence str) {
+        assert str != null : "Violation of: str is not null";
+
+        int length = str.length();
+        this.reserve(length);
+        for (int p = 0; p < length; p++) {
+            this.chars[this.used + p] = str.charAt(p);
+        }
+        return this.append(length);
+    }
+
+    /**
+     * Appends fragment {@code i} of {@code source}.
+     *
+     * @param source
+     *            the arena holding the fragment
+     * @param i
+     *            the fragment number in source
+     * @return the number of the fragment in this arena
+     * @requires 0 <= i < source.size()
+     */
+    public int add(FragmentArena source, int i) {
+        assert source != null : "Violation of: source is not null";
+        assert 0 <= i && i < source.count : "Violation of: 0 <= i < source.size()";
+
+        return this.add(source.chars, source.offsets[i], source.lengths[i]);
+    }
+
+    /**
+     * Records a fragment of {@code length} characters just copied to the end
+     * of chars.
+     *
+     * @param length
+     *            length of the fragment
+     * @return the number of the fragment
+     */
+    private int append(int length) {
+        this.offsets[this.count] = this.used;
+        this.lengths[this.count] = length;
+        this.used += length;
+        this.count++;
+        return this.count - 1;
+    }
+
+    /**
+     * Reports the number of fragments.
+     *
+     * @return the number of fragments
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Reports the total length of the fragments.
+     *
+     * @return the number of characters in all fragments
+     */
+    public long totalLength() {
+        return this.used;
+    }
+
+    /**
+     * Reports the length of fragment {@code i}.
+     *
+     * @param i
+     *            the fragment number
+     * @return the length
+     * @requires 0 <= i < size()
+     */
+    public int length(int i) {
+        assert 0 <= i && i < this.count : "Violation of: 0 <= i < size()";
+
+        return this.lengths[i];
+    }
+
+    /**
+     * Reports the character at position {@code p} of fragment {@code i}.
+     *
+     * @param i
+     *            the fragment number
+     * @param p
+     *            the position
+     * @return the character
+     * @requires 0 <= i < size() and 0 <= p < length(i)
+     */
+    public char charAt(int i, int p) {
+        assert 0 <= i && i < this.count : "Violation of: 0 <= i < size()";
+        assert 0 <= p && p < this.lengths[i] : "Violation of: 0 <= p < length(i)";
+
+        return this.chars[this.offsets[i] + p];
+    }
+
+    /**
+     * Appends the part of fragment {@code i} from position {@code from} on to
+     * {@code text}.
+     *
+     * @param i
+     *            the fragment number
+     * @param from
+     *            the first position to append
+     * @param text
+     *            the text to append to
+     * @updates text
+     * @requires 0 <= i < size() and 0 <= from <= length(i)
+     * @ensures text = #text * [fragment i from position from on]
+     */
+    public void appendTo(int i, int from, StringBuilder text) {
+        assert 0 <= i && i < this.count : "Violation of: 0 <= i < size()";
+        assert 0 <= from && from <= this.lengths[i] : ""
+                + "Violation of: 0 <= from <= length(i)";
+        assert text != null : "Violation of: text is not null";
+
+        text.append(this.chars, this.offsets[i] + from, this.lengths[i] - from);
+    }
+
+    /**
+     * Returns fragment {@code i} as a {@code String}.
+     *
+     * @param i
+     *            the fragment number
+     * @return the fragment
+     * @requires 0 <= i < size()
+     */
+    public String fragment(int i) {
+        assert 0 <= i && i < this.count : "Violation of: 0 <= i < size()";
+
+        return new String(this.chars, this.offsets[i], this.lengths[i]);
+    }
+
+    /**
+     * Returns the fragments as {@code String}s, in order.
+     *
+     * @return the fragments
+     */
+    public String[] toArray() {
+        String[] result = new String[this.count];
+        for (int i = 0; i < this.count; i++) {
+            result[i] = this.fragment(i);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,169 @@
+import java.util.Arrays;
+
+/**
+ * Fragments of a {@code FragmentArena} joined into chains: each chain is a
+ * sequence of fragments, each overlapping the next by a recorded number of
+ * characters, and spells the string obtained by combining them in order.
+ * Initially every fragment is a chain of its own; joining the end of one
+ * chain to the start of another makes one chain of the two.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class FragmentChains {
+
+    /**
+     * Marks a missing fragment.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * The fragments.
+     */
+    private final FragmentArena fragments;
+
+    /**
+     * Fragment that follows each fragment in its chain, or NONE.
+     */
+    private final int[] next;
+
+    /**
+     * Overlap between each fragment and the next one in its chain.
+     */
+    private final int[] nextOverlap;
+
+    /**
+     * Whether each fragment follows another in its chain.
+     */
+    private final boolean[] hasPrevious;
+
+    /**
+     * For each fragment that ends a chain, the fragment that starts it; for
+     * each fragment that starts a chain, the fragment that ends it.
+     */
+    private final int[] otherEnd;
+
+    /**
+     * Number of chains.
+     */
+    private int count;
+
+    /**
+     * Constructs chains of the fragments in {@code fragments}, each fragment
+     * a chain of its own. The arena must not be changed while the chains are
+     * in use.
+     *
+     * @param fragments
+     *            the fragments
+     */
+    public FragmentChains(FragmentArena fragments) {
+        assert fragments != null : "Violation of: fragments is not null";
+
+        int n = fragments.size();
+        this.fragments = fragments;
+        this.next = new int[n];
+        this.nextOverlap = new int[n];
+        this.hasPrevious = new boolean[n];
+        this.otherEnd = new int[n];
+        this.count = n;
+        Arrays.fill(this.next, NONE);
+        for (int x = 0; x < n; x++) {
+            this.otherEnd[x] = x;
+        }
+    }
+
+    /**
+     * Reports whether fragment {@code x} ends its chain.
+     *
+     * @param x
+     *            the fragment
+     * @return whether no fragment follows x
+     */
+    public boolean isEnd(int x) {
+        return this.next[x] == NONE;
+    }
+
+    /**
+     * Reports whether fragment {@code y} starts its chain.
+     *
+     * @param y
+     *            the fragment
+     * @return whether y follows no fragment
+     */
+    public boolean isStart(int y) {
+        return !this.hasPrevious[y];
+    }
+
+    /**
+     * Reports whether the chain ending with fragment {@code x} can be
+     * followed by the chain starting with fragment {@code y}.
+     *
+     * @param x
+     *            the fragment
+     * @param y
+     *            the other fragment
+     * @return whether x ends a chain and y starts a different one
+     */
+    public boolean canJoin(int x, int y) {
+        return this.isEnd(x) && this.isStart(y) && this.otherEnd[x] != y;
+    }
+
+    /**
+     * Makes the chain ending with fragment {@code x} and the chain starting
+     * with fragment {@code y} one chain, x overlapping y by {@code overlap}
+     * characters.
+     *
+     * @param x
+     *            the fragment
+     * @param y
+     *            the other fragment
+     * @param overlap
+     *            the overlap of x and y
+     * @requires canJoin(x, y) and OVERLAPS(fragment x, fragment y, overlap)
+     */
+    public void join(int x, int y, int overlap) {
+        assert this.canJoin(x, y) : "Violation of: canJoin(x, y)";
+
+        int start = this.otherEnd[x];
+        int end = this.otherEnd[y];
+        this.next[x] = y;
+        this.nextOverlap[x] = overlap;
+        this.hasPrevious[y] = true;
+        this.otherEnd[start] = end;
+        this.otherEnd[end] = start;
+        this.count--;
+    }
+
+    /**
+     * Reports the number of chains.
+     *
+     * @return the number of chains
+     */
+    public int count() {
+        return this.count;
+    }
+
+    /**
+     * Returns the strings spelled by the chains, in order of the number of
+     * their first fragment.
+     *
+     * @return the strings
+     */
+    public String[] contigs() {
+        String[] result = new String[this.count];
+        int k = 0;
+        for (int start = 0; start < this.fragments.size(); start++) {
+            if (!this.hasPrevious[start]) {
+                StringBuilder text = new StringBuilder();
+                this.fragments.appendTo(start, 0, text);
+                for (int x = start; this.next[x] != NONE; x = this.next[x]) {
+                    this.fragments.appendTo(this.next[x], this.nextOverlap[x], text);
+                }
+                result[k] = text.toString();
+                k++;
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,226 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Loads fragments, one per line, from a UTF-8 file straight into a
+ * {@code FragmentArena}. The file is read through a {@code FileChannel} into
+ * a fixed buffer and decoded a buffer at a time, and each line is copied from
+ * one reused line buffer, so no {@code String} is made per line. Lines end
+ * with "\n" or "\r\n", as for {@code SimpleReader.nextLine}; malformed input
+ * is decoded as the replacement character.
+ *
+ * <p>
+ * {@code readMaximal} also drops lines that are substrings of others as it
+ * goes, so only the lines kept (and the suffix automaton of those ever kept)
+ * are in memory, rather than the whole file.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class FragmentLoader {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private FragmentLoader() {
+    }
+
+    /**
+     * Size in bytes of the file read buffer, and in characters of the decode
+     * buffer.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Initial capacity in characters of the line buffer; it grows as needed.
+     */
+    private static final int LINE_CHARS = 128;
+
+    /**
+     * Splits decoded characters into lines and hands each line to an arena
+     * or a filter.
+     */
+    private static final class LineSplitter {
+
+        /**
+         * Arena to add every line to, or null.
+         */
+        private final FragmentArena arena;
+
+        /**
+         * Filter to add every line to, or null.
+         */
+        private final SubstringFilter filter;
+
+        /**
+         * Characters of the line being assembled.
+         */
+        private char[] line;
+
+        /**
+         * Number of characters in line.
+         */
+        private int length;
+
+        /**
+         * Whether any character has been read since the last line ended.
+         */
+        private boolean partial;
+
+        /**
+         * Constructs a splitter that hands lines to {@code arena} or, if it is
+         * null, to {@code filter}.
+         *
+         * @param arena
+         *            arena to add every line to, or null
+         * @param filter
+         *            filter to add every line to, if arena is null
+         */
+        private LineSplitter(FragmentArena arena, SubstringFilter filter) {
+            this.arena = arena;
+            this.filter = filter;
+            this.line = new char[LINE_CHARS];
+            this.length = 0;
+            this.partial = false;
+        }
+
+        /**
+         * Hands on the line assembled so far, without a trailing '\r'.
+         */
+        private void endLine() {
+            int n = this.length;
+            if (n > 0 && this.line[n - 1] == '\r') {
+                n--;
+            }
+            if (this.arena != null) {
+                this.arena.add(this.line, 0, n);
+            } else {
+                this.filter.add(this.line, 0, n);
+            }
+            this.length = 0;
+            this.partial = false;
+        }
+
+        /**
+         * Consumes the characters decoded into {@code chars}.
+         *
+         * @param chars
+         *            the decode buffer, in write mode
+         * @updates chars
+         * @ensures chars is empty and in write mode
+         */
+        private void drain(CharBuffer chars) {
+            chars.flip();
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+                if (c == '\n') {
+                    this.endLine();
+                } else {
+                    if (this.length == this.line.length) {
+                        this.line = Arrays.copyOf(this.line, 2 * this.length);
+                    }
+                    this.line[this.length] = c;
+                    this.length++;
+                    this.partial = true;
+                }
+            }
+            chars.clear();
+        }
+
+        /**
+         * Hands on the last line if the input did not end with a line
+         * terminator.
+         */
+        private void finish() {
+            if (this.partial) {
+                this.endLine();
+            }
+        }
+
+    }
+
+    /**
+     * Reads the lines of {@code file} into {@code splitter}.
+     *
+     * @param file
+     *            the file
+     * @param splitter
+     *            where the lines go
+     * @throws IOException
+     *             if reading fails
+     */
+    private static void read(Path file, LineSplitter splitter) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean atEnd = false;
+            while (!atEnd) {
+                atEnd = channel.read(bytes) < 0;
+                bytes.flip();
+                CoderResult result = decoder.decode(bytes, chars, atEnd);
+                while (result.isOverflow()) {
+                    splitter.drain(chars);
+                    result = decoder.decode(bytes, chars, atEnd);
+                }
+                bytes.compact();
+                splitter.drain(chars);
+            }
+            CoderResult result = decoder.flush(chars);
+            while (result.isOverflow()) {
+                splitter.drain(chars);
+                result = decoder.flush(chars);
+            }
+            splitter.drain(chars);
+            splitter.finish();
+        }
+    }
+
+    /**
+     * Returns the lines of {@code file}, in order.
+     *
+     * @param file
+     *            the file, in UTF-8
+     * @return the lines, without their line terminators
+     * @throws IOException
+     *             if reading fails
+     */
+    public static FragmentArena readAll(Path file) throws IOException {
+        assert file != null : "Violation of: file is not null";
+
+        FragmentArena arena = new FragmentArena();
+        read(file, new LineSplitter(arena, null));
+        return arena;
+    }
+
+    /**
+     * Returns the lines of {@code file} that are not substrings of other
+     * lines, each once, in the order they were kept; the same lines that
+     * {@code StringReassembly.linesFromInput} returns.
+     *
+     * @param file
+     *            the file, in UTF-8
+     * @return the lines kept, without their line terminators
+     * @throws IOException
+     *             if reading fails
+     */
+    public static FragmentArena readMaximal(Path file) throws IOException {
+        assert file != null : "Violation of: file is not null";
+
+        SubstringFilter filter = new SubstringFilter();
+        read(file, new LineSplitter(null, filter));
+        return filter.keptFragments();
+    }
+
+}
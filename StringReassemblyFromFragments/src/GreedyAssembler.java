@@ -0,0 +1,430 @@
+import java.util.Arrays;
+
+/**
+ * Greedy assembly of a fixed list of fragments, done incrementally: it makes
+ * the same merges as repeatedly combining the two most-overlapping strings,
+ * but finds each one without rescanning the strings left.
+ *
+ * <p>
+ * The combination of a and b (a's suffix overlapping b's prefix) starts with
+ * a and ends with b, and as long as no string is a substring of another, its
+ * overlap with any other string x is that of a (x before it) or of b (x after
+ * it): a longer one would make a or b a substring of x. So a merged string
+ * never needs its overlaps computed; it is just a chain of fragments, and a
+ * candidate merge x &rarr; y of fragments, with the overlap found by the
+ * {@code OverlapIndex} of the fragments, is still possible exactly when x
+ * ends a chain, y starts a different chain, and neither has been merged on
+ * that side yet.
+ *
+ * <p>
+ * Each fragment x that ends a chain has one entry in a heap keyed by its
+ * current candidate: the fragment y whose prefix overlaps x the most, in
+ * decreasing overlap order read off the index's failure chain from x. A
+ * popped entry whose candidate has meanwhile been merged is not discarded
+ * but moved on to x's next candidate (lazy invalidation), so after a merge
+ * nothing is recomputed. Ties between equal overlaps go to the fragment x
+ * with the smallest number.
+ *
+ * <p>
+ * The assembler keeps {@code AssemblyStats} as it goes, and reports them to
+ * an optional {@code AssemblyListener} after each merge and when done.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class GreedyAssembler {
+
+    /**
+     * Index of the fragments.
+     */
+    private final OverlapIndex index;
+
+    /**
+     * The chains of fragments merged so far.
+     */
+    private final FragmentChains chains;
+
+    /**
+     * For each fragment x that ends a chain, the node on the failure chain of
+     * x whose fragments are being tried as x's next candidates.
+     */
+    private final int[] cursorNode;
+
+    /**
+     * For each fragment x that ends a chain, the position of x's current
+     * candidate among the fragments of cursorNode[x].
+     */
+    private final int[] cursorPosition;
+
+    /**
+     * Heap of (overlap, fragment) keys of the chain ends with a candidate;
+     * see key.
+     */
+    private long[] heap;
+
+    /**
+     * Number of entries in heap.
+     */
+    private int heapSize;
+
+    /**
+     * Number of candidate overlaps looked at since the last search was
+     * recorded in stats.
+     */
+    private long candidates;
+
+    /**
+     * Statistics of the assembly so far.
+     */
+    private final AssemblyStats stats;
+
+    /**
+     * Listener to report to, or null.
+     */
+    private final AssemblyListener listener;
+
+    /**
+     * Whether the listener has been told that the assembly is done.
+     */
+    private boolean finished;
+
+    /**
+     * Constructs an assembler for {@code fragments}, with every fragment a
+     * chain of its own.
+     *
+     * @param fragments
+     *            the fragments
+     * @requires [no fragment is a substring of another]
+     */
+    public GreedyAssembler(String[] fragments) {
+        this(FragmentArena.of(fragments));
+    }
+
+    /**
+     * Constructs an assembler for the fragments in {@code fragments}, with
+     * every fragment a chain of its own. The arena must not be changed while
+     * the assembler is in use.
+     *
+     * @param fragments
+     *            the fragments
+     * @requires [no fragment is a substring of another]
+     */
+    public GreedyAssembler(FragmentArena fragments) {
+        this(fragments, null);
+    }
+
+    /**
+     * Constructs an assembler for the fragments in {@code fragments}, with
+     * every fragment a chain of its own, that reports its progress to
+     * {@code listener}. The arena must not be changed while the assembler is
+     * in use.
+     *
+     * @param fragments
+     *            the fragments
+     * @param listener
+     *            listener to report to, or null
+     * @requires [no fragment is a substring of another]
+     */
+    public GreedyAssembler(FragmentArena fragments, AssemblyListener listener) {
+        assert fragments != null : "Violation of: fragments is not null";
+
+        int n = fragments.size();
+        this.stats = new AssemblyStats(n);
+        this.listener = listener;
+        this.finished = false;
+        this.candidates = 0;
+        long started = System.nanoTime();
+        this.index = new OverlapIndex(fragments);
+        this.chains = new FragmentChains(fragments);
+        this.cursorNode = new int[n];
+        this.cursorPosition = new int[n];
+        this.heap = new long[n];
+        this.heapSize = 0;
+        for (int x = 0; x < n; x++) {
+            int v = this.index.failure(this.index.node(x));
+            this.cursorNode[x] = v;
+            this.cursorPosition[x] = this.index.low(v) - 1;
+            if (this.advance(x)) {
+                this.push(key(this.index.depth(this.cursorNode[x]), x));
+            }
+        }
+        this.stats.searched(System.nanoTime() - started, this.candidates);
+        this.candidates = 0;
+    }
+
+    /**
+     * Returns the heap key of a candidate merge with {@code overlap}
+     * characters after fragment {@code x}; larger overlaps and then smaller
+     * fragment numbers have smaller keys.
+     *
+     * @param overlap
+     *            the overlap
+     * @param x
+     *            the fragment
+     * @return the key
+     */
+    private static long key(int overlap, int x) {
+        return ((long) (Integer.MAX_VALUE - overlap) << Integer.SIZE) | x;
+    }
+
+    /**
+     * Moves the cursor of chain end {@code x} to its next candidate: the
+     * next fragment, in decreasing order of overlap, that is not x and does
+     * not yet follow another fragment.
+     *
+     * @param x
+     *            the fragment
+     * @return whether there is such a candidate
+     */
+    private boolean advance(int x) {
+        int v = this.cursorNode[x];
+        int p = this.cursorPosition[x] + 1;
+        boolean found = false;
+        while (!found && v != OverlapIndex.ROOT) {
+            if (p < this.index.high(v)) {
+                int y = this.index.fragmentAt(p);
+                this.candidates++;
+                found = y != x && this.chains.isStart(y);
+                if (!found) {
+                    p++;
+                }
+            } else {
+                v = this.index.failure(v);
+                p = this.index.low(v);
+            }
+        }
+        this.cursorNode[x] = v;
+        this.cursorPosition[x] = p;
+        return found;
+    }
+
+    /**
+     * Adds {@code key} to the heap.
+     *
+     * @param key
+     *            the key
+     */
+    private void push(long key) {
+        if (this.heapSize == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, 2 * this.heapSize + 1);
+        }
+        int i = this.heapSize;
+        this.heapSize++;
+        while (i > 0 && this.heap[(i - 1) / 2] > key) {
+            this.heap[i] = this.heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        this.heap[i] = key;
+    }
+
+    /**
+     * Removes and returns the smallest key in the heap.
+     *
+     * @return the key
+     * @requires heapSize > 0
+     */
+    private long pop() {
+        long top = this.heap[0];
+        this.heapSize--;
+        long last = this.heap[this.heapSize];
+        int i = 0;
+        int child = 1;
+        while (child < this.heapSize) {
+            if (child + 1 < this.heapSize && this.heap[child + 1] < this.heap[child]) {
+                child++;
+            }
+            if (this.heap[child] < last) {
+                this.heap[i] = this.heap[child];
+                i = child;
+                child = 2 * i + 1;
+            } else {
+                child = this.heapSize;
+            }
+        }
+        this.heap[i] = last;
+        return top;
+    }
+
+    /**
+     * Makes the next greedy merge: joins the two chains whose end and start
+     * overlap the most.
+     *
+     * @return the overlap of the merge, or 0 if no two chains overlap (and
+     *         nothing was merged)
+     */
+    public int mergeNext() {
+        long started = System.nanoTime();
+        int overlap = 0;
+        while (overlap == 0 && this.heapSize > 0) {
+            int x = (int) this.pop();
+            int v = this.cursorNode[x];
+            int y = this.index.fragmentAt(this.cursorPosition[x]);
+            if (this.chains.canJoin(x, y)) {
+                /*
+                 * x ends one chain and y starts another: join them
+                 */
+                overlap = this.index.depth(v);
+                long found = System.nanoTime();
+                this.stats.searched(found - started, this.candidates);
+                this.chains.join(x, y, overlap);
+                this.stats.merged(overlap, System.nanoTime() - found);
+            } else if (this.advance(x)) {
+                this.push(key(this.index.depth(this.cursorNode[x]), x));
+            }
+        }
+        if (overlap > 0) {
+            if (this.listener != null) {
+                this.listener.merged(this.stats);
+            }
+        } else {
+            this.stats.searched(System.nanoTime() - started, this.candidates);
+            if (this.listener != null && !this.finished) {
+                this.finished = true;
+                this.listener.finished(this.stats);
+            }
+        }
+        this.candidates = 0;
+        return overlap;
+    }
+
+    /**
+     * Reports the number of chains, i.e., of strings left.
+     *
+     * @return the number of chains
+     */
+    public int chains() {
+        return this.chains.count();
+    }
+
+    /**
+     * Returns the strings spelled by the chains, in order of the number of
+     * their first fragment.
+     *
+     * @return the strings
+     */
+    public String[] contigs() {
+        return this.chains.contigs();
+    }
+
+    /**
+     * Returns the statistics of the assembly so far; they are live, and
+     * change with each merge.
+     *
+     * @return the statistics
+     */
+    public AssemblyStats stats() {
+        return this.stats;
+    }
+
+    /**
+     * Returns the strings left after combining {@code fragments} greedily as
+     * much as possible.
+     *
+     * @param fragments
+     *            the fragments
+     * @return the assembled strings
+     * @requires [no fragment is a substring of another]
+     * @ensures [no string of assemble overlaps another]
+     */
+    public static String[] assemble(String[] fragments) {
+        return assemble(FragmentArena.of(fragments));
+    }
+
+    /**
+     * Returns the strings left after combining the fragments in
+     * {@code fragments} greedily as much as possible.
+     *
+     * @param fragments
+     *            the fragments
+     * @return the assembled strings
+     * @requires [no fragment is a substring of another]
+     * @ensures [no string of assemble overlaps another]
+     */
+    public static String[] assemble(FragmentArena fragments) {
+        return assemble(fragments, null);
+    }
+
+    /**
+     * Returns the strings left after combining the fragments in
+     * {@code fragments} greedily as much as possible, reporting the progress
+     * to {@code listener}.
+     *
+     * @param fragments
+     *            the fragments
+     * @param listener
+     *            listener to report to, or null
+     * @return the assembled strings
+     * @requires [no fragment is a substring of another]
+     * @ensures [no string of assemble overlaps another]
+     */
+    public static String[] assemble(FragmentArena fragments,
+            AssemblyListener listener) {
+        GreedyAssembler assembler = new GreedyAssembler(fragments, listener);
+        int overlap = assembler.mergeNext();
+        while (overlap > 0) {
+            overlap = assembler.mergeNext();
+        }
+        return assembler.contigs();
+    }
+
+    /**
+     * Returns the strings left after combining the fragments of
+     * {@code matrix} greedily as much as possible, using only the overlaps in
+     * matrix. With a matrix of all overlaps (minimum overlap 1) the merges,
+     * and so the result, are the same as those of
+     * {@code assemble(matrix.fragments())}.
+     *
+     * @param matrix
+     *            the overlaps of the fragments
+     * @return the assembled strings
+     * @requires [no fragment of matrix is a substring of another]
+     */
+    public static String[] assemble(OverlapMatrix matrix) {
+        return assemble(matrix, null);
+    }
+
+    /**
+     * Returns the strings left after combining the fragments of
+     * {@code matrix} greedily as much as possible, using only the overlaps in
+     * matrix, and reporting the progress to {@code listener}. The overlaps
+     * computed are the edges of matrix tried, and the search time is the
+     * time spent sorting and trying them; building matrix is not counted.
+     *
+     * @param matrix
+     *            the overlaps of the fragments
+     * @param listener
+     *            listener to report to, or null
+     * @return the assembled strings
+     * @requires [no fragment of matrix is a substring of another]
+     */
+    public static String[] assemble(OverlapMatrix matrix, AssemblyListener listener) {
+        assert matrix != null : "Violation of: matrix is not null";
+
+        AssemblyStats stats = new AssemblyStats(matrix.size());
+        long started = System.nanoTime();
+        long candidates = 0;
+        FragmentChains chains = new FragmentChains(matrix.fragments());
+        for (int e : matrix.byOverlap()) {
+            int x = matrix.source(e);
+            int y = matrix.target(e);
+            candidates++;
+            if (chains.canJoin(x, y)) {
+                long found = System.nanoTime();
+                stats.searched(found - started, candidates);
+                candidates = 0;
+                chains.join(x, y, matrix.overlap(e));
+                stats.merged(matrix.overlap(e), System.nanoTime() - found);
+                if (listener != null) {
+                    listener.merged(stats);
+                }
+                started = System.nanoTime();
+            }
+        }
+        stats.searched(System.nanoTime() - started, candidates);
+        if (listener != null) {
+            listener.finished(stats);
+        }
+        return chains.contigs();
+    }
+
+}
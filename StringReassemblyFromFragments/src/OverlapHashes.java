@@ -0,0 +1,139 @@
+/**
+ * Rolling (Rabin&ndash;Karp) hashes of a fixed list of fragments, for finding
+ * the overlap of many pairs of them. The hash of every prefix of every
+ * fragment is computed once, in time linear in the total length, and any
+ * suffix's hash is then found from two prefix hashes; so comparing a suffix
+ * of one fragment with a prefix of another takes constant time, whatever
+ * the length, and each fragment's hashes are shared by all of its pairings.
+ * The overlap of a pair is found by trying lengths from the longest down,
+ * comparing hashes, and confirming a match of hashes by comparing the
+ * characters; it takes O(|str1| + |str2|) expected time.
+ *
+ * <p>
+ * Hashes are polynomials in a fixed odd base with arithmetic modulo 2^64,
+ * which only affects how often hashes of different strings collide, not the
+ * results. An instance is not changed after construction, so it may be
+ * shared between threads.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class OverlapHashes {
+
+    /**
+     * Base of the hash polynomials.
+     */
+    private static final long BASE = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The fragments.
+     */
+    private final String[] fragments;
+
+    /**
+     * prefixHash[i][k] is the hash of the prefix of length k of fragment i.
+     */
+    private final long[][] prefixHash;
+
+    /**
+     * power[k] = BASE^k.
+     */
+    private final long[] power;
+
+    /**
+     * Computes the prefix hashes of {@code fragments}.
+     *
+     * @param fragments
+     *            the fragments
+     * @requires [fragments contains no null entry]
+     */
+    public OverlapHashes(String[] fragments) {
+        assert fragments != null : "Violation of: fragments is not null";
+
+        this.fragments = fragments.clone();
+        this.prefixHash = new long[fragments.length][];
+        int longest = 0;
+        for (int i = 0; i < fragments.length; i++) {
+            String str = fragments[i];
+            long[] hash = new long[str.length() + 1];
+            for (int k = 0; k < str.length(); k++) {
+                hash[k + 1] = hash[k] * BASE + str.charAt(k);
+            }
+            this.prefixHash[i] = hash;
+            longest = Math.max(longest, str.length());
+        }
+        this.power = new long[longest + 1];
+        this.power[0] = 1;
+        for (int k = 1; k <= longest; k++) {
+            this.power[k] = this.power[k - 1] * BASE;
+        }
+    }
+
+    /**
+     * Reports the number of fragments.
+     *
+     * @return the number of fragments
+     */
+    public int size() {
+        return this.fragments.length;
+    }
+
+    /**
+     * Returns the hash of the suffix of length {@code k} of fragment
+     * {@code i}.
+     *
+     * @param i
+     *            the fragment number
+     * @param k
+     *            the suffix length
+     * @return the hash
+     */
+    private long suffixHash(int i, int k) {
+        long[] hash = this.prefixHash[i];
+        int length = hash.length - 1;
+        return hash[length] - hash[length - k] * this.power[k];
+    }
+
+    /**
+     * Reports the maximum length of a common suffix of fragment {@code i} and
+     * prefix of fragment {@code j}; the same as
+     * {@code StringReassembly.overlap} of the two fragments.
+     *
+     * @param i
+     *            number of the first fragment
+     * @param j
+     *            number of the second fragment
+     * @return maximum overlap between right end of fragment i and left end of
+     *         fragment j
+     * @requires <pre>
+     * 0 <= i < size()  and  0 <= j < size()  and
+     * fragment i is not substring of fragment j  and
+     * fragment j is not substring of fragment i
+     * </pre>
+     * @ensures <pre>
+     * OVERLAPS(fragment i, fragment j, overlap)  and
+     * for all k: integer
+     *     where (overlap < k  and  k <= |fragment i|  and  k <= |fragment j|)
+     *  (not OVERLAPS(fragment i, fragment j, k))
+     * </pre>
+     */
+    public int overlap(int i, int j) {
+        assert 0 <= i && i < this.size() : "Violation of: 0 <= i < size()";
+        assert 0 <= j && j < this.size() : "Violation of: 0 <= j < size()";
+
+        String str1 = this.fragments[i];
+        String str2 = this.fragments[j];
+        long[] hash2 = this.prefixHash[j];
+        int k = Math.min(str1.length(), str2.length() - 1);
+        boolean found = false;
+        while (k > 0 && !found) {
+            found = this.suffixHash(i, k) == hash2[k]
+                    && str1.regionMatches(str1.length() - k, str2, 0, k);
+            if (!found) {
+                k--;
+            }
+        }
+        return Math.max(k, 0);
+    }
+
+}
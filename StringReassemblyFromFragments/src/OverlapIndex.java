@@ -0,0 +1,611 @@
+import java.util.Arrays;
+
+/**
+ * Index of a fixed list of fragments that finds, for every fragment, the
+ * longest overlap between its suffix and the prefix of another fragment. It
+ * is an Aho&ndash;Corasick automaton over the fragments: the nodes of a trie
+ * of all fragments are exactly their prefixes, and the failure link of a
+ * node leads to the node of its longest proper suffix that is also a prefix
+ * of some fragment. So the failure chain from the node of a fragment visits,
+ * longest first, every suffix of that fragment that is the prefix of some
+ * fragment, and the first one that is a prefix of a fragment other than
+ * itself gives the best overlap. Building the index and answering one query
+ * per fragment both take time linear in the total length of the fragments
+ * (times the number of distinct characters at a branch, for the child
+ * lookups).
+ *
+ * <p>
+ * Fragments are numbered in the order given. When several fragments tie for
+ * the best overlap with a fragment, the one with the smallest number is
+ * reported. An index is not changed after construction, so it may be shared
+ * between threads.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class OverlapIndex {
+
+    /**
+     * The root node, i.e., the empty prefix.
+     */
+    static final int ROOT = 0;
+
+    /**
+     * Marks a missing node or fragment.
+     */
+    static final int NONE = -1;
+
+    /**
+     * Number of fragments.
+     */
+    private final int count;
+
+    /**
+     * Length of each fragment.
+     */
+    private final int[] lengths;
+
+    /**
+     * Node of each fragment, i.e., of its full text.
+     */
+    private final int[] fragmentNode;
+
+    /**
+     * Number of nodes in the trie.
+     */
+    private int nodes;
+
+    /**
+     * Character on the edge into each node.
+     */
+    private char[] label;
+
+    /**
+     * First child of each node, or NONE.
+     */
+    private int[] firstChild;
+
+    /**
+     * Next sibling of each node, or NONE.
+     */
+    private int[] nextSibling;
+
+    /**
+     * Parent of each node (NONE for the root).
+     */
+    private int[] parent;
+
+    /**
+     * Depth of each node, i.e., the length of its prefix.
+     */
+    private int[] depth;
+
+    /**
+     * Failure link of each node.
+     */
+    private int[] fail;
+
+    /**
+     * Smallest number of a fragment that starts with the prefix of each
+     * node, or NONE.
+     */
+    private int[] first;
+
+    /**
+     * Second smallest number of a fragment that starts with the prefix of
+     * each node, or NONE.
+     */
+    private int[] second;
+
+    /**
+     * Number of fragments whose full text is the prefix of each node.
+     */
+    private int[] ending;
+
+    /**
+     * Output link of each node: the deepest node on its failure chain,
+     * excluding itself, whose prefix is a whole fragment, or NONE.
+     */
+    private int[] output;
+
+    /**
+     * Fragment numbers in depth-first order of their nodes, so that the
+     * fragments starting with the prefix of a node are contiguous.
+     */
+    private int[] sorted;
+
+    /**
+     * Start of each node's fragments in sorted.
+     */
+    private int[] low;
+
+    /**
+     * End (exclusive) of each node's fragments in sorted.
+     */
+    private int[] high;
+
+    /**
+     * Constructs the index of {@code fragments}.
+     *
+     * @param fragments
+     *            the fragments
+     * @requires [fragments contains no null entry]
+     */
+    public OverlapIndex(String[] fragments) {
+        this(FragmentArena.of(fragments));
+    }
+
+    /**
+     * Constructs the index of the fragments in {@code fragments}.
+     *
+     * @param fragments
+     *            the fragments
+     */
+    public OverlapIndex(FragmentArena fragments) {
+        assert fragments != null : "Violation of: fragments is not null";
+
+        this.count = fragments.size();
+        this.lengths = new int[this.count];
+        this.fragmentNode = new int[this.count];
+        int total = 0;
+        for (int i = 0; i < this.count; i++) {
+            this.lengths[i] = fragments.length(i);
+            total += this.lengths[i];
+        }
+        this.allocate(total + 1);
+        for (int i = 0; i < this.count; i++) {
+            int node = ROOT;
+            for (int p = 0; p < this.lengths[i]; p++) {
+                node = this.childOrNew(node, fragments.charAt(i, p));
+            }
+            this.fragmentNode[i] = node;
+        }
+        this.link();
+    }
+
+    /**
+     * Allocates the node arrays for up to {@code capacity} nodes and creates
+     * the root.
+     *
+     * @param capacity
+     *            largest number of nodes
+     */
+    private void allocate(int capacity) {
+        this.label = new char[capacity];
+        this.firstChild = new int[capacity];
+        this.nextSibling = new int[capacity];
+        this.parent = new int[capacity];
+        this.depth = new int[capacity];
+        this.fail = new int[capacity];
+        this.first = new int[capacity];
+        this.second = new int[capacity];
+        this.low = new int[capacity];
+        this.high = new int[capacity];
+        this.ending = new int[capacity];
+        this.output = new int[capacity];
+        this.nodes = 1;
+        this.firstChild[ROOT] = NONE;
+        this.nextSibling[ROOT] = NONE;
+        this.parent[ROOT] = NONE;
+    }
+
+    /**
+     * Returns the child of {@code node} along character {@code c}, or NONE.
+     *
+     * @param node
+     *            the node
+     * @param c
+     *            the character
+     * @return the child, or NONE
+     */
+    private int child(int node, char c) {
+        int v = this.firstChild[node];
+        while (v != NONE && this.label[v] != c) {
+            v = this.nextSibling[v];
+        }
+        return v;
+    }
+
+    /**
+     * Returns the child of {@code node} along character {@code c}, creating
+     * it if there is none.
+     *
+     * @param node
+     *            the node
+     * @param c
+     *            the character
+     * @return the child
+     */
+    private int childOrNew(int node, char c) {
+        int v = this.child(node, c);
+        if (v == NONE) {
+            v = this.nodes;
+            this.nodes++;
+            this.label[v] = c;
+            this.firstChild[v] = NONE;
+            this.nextSibling[v] = this.firstChild[node];
+            this.firstChild[node] = v;
+            this.parent[v] = node;
+            this.depth[v] = this.depth[node] + 1;
+        }
+        return v;
+    }
+
+    /**
+     * Computes the failure links, in breadth-first order, then the output
+     * links, and the two smallest fragment numbers below every node, in
+     * reverse breadth-first order.
+     */
+    private void link() {
+        int[] order = new int[this.nodes];
+        int head = 0;
+        int tail = 0;
+        order[tail] = ROOT;
+        tail++;
+        this.fail[ROOT] = ROOT;
+        while (head < tail) {
+            int u = order[head];
+            head++;
+            for (int v = this.firstChild[u]; v != NONE; v = this.nextSibling[v]) {
+                /*
+                 * The longest proper suffix of v's prefix that is a prefix:
+                 * extend a suffix of u's prefix by v's character
+                 */
+                int f = NONE;
+                if (u != ROOT) {
+                    int w = this.fail[u];
+                    f = this.child(w, this.label[v]);
+                    while (f == NONE && w != ROOT) {
+                        w = this.fail[w];
+                        f = this.child(w, this.label[v]);
+                    }
+                }
+                if (f == NONE) {
+                    f = ROOT;
+                }
+                this.fail[v] = f;
+                order[tail] = v;
+                tail++;
+            }
+        }
+
+        for (int i = 0; i < this.count; i++) {
+            this.ending[this.fragmentNode[i]]++;
+        }
+        this.output[ROOT] = NONE;
+        for (int k = 1; k < this.nodes; k++) {
+            int f = this.fail[order[k]];
+            if (this.ending[f] > 0) {
+                this.output[order[k]] = f;
+            } else {
+                this.output[order[k]] = this.output[f];
+            }
+        }
+
+        Arrays.fill(this.first, 0, this.nodes, NONE);
+        Arrays.fill(this.second, 0, this.nodes, NONE);
+        for (int i = 0; i < this.count; i++) {
+            this.offer(this.fragmentNode[i], i);
+        }
+        for (int k = this.nodes - 1; k > 0; k--) {
+            int v = order[k];
+            this.offer(this.parent[v], this.first[v]);
+            this.offer(this.parent[v], this.second[v]);
+        }
+
+        this.arrange(order);
+    }
+
+    /**
+     * Computes sorted, low and high by a depth-first traversal.
+     *
+     * @param scratch
+     *            an array of at least as many entries as there are nodes
+     */
+    private void arrange(int[] scratch) {
+        /*
+         * Fragments ending at each node, as linked lists
+         */
+        int[] endHead = new int[this.nodes];
+        int[] endNext = new int[this.count];
+        Arrays.fill(endHead, NONE);
+        for (int i = this.count - 1; i >= 0; i--) {
+            endNext[i] = endHead[this.fragmentNode[i]];
+            endHead[this.fragmentNode[i]] = i;
+        }
+
+        /*
+         * pending[v] is the next child of v to visit, for v on the stack
+         */
+        int[] stack = scratch;
+        int[] pending = new int[this.nodes];
+        this.sorted = new int[this.count];
+        int position = 0;
+        int top = 0;
+        stack[top] = ROOT;
+        top++;
+        for (int i = endHead[ROOT]; i != NONE; i = endNext[i]) {
+            this.sorted[position] = i;
+            position++;
+        }
+        pending[ROOT] = this.firstChild[ROOT];
+        while (top > 0) {
+            int v = stack[top - 1];
+            int c = pending[v];
+            if (c == NONE) {
+                this.high[v] = position;
+                top--;
+            } else {
+                pending[v] = this.nextSibling[c];
+                this.low[c] = position;
+                for (int i = endHead[c]; i != NONE; i = endNext[i]) {
+                    this.sorted[position] = i;
+                    position++;
+                }
+                pending[c] = this.firstChild[c];
+                stack[top] = c;
+                top++;
+            }
+        }
+    }
+
+    /**
+     * Records fragment {@code i} as starting with the prefix of
+     * {@code node}, keeping the two smallest such numbers.
+     *
+     * @param node
+     *            the node
+     * @param i
+     *            the fragment number, or NONE
+     */
+    private void offer(int node, int i) {
+        if (i != NONE && i != this.first[node] && i != this.second[node]) {
+            if (this.first[node] == NONE || i < this.first[node]) {
+                this.second[node] = this.first[node];
+                this.first[node] = i;
+            } else if (this.second[node] == NONE || i < this.second[node]) {
+                this.second[node] = i;
+            }
+        }
+    }
+
+    /**
+     * Returns the deepest node on the failure chain of fragment {@code i}
+     * that is the prefix of a fragment other than {@code i}, or ROOT.
+     *
+     * @param i
+     *            the fragment number
+     * @return the node
+     */
+    private int bestNode(int i) {
+        int v = this.fail[this.fragmentNode[i]];
+        while (v != ROOT && this.other(v, i) == NONE) {
+            v = this.fail[v];
+        }
+        return v;
+    }
+
+    /**
+     * Returns the smallest number other than {@code i} of a fragment that
+     * starts with the prefix of {@code node}, or NONE.
+     *
+     * @param node
+     *            the node
+     * @param i
+     *            the fragment number to avoid
+     * @return the fragment number, or NONE
+     */
+    private int other(int node, int i) {
+        int result = this.first[node];
+        if (result == i) {
+            result = this.second[node];
+        }
+        return result;
+    }
+
+    /**
+     * Reports the node of fragment {@code i}, i.e., of its full text.
+     *
+     * @param i
+     *            the fragment number
+     * @return the node
+     */
+    int node(int i) {
+        return this.fragmentNode[i];
+    }
+
+    /**
+     * Reports the failure link of {@code node}: the node of the longest
+     * proper suffix of its prefix that is the prefix of some fragment.
+     *
+     * @param node
+     *            the node
+     * @return the failure link
+     */
+    int failure(int node) {
+        return this.fail[node];
+    }
+
+    /**
+     * Reports the length of the prefix of {@code node}.
+     *
+     * @param node
+     *            the node
+     * @return the prefix length
+     */
+    int depth(int node) {
+        return this.depth[node];
+    }
+
+    /**
+     * Reports where the fragments that start with the prefix of
+     * {@code node} begin in depth-first order.
+     *
+     * @param node
+     *            the node
+     * @return the first position, for fragmentAt
+     */
+    int low(int node) {
+        return this.low[node];
+    }
+
+    /**
+     * Reports where the fragments that start with the prefix of
+     * {@code node} end in depth-first order.
+     *
+     * @param node
+     *            the node
+     * @return one past the last position, for fragmentAt
+     */
+    int high(int node) {
+        return this.high[node];
+    }
+
+    /**
+     * Reports the fragment at {@code position} in depth-first order.
+     *
+     * @param position
+     *            the position
+     * @return the fragment number
+     */
+    int fragmentAt(int position) {
+        return this.sorted[position];
+    }
+
+    /**
+     * Returns the numbers of the fragments that are substrings of
+     * {@code text}, in increasing order and each once. This takes time
+     * linear in the length of text plus the number of occurrences of
+     * fragments in it.
+     *
+     * @param text
+     *            the text to search
+     * @return the fragment numbers
+     * @ensures <pre>
+     * occurrencesIn = [numbers, in increasing order, of the fragments that
+     *                  are substrings of text]
+     * </pre>
+     */
+    public int[] occurrencesIn(String text) {
+        assert text != null : "Violation of: text is not null";
+
+        return this.occurrencesIn(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * Returns the numbers of the fragments that are substrings of
+     * {@code text[from, from + length)}, in increasing order and each once.
+     *
+     * @param text
+     *            characters of the text to search
+     * @param from
+     *            position of the text in the array
+     * @param length
+     *            length of the text
+     * @return the fragment numbers
+     * @requires 0 <= from and 0 <= length and from + length <= |text|
+     * @ensures <pre>
+     * occurrencesIn = [numbers, in increasing order, of the fragments that
+     *                  are substrings of text[from, from + length)]
+     * </pre>
+     */
+    public int[] occurrencesIn(char[] text, int from, int length) {
+        assert text != null : "Violation of: text is not null";
+
+        int[] found = new int[Math.min(this.count, length + 1)];
+        int size = 0;
+        int v = ROOT;
+        /*
+         * The empty fragment, if any, occurs once before the first character
+         */
+        for (int e = 0; e < this.ending[ROOT]; e++) {
+            found[size] = this.sorted[e];
+            size++;
+        }
+        for (int p = from; p < from + length; p++) {
+            char c = text[p];
+            int w = this.child(v, c);
+            while (w == NONE && v != ROOT) {
+                v = this.fail[v];
+                w = this.child(v, c);
+            }
+            if (w != NONE) {
+                v = w;
+            }
+            int u = this.output[v];
+            if (this.ending[v] > 0) {
+                u = v;
+            }
+            while (u != NONE) {
+                for (int e = 0; e < this.ending[u]; e++) {
+                    if (size == found.length) {
+                        found = Arrays.copyOf(found, 2 * size + 1);
+                    }
+                    found[size] = this.sorted[this.low[u] + e];
+                    size++;
+                }
+                u = this.output[u];
+            }
+        }
+        Arrays.sort(found, 0, size);
+        int distinct = 0;
+        for (int k = 0; k < size; k++) {
+            if (distinct == 0 || found[distinct - 1] != found[k]) {
+                found[distinct] = found[k];
+                distinct++;
+            }
+        }
+        return Arrays.copyOf(found, distinct);
+    }
+
+    /**
+     * Reports the number of fragments.
+     *
+     * @return the number of fragments
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Reports the largest overlap between the suffix of fragment {@code i}
+     * and the prefix of another fragment.
+     *
+     * @param i
+     *            the fragment number
+     * @return the overlap, or 0 if there is none
+     * @requires 0 <= i < size() and [no fragment is a substring of another]
+     * @ensures <pre>
+     * there exists j /= i such that OVERLAPS(fragment i, fragment j,
+     *     bestOverlap)  and
+     * for all j /= i, k: integer
+     *     where (OVERLAPS(fragment i, fragment j, k))  (k <= bestOverlap)
+     * </pre>
+     */
+    public int bestOverlap(int i) {
+        assert 0 <= i && i < this.count : "Violation of: 0 <= i < size()";
+
+        return this.depth[this.bestNode(i)];
+    }
+
+    /**
+     * Reports the fragment whose prefix overlaps the suffix of fragment
+     * {@code i} the most, the one with the smallest number if several do.
+     *
+     * @param i
+     *            the fragment number
+     * @return the fragment number, or -1 if no fragment overlaps fragment i
+     * @requires 0 <= i < size() and [no fragment is a substring of another]
+     */
+    public int bestSuccessor(int i) {
+        assert 0 <= i && i < this.count : "Violation of: 0 <= i < size()";
+
+        int v = this.bestNode(i);
+        int result = NONE;
+        if (v != ROOT) {
+            result = this.other(v, i);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,362 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * The overlaps of at least a minimum length between the fragments of a
+ * {@code FragmentArena}, as a sparse matrix in compressed sparse row form:
+ * for each ordered pair (x, y) of different fragments whose suffix of x
+ * overlaps the prefix of y by the most, an edge x &rarr; y records that
+ * overlap. Edges are numbered row by row, and within the row of x in
+ * decreasing order of overlap (the order in which the failure chain of x in
+ * the fragments' {@code OverlapIndex} meets them).
+ *
+ * <p>
+ * The rows are computed in parallel on a {@code ForkJoinPool}, one task per
+ * range of rows, each task walking the failure chains of its fragments in the
+ * shared index; the ranges are then concatenated in order, so the matrix
+ * depends only on the fragments and the minimum overlap. With a minimum
+ * overlap of 1 there can be an edge for nearly every pair, so large fragment
+ * sets call for a larger minimum.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class OverlapMatrix {
+
+    /**
+     * Number of row ranges per worker thread.
+     */
+    private static final int TASKS_PER_THREAD = 4;
+
+    /**
+     * The fragments.
+     */
+    private final FragmentArena fragments;
+
+    /**
+     * Shortest overlap recorded.
+     */
+    private final int minOverlap;
+
+    /**
+     * First edge of each row; rowStart[size()] is the number of edges.
+     */
+    private final int[] rowStart;
+
+    /**
+     * Source fragment of each edge.
+     */
+    private final int[] source;
+
+    /**
+     * Target fragment of each edge.
+     */
+    private final int[] target;
+
+    /**
+     * Overlap of each edge.
+     */
+    private final int[] overlap;
+
+    /**
+     * Computes the overlaps of at least {@code minOverlap} characters between
+     * the fragments in {@code fragments}, on the common pool.
+     *
+     * @param fragments
+     *            the fragments
+     * @param minOverlap
+     *            shortest overlap to record
+     * @requires minOverlap > 0 and [no fragment is a substring of another]
+     */
+    public OverlapMatrix(FragmentArena fragments, int minOverlap) {
+        this(fragments, minOverlap, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the overlaps of at least {@code minOverlap} characters between
+     * the fragments in {@code fragments}, on {@code pool}. The arena must not
+     * be changed while the matrix is in use.
+     *
+     * @param fragments
+     *            the fragments
+     * @param minOverlap
+     *            shortest overlap to record
+     * @param pool
+     *            the pool that runs the row tasks
+     * @requires minOverlap > 0 and [no fragment is a substring of another]
+     */
+    public OverlapMatrix(FragmentArena fragments, int minOverlap, ForkJoinPool pool) {
+        assert fragments != null : "Violation of: fragments is not null";
+        assert minOverlap > 0 : "Violation of: minOverlap > 0";
+        assert pool != null : "Violation of: pool is not null";
+
+        this.fragments = fragments;
+        this.minOverlap = minOverlap;
+        int n = fragments.size();
+        OverlapIndex index = new OverlapIndex(fragments);
+        int[] degree = new int[n];
+        int chunk = Math.max(1,
+                (n + TASKS_PER_THREAD * pool.getParallelism() - 1)
+                        / (TASKS_PER_THREAD * pool.getParallelism()));
+        List<Callable<int[][]>> tasks = new ArrayList<>();
+        for (int from = 0; from < n; from += chunk) {
+            int start = from;
+            int end = Math.min(n, from + chunk);
+            tasks.add(() -> rows(index, minOverlap, start, end, degree));
+        }
+        List<int[][]> results = new ArrayList<>();
+        for (Future<int[][]> result : pool.invokeAll(tasks)) {
+            results.add(join(result));
+        }
+
+        this.rowStart = new int[n + 1];
+        long edges = 0;
+        for (int x = 0; x < n; x++) {
+            this.rowStart[x] = (int) edges;
+            edges += degree[x];
+            if (edges > Integer.MAX_VALUE) {
+                throw new IllegalStateException(
+                        "More than " + Integer.MAX_VALUE + " overlaps; raise minOverlap");
+            }
+        }
+        this.rowStart[n] = (int) edges;
+        this.source = new int[(int) edges];
+        this.target = new int[(int) edges];
+        this.overlap = new int[(int) edges];
+        int e = 0;
+        for (int[][] rows : results) {
+            System.arraycopy(rows[0], 0, this.target, e, rows[0].length);
+            System.arraycopy(rows[1], 0, this.overlap, e, rows[1].length);
+            e += rows[0].length;
+        }
+        for (int x = 0; x < n; x++) {
+            for (int k = this.rowStart[x]; k < this.rowStart[x + 1]; k++) {
+                this.source[k] = x;
+            }
+        }
+    }
+
+    /**
+     * Computes the rows of fragments {@code from} to {@code to - 1}.
+     *
+     * @param index
+     *            the index of the fragments
+     * @param minOverlap
+     *            shortest overlap to record
+     * @param from
+     *            first fragment
+     * @param to
+     *            one past the last fragment
+     * @param degree
+     *            where to store the number of edges of each row
+     * @return the targets and the overlaps of the edges of the rows, in order
+     * @updates degree[from, to)
+     */
+    private static int[][] rows(OverlapIndex index, int minOverlap, int from, int to,
+            int[] degree) {
+        /*
+         * seen[y] = x + 1 once y is in the row of x; a fragment can be met at
+         * several nodes of a failure chain, and the first (deepest) counts
+         */
+        int[] seen = new int[index.size()];
+        IntList targets = new IntList();
+        IntList overlaps = new IntList();
+        for (int x = from; x < to; x++) {
+            int before = targets.size;
+            int v = index.failure(index.node(x));
+            while (v != OverlapIndex.ROOT && index.depth(v) >= minOverlap) {
+                for (int p = index.low(v); p < index.high(v); p++) {
+                    int y = index.fragmentAt(p);
+                    if (y != x && seen[y] != x + 1) {
+                        seen[y] = x + 1;
+                        targets.add(y);
+                        overlaps.add(index.depth(v));
+                    }
+                }
+                v = index.failure(v);
+            }
+            degree[x] = targets.size - before;
+        }
+        return new int[][] { targets.toArray(), overlaps.toArray() };
+    }
+
+    /**
+     * A growable list of {@code int}s.
+     */
+    private static final class IntList {
+
+        /**
+         * The entries.
+         */
+        private int[] items = new int[16];
+
+        /**
+         * Number of entries.
+         */
+        private int size = 0;
+
+        /**
+         * Appends {@code value}.
+         *
+         * @param value
+         *            the value
+         */
+        private void add(int value) {
+            if (this.size == this.items.length) {
+                this.items = Arrays.copyOf(this.items, 2 * this.size);
+            }
+            this.items[this.size] = value;
+            this.size++;
+        }
+
+        /**
+         * Returns the entries.
+         *
+         * @return a new array of the entries
+         */
+        private int[] toArray() {
+            return Arrays.copyOf(this.items, this.size);
+        }
+
+    }
+
+    /**
+     * Waits for and returns the value of a completed row task.
+     *
+     * @param result
+     *            the task's future
+     * @return the task's value
+     */
+    private static int[][] join(Future<int[][]> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing overlaps", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Overlap computation failed", e.getCause());
+        }
+    }
+
+    /**
+     * Reports the fragments.
+     *
+     * @return the fragments
+     */
+    public FragmentArena fragments() {
+        return this.fragments;
+    }
+
+    /**
+     * Reports the shortest overlap recorded.
+     *
+     * @return the minimum overlap
+     */
+    public int minOverlap() {
+        return this.minOverlap;
+    }
+
+    /**
+     * Reports the number of fragments.
+     *
+     * @return the number of fragments
+     */
+    public int size() {
+        return this.rowStart.length - 1;
+    }
+
+    /**
+     * Reports the number of edges.
+     *
+     * @return the number of edges
+     */
+    public int edges() {
+        return this.rowStart[this.size()];
+    }
+
+    /**
+     * Reports the number of the first edge of the row of fragment {@code x};
+     * the row's edges are rowStart(x) to rowStart(x + 1) - 1.
+     *
+     * @param x
+     *            the fragment, or size()
+     * @return the number of the first edge of x, or edges() if x = size()
+     * @requires 0 <= x <= size()
+     */
+    public int rowStart(int x) {
+        assert 0 <= x && x <= this.size() : "Violation of: 0 <= x <= size()";
+
+        return this.rowStart[x];
+    }
+
+    /**
+     * Reports the source fragment of edge {@code e}.
+     *
+     * @param e
+     *            the edge
+     * @return the fragment whose suffix overlaps
+     * @requires 0 <= e < edges()
+     */
+    public int source(int e) {
+        return this.source[e];
+    }
+
+    /**
+     * Reports the target fragment of edge {@code e}.
+     *
+     * @param e
+     *            the edge
+     * @return the fragment whose prefix overlaps
+     * @requires 0 <= e < edges()
+     */
+    public int target(int e) {
+        return this.target[e];
+    }
+
+    /**
+     * Reports the overlap of edge {@code e}.
+     *
+     * @param e
+     *            the edge
+     * @return the overlap
+     * @requires 0 <= e < edges()
+     */
+    public int overlap(int e) {
+        return this.overlap[e];
+    }
+
+    /**
+     * Returns the edges in decreasing order of overlap, and in increasing
+     * order of number among equal overlaps; the order in which the greedy
+     * assembler considers them. This takes time linear in the number of edges
+     * and the longest overlap (a counting sort).
+     *
+     * @return the edge numbers, in that order
+     */
+    public int[] byOverlap() {
+        int longest = 0;
+        for (int k : this.overlap) {
+            longest = Math.max(longest, k);
+        }
+        int[] start = new int[longest + 2];
+        for (int k : this.overlap) {
+            start[longest - k + 1]++;
+        }
+        for (int k = 1; k < start.length; k++) {
+            start[k] += start[k - 1];
+        }
+        int[] order = new int[this.overlap.length];
+        for (int e = 0; e < this.overlap.length; e++) {
+            int bucket = longest - this.overlap[e];
+            order[start[bucket]] = e;
+            start[bucket]++;
+        }
+        return order;
+    }
+
+}
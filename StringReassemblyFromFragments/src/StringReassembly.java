@@ -1,3 +1,14 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
 import components.set.Set;
 import components.set.Set1L;
 import components.simplereader.SimpleReader;
@@ -69,6 +80,24 @@ public final class StringReassembly {
     private StringReassembly() {
     }
 
+    /**
+     * Shortest overlap used by the unitig engine of main unless another is
+     * given; shorter overlaps between text fragments are mostly chance
+     * matches of common words.
+     */
+    private static final int DEFAULT_UNITIG_OVERLAP = 20;
+
+    /**
+     * Size in bytes of the buffer printWithLineSeparators encodes into when
+     * writing to a channel.
+     */
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Milliseconds per second, for the progress option of main.
+     */
+    private static final double MILLIS_PER_SECOND = 1000;
+
     /**
      * Reports the maximum length of a common suffix of {@code str1} and prefix
      * of {@code str2}.
@@ -98,15 +127,51 @@ public final class StringReassembly {
         assert str1.indexOf(str2) < 0
                 : "Violation of: " + "str2 is not substring of str1";
         /*
-         * Start with maximum possible overlap and work down until a match is
-         * found; think about it and try it on some examples to see why
-         * iterating in the other direction doesn't work
+         * Run the Knuth-Morris-Pratt matcher for str2 over the tail of str1
+         * that could overlap it (fewer than |str2| characters, as str2 is not
+         * a substring of str1); the length of the prefix of str2 matched at
+         * the end is the longest suffix of str1 that is a prefix of str2.
+         * This takes O(|str1| + |str2|) time, instead of trying every length
+         * from the longest down
          */
-        int maxOverlap = str2.length() - 1;
-        while (!str1.regionMatches(str1.length() - maxOverlap, str2, 0, maxOverlap)) {
-            maxOverlap--;
+        int[] border = borders(str2);
+        int matched = 0;
+        int start = Math.max(0, str1.length() - str2.length() + 1);
+        for (int p = start; p < str1.length(); p++) {
+            char c = str1.charAt(p);
+            while (matched > 0 && str2.charAt(matched) != c) {
+                matched = border[matched - 1];
+            }
+            if (str2.charAt(matched) == c) {
+                matched++;
+            }
         }
-        return maxOverlap;
+        return matched;
+    }
+
+    /**
+     * Returns the prefix function of {@code str}: for each prefix, the length
+     * of its longest proper prefix that is also its suffix.
+     *
+     * @param str
+     *            the string
+     * @return the array whose entry i is the longest border of the prefix of
+     *         length i + 1
+     */
+    private static int[] borders(String str) {
+        int[] border = new int[str.length()];
+        int k = 0;
+        for (int i = 1; i < str.length(); i++) {
+            char c = str.charAt(i);
+            while (k > 0 && str.charAt(k) != c) {
+                k = border[k - 1];
+            }
+            if (str.charAt(k) == c) {
+                k++;
+            }
+            border[i] = k;
+        }
+        return border;
     }
 
     /**
@@ -217,108 +282,53 @@ public final class StringReassembly {
         assert input != null : "Violation of: input is not null";
         assert input.isOpen() : "Violation of: input.is_open";
 
-        // TODO: fill in body
-        // initialize the set for the result
-        Set<String> strSet = new Set1L<>();
-        // process each line
+        /*
+         * SubstringFilter keeps the same lines as addToSetAvoidingSubstrings
+         * would, without comparing each line with all those kept so far
+         */
+        SubstringFilter filter = new SubstringFilter();
         while (!input.atEOS()) {
-            String line = input.nextLine();
-            addToSetAvoidingSubstrings(strSet, line);
+            filter.add(input.nextLine());
+        }
+        Set<String> strSet = new Set1L<>();
+        for (String line : filter.kept()) {
+            strSet.add(line);
         }
 
         return strSet;
     }
 
     /**
-     * Returns the longest overlap between the suffix of one string and the
-     * prefix of another string in {@code strSet}, and identifies the two
-     * strings that achieve that overlap.
+     * Combines strings in {@code strSet} as much as possible, leaving in it
+     * only strings that have no overlap between a suffix of one string and a
+     * prefix of another. Note: uses a "greedy approach" to assembly, hence may
+     * not result in {@code strSet} being as small a set as possible at the end.
      *
      * @param strSet
-     *            the set of strings examined
-     * @param bestTwo
-     *            an array containing (upon return) the two strings with the
-     *            largest such overlap between the suffix of {@code bestTwo[0]}
-     *            and the prefix of {@code bestTwo[1]}
-     * @return the amount of overlap between those two strings
-     * @replaces bestTwo[0], bestTwo[1]
-     * @requires <pre>
-     * CONTAINS_NO_SUBSTRING_PAIRS(strSet)  and
-     * bestTwo.length >= 2
-     * </pre>
+     *            set of strings
+     * @updates strSet
+     * @requires CONTAINS_NO_SUBSTRING_PAIRS(strSet)
      * @ensures <pre>
-     * bestTwo[0] is in strSet  and
-     * bestTwo[1] is in strSet  and
-     * OVERLAPS(bestTwo[0], bestTwo[1], bestOverlap)  and
-     * for all str1, str2: string of character, overlap: integer
-     *     where (str1 is in strSet  and  str2 is in strSet  and
-     *            OVERLAPS(str1, str2, overlap))
-     *   (overlap <= bestOverlap)
+     * ALL_SUPERSTRINGS(strSet) is subset of ALL_SUPERSTRINGS(#strSet)  and
+     * |strSet| <= |#strSet|  and
+     * CONTAINS_NO_SUBSTRING_PAIRS(strSet)  and
+     * CONTAINS_NO_OVERLAPPING_PAIRS(strSet)
      * </pre>
      */
-    private static int bestOverlap(Set<String> strSet, String[] bestTwo) {
-        assert strSet != null : "Violation of: strSet is not null";
-        assert bestTwo != null : "Violation of: bestTwo is not null";
-        assert bestTwo.length >= 2 : "Violation of: bestTwo.length >= 2";
-        /*
-         * Note: Rest of precondition not checked!
-         */
-        int bestOverlap = 0;
-        Set<String> processed = strSet.newInstance();
-        while (strSet.size() > 0) {
-            /*
-             * Remove one string from strSet to check against all others
-             */
-            String str0 = strSet.removeAny();
-            for (String str1 : strSet) {
-                /*
-                 * Check str0 and str1 for overlap first in one order...
-                 */
-                int overlapFrom0To1 = overlap(str0, str1);
-                if (overlapFrom0To1 > bestOverlap) {
-                    /*
-                     * Update best overlap found so far, and the two strings
-                     * that produced it
-                     */
-                    bestOverlap = overlapFrom0To1;
-                    bestTwo[0] = str0;
-                    bestTwo[1] = str1;
-                }
-                /*
-                 * ... and then in the other order
-                 */
-                int overlapFrom1To0 = overlap(str1, str0);
-                if (overlapFrom1To0 > bestOverlap) {
-                    /*
-                     * Update best overlap found so far, and the two strings
-                     * that produced it
-                     */
-                    bestOverlap = overlapFrom1To0;
-                    bestTwo[0] = str1;
-                    bestTwo[1] = str0;
-                }
-            }
-            /*
-             * Record that str0 has been checked against every other string in
-             * strSet
-             */
-            processed.add(str0);
-        }
-        /*
-         * Restore strSet and return best overlap
-         */
-        strSet.transferFrom(processed);
-        return bestOverlap;
+    public static void assemble(Set<String> strSet) {
+        assemble(strSet, null);
     }
 
     /**
-     * Combines strings in {@code strSet} as much as possible, leaving in it
-     * only strings that have no overlap between a suffix of one string and a
-     * prefix of another. Note: uses a "greedy approach" to assembly, hence may
-     * not result in {@code strSet} being as small a set as possible at the end.
+     * Combines strings in {@code strSet} as much as possible, as
+     * {@code assemble(strSet)} does, reporting the progress (strings left,
+     * overlaps computed, merge rate, and where the time goes) to
+     * {@code listener}; an {@code AssemblyReport} prints it periodically.
      *
      * @param strSet
      *            set of strings
+     * @param listener
+     *            listener to report to, or null
      * @updates strSet
      * @requires CONTAINS_NO_SUBSTRING_PAIRS(strSet)
      * @ensures <pre>
@@ -328,41 +338,36 @@ public final class StringReassembly {
      * CONTAINS_NO_OVERLAPPING_PAIRS(strSet)
      * </pre>
      */
-    public static void assemble(Set<String> strSet) {
+    public static void assemble(Set<String> strSet, AssemblyListener listener) {
         assert strSet != null : "Violation of: strSet is not null";
         /*
          * Note: Precondition not checked!
          */
         /*
-         * Combine strings as much possible, being greedy
+         * Combine strings as much possible, being greedy; GreedyAssembler
+         * makes the same merges as repeatedly replacing the two
+         * most-overlapping strings with their combination, without
+         * rescanning the remaining strings after every merge
          */
-        boolean done = false;
-        while ((strSet.size() > 1) && !done) {
-            String[] bestTwo = new String[2];
-            int bestOverlap = bestOverlap(strSet, bestTwo);
-            if (bestOverlap == 0) {
-                /*
-                 * No overlapping strings remain; can't do any more
-                 */
-                done = true;
-            } else {
-                /*
-                 * Replace the two most-overlapping strings with their
-                 * combination; this can be done with add rather than
-                 * addToSetAvoidingSubstrings because the latter would do the
-                 * same thing (this claim requires justification)
-                 */
-                strSet.remove(bestTwo[0]);
-                strSet.remove(bestTwo[1]);
-                String overlapped = combination(bestTwo[0], bestTwo[1], bestOverlap);
-                strSet.add(overlapped);
-            }
+        String[] fragments = new String[strSet.size()];
+        int n = 0;
+        for (String str : strSet) {
+            fragments[n] = str;
+            n++;
+        }
+        String[] assembled = GreedyAssembler.assemble(FragmentArena.of(fragments),
+                listener);
+        strSet.clear();
+        for (String str : assembled) {
+            strSet.add(str);
         }
     }
 
     /**
      * Prints the string {@code text} to {@code out}, replacing each '~' with a
-     * line separator.
+     * line separator. The text between consecutive '~'s is found with
+     * {@code indexOf} and printed as one string, rather than a character at a
+     * time.
      *
      * @param text
      *            string to be output
@@ -381,15 +386,170 @@ public final class StringReassembly {
         assert out != null : "Violation of: out is not null";
         assert out.isOpen() : "Violation of: out.is_open";
 
-        // TODO: fill in body
-        for (int i = 0; i < text.length(); i++) {
-            if (text.charAt(i) == '~') {
-                out.println();
-            } else {
-                out.print(text.charAt(i));
-            }
+        int from = 0;
+        int tilde = text.indexOf('~');
+        while (tilde >= 0) {
+            out.println(text.substring(from, tilde));
+            from = tilde + 1;
+            tilde = text.indexOf('~', from);
         }
+        if (from < text.length()) {
+            out.print(text.substring(from));
+        }
+    }
 
+    /**
+     * Writes the string {@code text} to {@code out}, replacing each '~' with
+     * the platform line separator. Each run of text between '~'s is written
+     * with one call, so {@code out} should be buffered; it is not flushed.
+     *
+     * @param text
+     *            string to be output
+     * @param out
+     *            the writer
+     * @throws IOException
+     *             if writing fails
+     * @updates out
+     * @ensures <pre>
+     * out.content = #out.content *
+     *   [text with each '~' replaced by line separator]
+     * </pre>
+     */
+    public static void printWithLineSeparators(String text, Writer out)
+            throws IOException {
+        assert text != null : "Violation of: text is not null";
+        assert out != null : "Violation of: out is not null";
+
+        String separator = System.lineSeparator();
+        int from = 0;
+        int tilde = text.indexOf('~');
+        while (tilde >= 0) {
+            out.write(text, from, tilde - from);
+            out.write(separator);
+            from = tilde + 1;
+            tilde = text.indexOf('~', from);
+        }
+        out.write(text, from, text.length() - from);
+    }
+
+    /**
+     * Writes the string {@code text} to {@code out} in UTF-8, replacing each
+     * '~' with the platform line separator. The runs of text between '~'s are
+     * encoded straight from {@code text} into one fixed buffer of
+     * WRITE_BUFFER_SIZE bytes, which is written to {@code out} whenever it
+     * fills; malformed characters are encoded as '?'.
+     *
+     * @param text
+     *            string to be output
+     * @param out
+     *            the channel
+     * @throws IOException
+     *             if writing fails
+     * @updates out
+     * @requires out is open
+     * @ensures <pre>
+     * out.content = #out.content *
+     *   [UTF-8 encoding of text with each '~' replaced by line separator]
+     * </pre>
+     */
+    public static void printWithLineSeparators(String text, WritableByteChannel out)
+            throws IOException {
+        assert text != null : "Violation of: text is not null";
+        assert out != null : "Violation of: out is not null";
+
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        CharBuffer separator = CharBuffer.wrap(System.lineSeparator());
+        int from = 0;
+        int tilde = text.indexOf('~');
+        while (tilde >= 0) {
+            encode(encoder, CharBuffer.wrap(text, from, tilde), bytes, out);
+            encode(encoder, separator.duplicate(), bytes, out);
+            from = tilde + 1;
+            tilde = text.indexOf('~', from);
+        }
+        encode(encoder, CharBuffer.wrap(text, from, text.length()), bytes, out);
+        CoderResult result = encoder.encode(CharBuffer.allocate(0), bytes, true);
+        while (result.isOverflow()) {
+            drain(bytes, out);
+            result = encoder.encode(CharBuffer.allocate(0), bytes, true);
+        }
+        result = encoder.flush(bytes);
+        while (result.isOverflow()) {
+            drain(bytes, out);
+            result = encoder.flush(bytes);
+        }
+        drain(bytes, out);
+    }
+
+    /**
+     * Encodes the characters of {@code chars} into {@code bytes}, writing
+     * {@code bytes} to {@code out} whenever it fills.
+     *
+     * @param encoder
+     *            the encoder
+     * @param chars
+     *            the characters
+     * @param bytes
+     *            the byte buffer, in write mode
+     * @param out
+     *            the channel
+     * @throws IOException
+     *             if writing fails
+     * @updates encoder, chars, bytes, out
+     */
+    private static void encode(CharsetEncoder encoder, CharBuffer chars,
+            ByteBuffer bytes, WritableByteChannel out) throws IOException {
+        CoderResult result = encoder.encode(chars, bytes, false);
+        while (result.isOverflow()) {
+            drain(bytes, out);
+            result = encoder.encode(chars, bytes, false);
+        }
+    }
+
+    /**
+     * Writes the contents of {@code bytes} to {@code out}.
+     *
+     * @param bytes
+     *            the byte buffer, in write mode
+     * @param out
+     *            the channel
+     * @throws IOException
+     *             if writing fails
+     * @updates bytes, out
+     * @ensures bytes is empty and in write mode
+     */
+    private static void drain(ByteBuffer bytes, WritableByteChannel out)
+            throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Returns the value of the last argument of the form {@code key=value},
+     * or {@code fallback} if there is none.
+     *
+     * @param args
+     *            the command-line arguments
+     * @param key
+     *            the option name
+     * @param fallback
+     *            the default value
+     * @return the option value
+     */
+    private static String option(String[] args, String key, String fallback) {
+        String value = fallback;
+        for (String arg : args) {
+            if (arg.startsWith(key + "=")) {
+                value = arg.substring(key.length() + 1);
+            }
+        }
+        return value;
     }
 
     /**
@@ -404,37 +564,66 @@ public final class StringReassembly {
      * mutually non-overlapping, in which case it outputs the remaining
      * fragments, appropriately labelled.
      *
+     * <p>
+     * Arguments of the form key=value choose the engine: {@code engine=greedy}
+     * (the default) or {@code engine=unitig}, which outputs the unitigs of the
+     * overlap graph instead (see {@code UnitigAssembler}), and
+     * {@code minOverlap=N}, the shortest overlap either engine will use (1 for
+     * greedy and DEFAULT_UNITIG_OVERLAP for unitig unless given). With
+     * {@code progress=S}, the greedy engine reports its progress every S
+     * seconds and when done (see {@code AssemblyReport}); the unitig engine
+     * has no progress to report, and says so.
+     *
      * @param args
-     *            Command-line arguments: not used
+     *            Command-line arguments: engine=greedy|unitig, minOverlap=N,
+     *            progress=S
      */
     public static void main(String[] args) {
         SimpleReader in = new SimpleReader1L();
         SimpleWriter out = new SimpleWriter1L();
+        boolean unitig = option(args, "engine", "greedy").equals("unitig");
+        int minOverlap = Integer.parseInt(option(args, "minOverlap",
+                Integer.toString(unitig ? DEFAULT_UNITIG_OVERLAP : 1)));
+        String progress = option(args, "progress", "");
+        AssemblyListener listener = null;
+        if (!progress.isEmpty()) {
+            listener = new AssemblyReport(out,
+                    Math.round(Double.parseDouble(progress) * MILLIS_PER_SECOND));
+        }
         /*
          * Get input file name
          */
         out.print("Input file (with fragments): ");
         String inputFileName = in.nextLine();
-        SimpleReader inFile = new SimpleReader1L(inputFileName);
         /*
-         * Get initial fragments from input file
+         * Get initial fragments from input file, dropping those that are
+         * substrings of others, and assemble them as far as possible
          */
-        Set<String> fragments = linesFromInput(inFile);
-        /*
-         * Close inFile; we're done with it
-         */
-        inFile.close();
-        /*
-         * Assemble fragments as far as possible
-         */
-        assemble(fragments);
+        String[] fragments;
+        try {
+            FragmentArena maximal = FragmentLoader
+                    .readMaximal(Paths.get(inputFileName));
+            if (unitig) {
+                if (listener != null) {
+                    out.println("progress is only reported by engine=greedy");
+                }
+                fragments = UnitigAssembler.assemble(maximal, minOverlap);
+            } else if (minOverlap > 1) {
+                fragments = GreedyAssembler
+                        .assemble(new OverlapMatrix(maximal, minOverlap), listener);
+            } else {
+                fragments = GreedyAssembler.assemble(maximal, listener);
+            }
+        } catch (IOException e) {
+            out.println("Error reading " + inputFileName + ": " + e.getMessage());
+            fragments = new String[0];
+        }
         /*
          * Output fully assembled text or remaining fragments
          */
-        if (fragments.size() == 1) {
+        if (fragments.length == 1) {
             out.println();
-            String text = fragments.removeAny();
-            printWithLineSeparators(text, out);
+            printWithLineSeparators(fragments[0], out);
         } else {
             int fragmentNumber = 0;
             for (String str : fragments) {
@@ -0,0 +1,547 @@
+import java.util.Arrays;
+
+/**
+ * Keeps, from a sequence of lines, those that are not substrings of others:
+ * the same result as adding each line with
+ * {@code StringReassembly.addToSetAvoidingSubstrings}, without comparing a
+ * new line with every line kept so far.
+ *
+ * <p>
+ * Whether a line is a substring of a kept line is answered by a generalized
+ * suffix automaton of every line ever kept, which accepts exactly their
+ * substrings: the line is walked from the start state in time linear in its
+ * length. Lines dropped later because a longer kept line contains them stay
+ * in the automaton, which does no harm, since their substrings are
+ * substrings of that longer line too.
+ *
+ * <p>
+ * Which kept lines a new line contains is answered by Aho&ndash;Corasick
+ * automata ({@code OverlapIndex}) over the kept lines. As they cannot be
+ * extended, the kept lines are split into blocks, each indexed on its own,
+ * like the digits of a binary counter: a new line makes a block of its own,
+ * and the newest two blocks are merged (rebuilding the index without the
+ * dropped lines) while the older is not larger. So there are O(log n)
+ * blocks, each line is reindexed O(log n) times, and a query walks the line
+ * through each block's automaton.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class SubstringFilter {
+
+    /**
+     * The start state of the suffix automaton.
+     */
+    private static final int START = 0;
+
+    /**
+     * Marks a missing state, transition or block.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Initial capacity of the arrays; they grow as needed.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Lines kept so far, in the order kept, including dropped ones.
+     */
+    private final FragmentArena lines;
+
+    /**
+     * Whether each line in lines is still kept.
+     */
+    private boolean[] live;
+
+    /**
+     * Number of lines still kept.
+     */
+    private int size;
+
+    /**
+     * Length of the longest string that reaches each state.
+     */
+    private int[] length;
+
+    /**
+     * Suffix link of each state (NONE for the start state).
+     */
+    private int[] link;
+
+    /**
+     * First transition out of each state, or NONE.
+     */
+    private int[] firstEdge;
+
+    /**
+     * Number of states.
+     */
+    private int states;
+
+    /**
+     * Character of each transition.
+     */
+    private char[] edgeLabel;
+
+    /**
+     * Target state of each transition.
+     */
+    private int[] edgeTarget;
+
+    /**
+     * Next transition out of the same state, or NONE.
+     */
+    private int[] edgeNext;
+
+    /**
+     * Number of transitions.
+     */
+    private int edges;
+
+    /**
+     * Index of the lines of each block, oldest block first.
+     */
+    private OverlapIndex[] blockIndex;
+
+    /**
+     * Numbers (in lines) of the lines of each block.
+     */
+    private int[][] blockLines;
+
+    /**
+     * Number of blocks.
+     */
+    private int blocks;
+
+    /**
+     * Constructs a filter that keeps no lines yet.
+     */
+    public SubstringFilter() {
+        this.lines = new FragmentArena();
+        this.live = new boolean[INITIAL_CAPACITY];
+        this.size = 0;
+        this.length = new int[INITIAL_CAPACITY];
+        this.link = new int[INITIAL_CAPACITY];
+        this.firstEdge = new int[INITIAL_CAPACITY];
+        this.states = 1;
+        this.link[START] = NONE;
+        this.firstEdge[START] = NONE;
+        this.edgeLabel = new char[INITIAL_CAPACITY];
+        this.edgeTarget = new int[INITIAL_CAPACITY];
+        this.edgeNext = new int[INITIAL_CAPACITY];
+        this.edges = 0;
+        this.blockIndex = new OverlapIndex[INITIAL_CAPACITY];
+        this.blockLines = new int[INITIAL_CAPACITY][];
+        this.blocks = 0;
+    }
+
+    /**
+     * Returns the transition of {@code state} along {@code c}, or NONE.
+     *
+     * @param state
+     *            the state
+     * @param c
+     *            the character
+     * @return the transition, or NONE
+     */
+    private int edge(int state, char c) {
+        int e = this.firstEdge[state];
+        while (e != NONE && this.edgeLabel[e] != c) {
+            e = this.edgeNext[e];
+        }
+        return e;
+    }
+
+    /**
+     * Returns the target of the transition of {@code state} along {@code c},
+     * or NONE.
+     *
+     * @param state
+     *            the state
+     * @param c
+     *            the character
+     * @return the target state, or NONE
+     */
+    private int next(int state, char c) {
+        int e = this.edge(state, c);
+        int result = NONE;
+        if (e != NONE) {
+            result = this.edgeTarget[e];
+        }
+        return result;
+    }
+
+    /**
+     * Adds a transition of {@code state} along {@code c} to {@code target}.
+     *
+     * @param state
+     *            the state
+     * @param c
+     *            the character
+     * @param target
+     *            the target state
+     * @requires next(state, c) = NONE
+     */
+    private void addEdge(int state, char c, int target) {
+        if (this.edges == this.edgeLabel.length) {
+            int capacity = 2 * this.edges;
+            this.edgeLabel = Arrays.copyOf(this.edgeLabel, capacity);
+            this.edgeTarget = Arrays.copyOf(this.edgeTarget, capacity);
+            this.edgeNext = Arrays.copyOf(this.edgeNext, capacity);
+        }
+        this.edgeLabel[this.edges] = c;
+        this.edgeTarget[this.edges] = target;
+        this.edgeNext[this.edges] = this.firstEdge[state];
+        this.firstEdge[state] = this.edges;
+        this.edges++;
+    }
+
+    /**
+     * Creates a state with no transitions.
+     *
+     * @param len
+     *            length of the longest string that reaches it
+     * @return the state
+     */
+    private int newState(int len) {
+        if (this.states == this.length.length) {
+            int capacity = 2 * this.states;
+            this.length = Arrays.copyOf(this.length, capacity);
+            this.link = Arrays.copyOf(this.link, capacity);
+            this.firstEdge = Arrays.copyOf(this.firstEdge, capacity);
+        }
+        int s = this.states;
+        this.states++;
+        this.length[s] = len;
+        this.firstEdge[s] = NONE;
+        return s;
+    }
+
+    /**
+     * Splits state {@code q}, reached from {@code p} along {@code c}: makes a
+     * copy of q for the strings no longer than |p| + 1 and redirects to it
+     * the transitions along c of p and of its suffix links that went to q.
+     *
+     * @param p
+     *            the state
+     * @param c
+     *            the character
+     * @param q
+     *            the target of p along c
+     * @return the copy
+     */
+    private int split(int p, char c, int q) {
+        int clone = this.newState(this.length[p] + 1);
+        for (int e = this.firstEdge[q]; e != NONE; e = this.edgeNext[e]) {
+            this.addEdge(clone, this.edgeLabel[e], this.edgeTarget[e]);
+        }
+        this.link[clone] = this.link[q];
+        this.link[q] = clone;
+        int v = p;
+        int e = this.edge(v, c);
+        while (e != NONE && this.edgeTarget[e] == q) {
+            this.edgeTarget[e] = clone;
+            v = this.link[v];
+            e = NONE;
+            if (v != NONE) {
+                e = this.edge(v, c);
+            }
+        }
+        return clone;
+    }
+
+    /**
+     * Extends the automaton by character {@code c} after state {@code last},
+     * the state of the part of the current line read so far.
+     *
+     * @param last
+     *            the state of the line read so far
+     * @param c
+     *            the next character of the line
+     * @return the state of the line read so far, c included
+     */
+    private int extend(int last, char c) {
+        int q = this.next(last, c);
+        int result;
+        if (q != NONE) {
+            /*
+             * The longer string is already a substring of some line
+             */
+            if (this.length[q] == this.length[last] + 1) {
+                result = q;
+            } else {
+                result = this.split(last, c, q);
+            }
+        } else {
+            int current = this.newState(this.length[last] + 1);
+            int p = last;
+            while (p != NONE && this.next(p, c) == NONE) {
+                this.addEdge(p, c, current);
+                p = this.link[p];
+            }
+            if (p == NONE) {
+                this.link[current] = START;
+            } else {
+                q = this.next(p, c);
+                if (this.length[q] == this.length[p] + 1) {
+                    this.link[current] = q;
+                } else {
+                    /*
+                     * split may reallocate link, so call it before indexing
+                     */
+                    int clone = this.split(p, c, q);
+                    this.link[current] = clone;
+                }
+            }
+            result = current;
+        }
+        return result;
+    }
+
+    /**
+     * Reports whether {@code line} is a substring of a kept line (or equal
+     * to one).
+     *
+     * @param line
+     *            the line
+     * @return whether some kept line contains line
+     */
+    public boolean isCovered(String line) {
+        assert line != null : "Violation of: line is not null";
+
+        return this.isCovered(line.toCharArray(), 0, line.length());
+    }
+
+    /**
+     * Reports whether the line {@code text[from, from + length)} is a
+     * substring of a kept line (or equal to one).
+     *
+     * @param text
+     *            characters of the line
+     * @param from
+     *            position of the line in text
+     * @param length
+     *            length of the line
+     * @return whether some kept line contains the line
+     * @requires 0 <= from and 0 <= length and from + length <= |text|
+     */
+    public boolean isCovered(char[] text, int from, int length) {
+        assert text != null : "Violation of: text is not null";
+
+        int state = START;
+        for (int p = from; p < from + length && state != NONE; p++) {
+            state = this.next(state, text[p]);
+        }
+        return state != NONE && this.size > 0;
+    }
+
+    /**
+     * Returns the kept lines that are substrings of {@code line}, in the
+     * order they were kept.
+     *
+     * @param line
+     *            the line
+     * @return the kept lines contained in line
+     */
+    public String[] keptSubstringsOf(String line) {
+        assert line != null : "Violation of: line is not null";
+
+        int[] numbers = this.contained(line.toCharArray(), 0, line.length());
+        String[] result = new String[numbers.length];
+        for (int k = 0; k < numbers.length; k++) {
+            result[k] = this.lines.fragment(numbers[k]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the numbers of the kept lines that are substrings of the line
+     * {@code text[from, from + length)}, in increasing order.
+     *
+     * @param text
+     *            characters of the line
+     * @param from
+     *            position of the line in text
+     * @param length
+     *            length of the line
+     * @return the numbers, in lines, of the kept lines contained in the line
+     */
+    private int[] contained(char[] text, int from, int length) {
+        int[] result = new int[0];
+        int count = 0;
+        for (int b = 0; b < this.blocks; b++) {
+            for (int i : this.blockIndex[b].occurrencesIn(text, from, length)) {
+                int number = this.blockLines[b][i];
+                if (this.live[number]) {
+                    if (count == result.length) {
+                        result = Arrays.copyOf(result, 2 * count + 1);
+                    }
+                    result[count] = number;
+                    count++;
+                }
+            }
+        }
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Adds a block holding just line {@code number}, then merges the newest
+     * two blocks, leaving out dropped lines, while the older is not larger.
+     *
+     * @param number
+     *            the line's number in lines
+     */
+    private void addBlock(int number) {
+        if (this.blocks == this.blockIndex.length) {
+            this.blockIndex = Arrays.copyOf(this.blockIndex, 2 * this.blocks);
+            this.blockLines = Arrays.copyOf(this.blockLines, 2 * this.blocks);
+        }
+        int[] members = { number };
+        this.blockLines[this.blocks] = members;
+        this.blocks++;
+        boolean merge = true;
+        while (this.blocks > 1 && merge) {
+            int[] older = this.blockLines[this.blocks - 2];
+            int[] newer = this.blockLines[this.blocks - 1];
+            merge = older.length <= newer.length;
+            if (merge) {
+                this.mergeNewest(older, newer);
+            }
+        }
+        int[] newest = this.blockLines[this.blocks - 1];
+        FragmentArena text = new FragmentArena();
+        for (int n : newest) {
+            text.add(this.lines, n);
+        }
+        this.blockIndex[this.blocks - 1] = new OverlapIndex(text);
+    }
+
+    /**
+     * Replaces the newest two blocks, {@code older} and {@code newer}, by one
+     * block of their lines still kept; its index is left to the caller.
+     *
+     * @param older
+     *            lines of the second newest block
+     * @param newer
+     *            lines of the newest block
+     */
+    private void mergeNewest(int[] older, int[] newer) {
+        int[] merged = new int[older.length + newer.length];
+        int count = 0;
+        for (int[] block : new int[][] { older, newer }) {
+            for (int n : block) {
+                if (this.live[n]) {
+                    merged[count] = n;
+                    count++;
+                }
+            }
+        }
+        this.blocks--;
+        this.blockLines[this.blocks - 1] = Arrays.copyOf(merged, count);
+        this.blockLines[this.blocks] = null;
+        this.blockIndex[this.blocks] = null;
+    }
+
+    /**
+     * Keeps {@code line} if and only if it is not a substring of a kept line;
+     * and if it is kept, drops the kept lines that are substrings of it.
+     *
+     * @param line
+     *            the line
+     * @return whether line was kept
+     * @ensures <pre>
+     * if [line is not a substring of a kept line]
+     *  then [kept lines] = #[kept lines] union {line} \
+     *                      [substrings of line]
+     *  else [kept lines] = #[kept lines]
+     * </pre>
+     */
+    public boolean add(String line) {
+        assert line != null : "Violation of: line is not null";
+
+        return this.add(line.toCharArray(), 0, line.length());
+    }
+
+    /**
+     * Keeps the line {@code text[from, from + length)} if and only if it is
+     * not a substring of a kept line; and if it is kept, drops the kept lines
+     * that are substrings of it. The line is copied, so text may be reused.
+     *
+     * @param text
+     *            characters of the line
+     * @param from
+     *            position of the line in text
+     * @param length
+     *            length of the line
+     * @return whether the line was kept
+     * @requires 0 <= from and 0 <= length and from + length <= |text|
+     * @ensures <pre>
+     * if [the line is not a substring of a kept line]
+     *  then [kept lines] = #[kept lines] union {the line} \
+     *                      [substrings of the line]
+     *  else [kept lines] = #[kept lines]
+     * </pre>
+     */
+    public boolean add(char[] text, int from, int length) {
+        assert text != null : "Violation of: text is not null";
+        assert 0 <= from && 0 <= length && from + length <= text.length : ""
+                + "Violation of: 0 <= from and 0 <= length and from + length <= |text|";
+
+        boolean keep = !this.isCovered(text, from, length);
+        if (keep) {
+            for (int number : this.contained(text, from, length)) {
+                this.live[number] = false;
+                this.size--;
+            }
+            int last = START;
+            for (int p = from; p < from + length; p++) {
+                last = this.extend(last, text[p]);
+            }
+            int number = this.lines.add(text, from, length);
+            if (number == this.live.length) {
+                this.live = Arrays.copyOf(this.live, 2 * number);
+            }
+            this.live[number] = true;
+            this.size++;
+            this.addBlock(number);
+        }
+        return keep;
+    }
+
+    /**
+     * Reports the number of kept lines.
+     *
+     * @return the number of kept lines
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the kept lines, in the order they were kept.
+     *
+     * @return the kept lines
+     */
+    public String[] kept() {
+        return this.keptFragments().toArray();
+    }
+
+    /**
+     * Returns the kept lines, in the order they were kept, in a new arena.
+     *
+     * @return the kept lines
+     */
+    public FragmentArena keptFragments() {
+        FragmentArena result = new FragmentArena();
+        for (int n = 0; n < this.lines.size(); n++) {
+            if (this.live[n]) {
+                result.add(this.lines, n);
+            }
+        }
+        return result;
+    }
+
+}
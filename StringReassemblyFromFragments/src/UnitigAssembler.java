@@ -0,0 +1,159 @@
+/**
+ * Assembly by unitigs of the overlap graph, for fragment sets too large or
+ * too repetitive for greedy merging. The overlap graph has a vertex per
+ * fragment and an edge x &rarr; y for every overlap of at least a minimum
+ * length (an {@code OverlapMatrix}). Its transitive edges are removed first:
+ * x &rarr; z is implied by x &rarr; y &rarr; z when y sits between x and z,
+ * i.e., when the overlap of x and z is that of x and y plus that of y and z
+ * minus the length of y. In the graph that is left, an edge x &rarr; y whose
+ * x has no other successor and whose y has no other predecessor is
+ * unambiguous, and contracting all of them leaves the unitigs: the longest
+ * paths along which the fragments can be placed only one way. Unlike the
+ * greedy assembler, this never joins fragments across a repeat, so it may
+ * leave more strings, but none of its joins is a guess.
+ *
+ * <p>
+ * Removing transitive edges takes time proportional to the sum, over the
+ * edges x &rarr; y, of the number of successors of y; contracting the
+ * unambiguous edges takes time linear in the number of edges.
+ *
+ * @author Chris Ma
+ *
+ */
+public final class UnitigAssembler {
+
+    /**
+     * The overlap graph.
+     */
+    private final OverlapMatrix graph;
+
+    /**
+     * Whether each edge of graph is transitive.
+     */
+    private final boolean[] transitive;
+
+    /**
+     * The unitigs, as chains of fragments.
+     */
+    private final FragmentChains chains;
+
+    /**
+     * Number of edges that are not transitive.
+     */
+    private int reducedEdges;
+
+    /**
+     * Computes the unitigs of the overlap graph {@code graph}.
+     *
+     * @param graph
+     *            the overlaps of the fragments
+     * @requires [no fragment of graph is a substring of another]
+     */
+    public UnitigAssembler(OverlapMatrix graph) {
+        assert graph != null : "Violation of: graph is not null";
+
+        this.graph = graph;
+        this.transitive = new boolean[graph.edges()];
+        this.chains = new FragmentChains(graph.fragments());
+        this.reduce();
+        this.contract();
+    }
+
+    /**
+     * Marks the transitive edges of graph.
+     */
+    private void reduce() {
+        OverlapMatrix g = this.graph;
+        FragmentArena fragments = g.fragments();
+        int n = g.size();
+        /*
+         * For the fragment x being handled, stamp[z] = x + 1 and edgeTo[z] is
+         * the edge x -> z, for every successor z of x
+         */
+        int[] stamp = new int[n];
+        int[] edgeTo = new int[n];
+        for (int x = 0; x < n; x++) {
+            for (int e = g.rowStart(x); e < g.rowStart(x + 1); e++) {
+                stamp[g.target(e)] = x + 1;
+                edgeTo[g.target(e)] = e;
+            }
+            for (int e = g.rowStart(x); e < g.rowStart(x + 1); e++) {
+                int y = g.target(e);
+                int implied = g.overlap(e) - fragments.length(y);
+                for (int f = g.rowStart(y); f < g.rowStart(y + 1); f++) {
+                    int z = g.target(f);
+                    if (z != x && stamp[z] == x + 1
+                            && g.overlap(edgeTo[z]) == implied + g.overlap(f)) {
+                        this.transitive[edgeTo[z]] = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Joins the fragments along the unambiguous edges of the reduced graph.
+     */
+    private void contract() {
+        OverlapMatrix g = this.graph;
+        int n = g.size();
+        int[] out = new int[n];
+        int[] in = new int[n];
+        this.reducedEdges = 0;
+        for (int e = 0; e < g.edges(); e++) {
+            if (!this.transitive[e]) {
+                out[g.source(e)]++;
+                in[g.target(e)]++;
+                this.reducedEdges++;
+            }
+        }
+        for (int e = 0; e < g.edges(); e++) {
+            int x = g.source(e);
+            int y = g.target(e);
+            /*
+             * canJoin fails only for the last edge of a cycle of unambiguous
+             * edges, which is left out so that the cycle becomes a path
+             */
+            if (!this.transitive[e] && out[x] == 1 && in[y] == 1
+                    && this.chains.canJoin(x, y)) {
+                this.chains.join(x, y, g.overlap(e));
+            }
+        }
+    }
+
+    /**
+     * Reports the number of edges left after removing the transitive ones.
+     *
+     * @return the number of edges of the reduced graph
+     */
+    public int reducedEdges() {
+        return this.reducedEdges;
+    }
+
+    /**
+     * Returns the strings spelled by the unitigs, in order of the number of
+     * their first fragment.
+     *
+     * @return the unitigs
+     */
+    public String[] contigs() {
+        return this.chains.contigs();
+    }
+
+    /**
+     * Returns the unitigs of the overlap graph of the fragments in
+     * {@code fragments} with overlaps of at least {@code minOverlap}
+     * characters.
+     *
+     * @param fragments
+     *            the fragments
+     * @param minOverlap
+     *            shortest overlap to use
+     * @return the unitigs
+     * @requires minOverlap > 0 and [no fragment is a substring of another]
+     */
+    public static String[] assemble(FragmentArena fragments, int minOverlap) {
+        return new UnitigAssembler(new OverlapMatrix(fragments, minOverlap)).contigs();
+    }
+
+}
@@ -0,0 +1,91 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for the AssemblyStats class.
+ */
+public class AssemblyStatsTest {
+
+    /**
+     * Listener that records the strings left at each call.
+     */
+    private static final class Recorder implements AssemblyListener {
+
+        /**
+         * Strings left after each merge.
+         */
+        private final List<Integer> merges = new ArrayList<>();
+
+        /**
+         * Final statistics, or null.
+         */
+        private AssemblyStats finished = null;
+
+        /**
+         * Number of calls to finished.
+         */
+        private int finishedCalls = 0;
+
+        @Override
+        public void merged(AssemblyStats stats) {
+            this.merges.add(stats.remaining());
+        }
+
+        @Override
+        public void finished(AssemblyStats stats) {
+            this.finished = stats;
+            this.finishedCalls++;
+        }
+
+    }
+
+    @Test
+    public void listenerTest() {
+        Recorder recorder = new Recorder();
+        FragmentArena fragments = FragmentArena
+                .of(new String[] { "abcde", "cdefg", "efghi", "xyz" });
+        String[] contigs = GreedyAssembler.assemble(fragments, recorder);
+        assertArrayEquals(new String[] { "abcdefghi", "xyz" }, contigs);
+        assertEquals(List.of(3, 2), recorder.merges);
+        assertEquals(1, recorder.finishedCalls);
+        AssemblyStats stats = recorder.finished;
+        assertEquals(4, stats.fragments());
+        assertEquals(2, stats.remaining());
+        assertEquals(2, stats.merges());
+        assertEquals(3.0, stats.averageOverlap(), 0.0);
+        assertTrue(stats.overlapComputations() >= 2);
+    }
+
+    @Test
+    public void matrixListenerTest() {
+        Recorder recorder = new Recorder();
+        FragmentArena fragments = FragmentArena
+                .of(new String[] { "abcde", "cdefg", "efghi", "xyz" });
+        String[] contigs = GreedyAssembler.assemble(new OverlapMatrix(fragments, 2),
+                recorder);
+        assertArrayEquals(new String[] { "abcdefghi", "xyz" }, contigs);
+        assertEquals(List.of(3, 2), recorder.merges);
+        assertEquals(1, recorder.finishedCalls);
+        assertEquals(3.0, recorder.finished.averageOverlap(), 0.0);
+        assertEquals(2, recorder.finished.overlapComputations());
+    }
+
+    @Test
+    public void noMergesTest() {
+        GreedyAssembler assembler = new GreedyAssembler(
+                FragmentArena.of(new String[] { "abc", "xyz" }));
+        assertEquals(0, assembler.mergeNext());
+        AssemblyStats stats = assembler.stats();
+        assertEquals(2, stats.remaining());
+        assertEquals(0, stats.merges());
+        assertEquals(0.0, stats.averageOverlap(), 0.0);
+        assertEquals(0.0, stats.mergeRate(), 0.0);
+    }
+
+}
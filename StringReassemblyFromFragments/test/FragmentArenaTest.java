@@ -0,0 +1,36 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests for the FragmentArena class.
+ */
+public class FragmentArenaTest {
+
+    @Test
+    public void addTest() {
+        FragmentArena arena = new FragmentArena();
+        char[] text = "xxGo Bucksxx".toCharArray();
+        assertEquals(0, arena.add(text, 2, 8));
+        assertEquals(1, arena.add("Beat Michigan"));
+        assertEquals(2, arena.add(""));
+        assertEquals(3, arena.size());
+        assertEquals(21, arena.totalLength());
+        assertEquals(8, arena.length(0));
+        assertEquals('B', arena.charAt(1, 0));
+        String[] expected = { "Go Bucks", "Beat Michigan", "" };
+        assertArrayEquals(expected, arena.toArray());
+    }
+
+    @Test
+    public void appendToTest() {
+        String[] fragments = { "Go Bucks", "cks -- Beat" };
+        FragmentArena arena = FragmentArena.of(fragments);
+        StringBuilder text = new StringBuilder();
+        arena.appendTo(0, 0, text);
+        arena.appendTo(1, 3, text);
+        assertEquals("Go Bucks -- Beat", text.toString());
+    }
+
+}
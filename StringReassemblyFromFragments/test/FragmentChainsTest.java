@@ -0,0 +1,28 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for the FragmentChains class.
+ */
+public class FragmentChainsTest {
+
+    @Test
+    public void joinTest() {
+        String[] fragments = { "cdef", "abcd", "efgh" };
+        FragmentChains chains = new FragmentChains(FragmentArena.of(fragments));
+        assertEquals(3, chains.count());
+        assertTrue(chains.canJoin(1, 0));
+        chains.join(1, 0, 2);
+        assertFalse(chains.canJoin(1, 2));
+        assertFalse(chains.canJoin(0, 1));
+        chains.join(0, 2, 2);
+        assertEquals(1, chains.count());
+        String[] expected = { "abcdefgh" };
+        assertArrayEquals(expected, chains.contigs());
+    }
+
+}
@@ -0,0 +1,63 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+/**
+ * Tests for the FragmentLoader class.
+ */
+public class FragmentLoaderTest {
+
+    /**
+     * Writes {@code text} to a new temporary file, in UTF-8.
+     *
+     * @param text
+     *            the contents
+     * @return the file
+     * @throws IOException
+     *             if writing fails
+     */
+    private static Path write(String text) throws IOException {
+        Path file = Files.createTempFile("fragments", ".txt");
+        file.toFile().deleteOnExit();
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void readAllTest() throws IOException {
+        Path file = write("Go Bucks\r\n\nBeat Michïgan~");
+        String[] expected = { "Go Bucks", "", "Beat Michïgan~" };
+        assertArrayEquals(expected, FragmentLoader.readAll(file).toArray());
+    }
+
+    @Test
+    public void readAllLongLineTest() throws IOException {
+        /*
+         * Longer than the buffers, with two-byte characters across their
+         * boundaries
+         */
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 50000; i++) {
+            line.append("aé");
+        }
+        Path file = write(line + "\nb\n");
+        FragmentArena lines = FragmentLoader.readAll(file);
+        assertEquals(2, lines.size());
+        assertEquals(line.toString(), lines.fragment(0));
+        assertEquals("b", lines.fragment(1));
+    }
+
+    @Test
+    public void readMaximalTest() throws IOException {
+        Path file = write("Bucks\nGo Bucks\nGo Bucks\nBeat\nBucks -- Beat\n");
+        String[] expected = { "Go Bucks", "Bucks -- Beat" };
+        assertArrayEquals(expected, FragmentLoader.readMaximal(file).toArray());
+    }
+
+}
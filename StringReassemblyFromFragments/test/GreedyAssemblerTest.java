@@ -0,0 +1,43 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests for the GreedyAssembler class.
+ */
+public class GreedyAssemblerTest {
+
+    @Test
+    public void assembleTest1() {
+        String[] fragments = { "Beat Mich", "Go Bucks", "Michigan~",
+            "o Bucks -- B", "Bucks -- Beat" };
+        String[] expected = { "Go Bucks -- Beat Michigan~" };
+        assertArrayEquals(expected, GreedyAssembler.assemble(fragments));
+    }
+
+    @Test
+    public void assembleTest2() {
+        /*
+         * "abcd" -> "cdxy" (2) is taken first; then "xyab" can only follow
+         * "cdxy", as "abcd" already starts the chain ending in "cdxy"
+         */
+        String[] fragments = { "abcd", "cdxy", "xyab" };
+        String[] expected = { "abcdxyab" };
+        assertArrayEquals(expected, GreedyAssembler.assemble(fragments));
+    }
+
+    @Test
+    public void mergeNextTest() {
+        String[] fragments = { "abcde", "cdefg", "qrs", "rst" };
+        GreedyAssembler assembler = new GreedyAssembler(fragments);
+        assertEquals(4, assembler.chains());
+        assertEquals(3, assembler.mergeNext());
+        assertEquals(2, assembler.mergeNext());
+        assertEquals(0, assembler.mergeNext());
+        assertEquals(2, assembler.chains());
+        String[] expected = { "abcdefg", "qrst" };
+        assertArrayEquals(expected, assembler.contigs());
+    }
+
+}
@@ -0,0 +1,45 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests for the OverlapHashes class.
+ */
+public class OverlapHashesTest {
+
+    @Test
+    public void overlapTest1() {
+        String[] fragments = { "Go Bucks", "cks -- Beat", "Beat Mich" };
+        OverlapHashes hashes = new OverlapHashes(fragments);
+        assertEquals(3, hashes.size());
+        assertEquals(3, hashes.overlap(0, 1));
+        assertEquals(4, hashes.overlap(1, 2));
+        assertEquals(0, hashes.overlap(2, 0));
+    }
+
+    @Test
+    public void overlapTest2() {
+        String[] fragments = { "xxabababa", "ababax", "ab" };
+        OverlapHashes hashes = new OverlapHashes(fragments);
+        assertEquals(5, hashes.overlap(0, 1));
+        assertEquals(1, hashes.overlap(1, 0));
+    }
+
+    @Test
+    public void overlapTest3() {
+        /*
+         * Agrees with StringReassembly.overlap on every pair
+         */
+        String[] fragments = { "abcab", "cabca", "bcabc", "aabb", "bbaa" };
+        OverlapHashes hashes = new OverlapHashes(fragments);
+        for (int i = 0; i < fragments.length; i++) {
+            for (int j = 0; j < fragments.length; j++) {
+                if (i != j) {
+                    assertEquals(StringReassembly.overlap(fragments[i], fragments[j]),
+                            hashes.overlap(i, j));
+                }
+            }
+        }
+    }
+
+}
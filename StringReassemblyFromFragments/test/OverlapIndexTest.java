@@ -0,0 +1,61 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests for the OverlapIndex class.
+ */
+public class OverlapIndexTest {
+
+    @Test
+    public void bestOverlapTest1() {
+        String[] fragments = { "Go Bucks", "o Bucks -- B", "Bucks -- Beat",
+            "Beat Mich", "Michigan~" };
+        OverlapIndex index = new OverlapIndex(fragments);
+        assertEquals(7, index.bestOverlap(0));
+        assertEquals(1, index.bestSuccessor(0));
+        assertEquals(10, index.bestOverlap(1));
+        assertEquals(2, index.bestSuccessor(1));
+        assertEquals(4, index.bestOverlap(2));
+        assertEquals(3, index.bestSuccessor(2));
+        assertEquals(4, index.bestOverlap(3));
+        assertEquals(4, index.bestSuccessor(3));
+        assertEquals(0, index.bestOverlap(4));
+        assertEquals(-1, index.bestSuccessor(4));
+    }
+
+    @Test
+    public void bestOverlapTest2() {
+        /*
+         * "abab" overlaps itself by 2, which must not count; both others
+         * overlap it by 3, and the smaller number wins the tie
+         */
+        String[] fragments = { "abab", "babx", "baby" };
+        OverlapIndex index = new OverlapIndex(fragments);
+        assertEquals(3, index.bestOverlap(0));
+        assertEquals(1, index.bestSuccessor(0));
+        assertEquals(0, index.bestOverlap(1));
+        assertEquals(0, index.bestOverlap(2));
+    }
+
+    @Test
+    public void bestOverlapTest3() {
+        String[] fragments = { "xabc", "abcd" };
+        OverlapIndex index = new OverlapIndex(fragments);
+        assertEquals(3, index.bestOverlap(0));
+        assertEquals(1, index.bestSuccessor(0));
+        assertEquals(0, index.bestOverlap(1));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void occurrencesInTest() {
+        String[] fragments = { "he", "she", "hers", "his", "xyz" };
+        OverlapIndex index = new OverlapIndex(fragments);
+        int[] expected = { 0, 1, 2 };
+        assertArrayEquals(expected, index.occurrencesIn("ushers"));
+        assertArrayEquals(new int[0], index.occurrencesIn("hi"));
+    }
+
+}
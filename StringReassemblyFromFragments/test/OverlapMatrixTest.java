@@ -0,0 +1,72 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Tests for the OverlapMatrix class.
+ */
+public class OverlapMatrixTest {
+
+    @Test
+    public void edgesTest() {
+        String[] fragments = { "abcd", "cdxy", "bcdz", "xyab" };
+        OverlapMatrix matrix = new OverlapMatrix(FragmentArena.of(fragments), 1);
+        assertEquals(4, matrix.size());
+        /*
+         * Row 0: "bcdz" by 3, then "cdxy" by 2; row 1: "xyab" by 2; row 3:
+         * "abcd" by 2, then "bcdz" by 1
+         */
+        assertEquals(5, matrix.edges());
+        assertEquals(0, matrix.rowStart(0));
+        assertEquals(2, matrix.rowStart(1));
+        assertEquals(3, matrix.rowStart(2));
+        assertEquals(3, matrix.rowStart(3));
+        assertEquals(2, matrix.target(0));
+        assertEquals(3, matrix.overlap(0));
+        assertEquals(1, matrix.target(1));
+        assertEquals(2, matrix.overlap(1));
+        assertEquals(3, matrix.target(2));
+        assertEquals(0, matrix.target(3));
+        assertEquals(3, matrix.source(3));
+        assertEquals(2, matrix.target(4));
+        assertEquals(1, matrix.overlap(4));
+        int[] expected = { 0, 1, 2, 3, 4 };
+        assertArrayEquals(expected, matrix.byOverlap());
+    }
+
+    @Test
+    public void minOverlapTest() {
+        String[] fragments = { "abcd", "cdxy", "bcdz", "xyab" };
+        OverlapMatrix matrix = new OverlapMatrix(FragmentArena.of(fragments), 3);
+        assertEquals(1, matrix.edges());
+        assertEquals(0, matrix.source(0));
+        assertEquals(2, matrix.target(0));
+    }
+
+    @Test
+    public void assembleTest() {
+        /*
+         * The same result as the heap-based assembler, with any number of
+         * threads
+         */
+        String[] fragments = { "Beat Mich", "Go Bucks", "Michigan~", "o Bucks -- B",
+            "Bucks -- Beat" };
+        FragmentArena arena = FragmentArena.of(fragments);
+        String[] expected = GreedyAssembler.assemble(arena);
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool several = new ForkJoinPool(4);
+        try {
+            OverlapMatrix one = new OverlapMatrix(arena, 1, single);
+            OverlapMatrix four = new OverlapMatrix(arena, 1, several);
+            assertArrayEquals(expected, GreedyAssembler.assemble(one));
+            assertArrayEquals(expected, GreedyAssembler.assemble(four));
+        } finally {
+            single.shutdown();
+            several.shutdown();
+        }
+    }
+
+}
@@ -2,6 +2,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
 import org.junit.Test;
 
 import components.set.Set;
@@ -17,6 +24,28 @@ import components.simplewriter.SimpleWriter1L;
 
 public class StringReassemblyTest {
 
+    /**
+     * Tests of overlap method.
+     */
+
+    @Test
+    public void overlapTest1() {
+        assertEquals(3, StringReassembly.overlap("Go Bucks", "cks -- Beat"));
+    }
+
+    @Test
+    public void overlapTest2() {
+        /*
+         * The longest overlap is not the first border found
+         */
+        assertEquals(5, StringReassembly.overlap("xxabababa", "ababax"));
+    }
+
+    @Test
+    public void overlapTest3() {
+        assertEquals(0, StringReassembly.overlap("abc", "xyz"));
+    }
+
     /**
      * Tests of combination method.
      */
@@ -168,4 +197,27 @@ public class StringReassemblyTest {
         assertEquals(expectedString, readback);
     }
 
+    @Test
+    public void printWithLineSeparatorsTest2() throws IOException {
+        StringWriter out = new StringWriter();
+        StringReassembly.printWithLineSeparators("~~a b~c", out);
+        String nl = System.lineSeparator();
+        assertEquals(nl + nl + "a b" + nl + "c", out.toString());
+    }
+
+    @Test
+    public void printWithLineSeparatorsTest3() throws IOException {
+        StringBuilder text = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            text.append("caf\u00e9 ").append(i).append('~');
+            expected.append("caf\u00e9 ").append(i).append(System.lineSeparator());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        WritableByteChannel out = Channels.newChannel(bytes);
+        StringReassembly.printWithLineSeparators(text.toString(), out);
+        assertEquals(expected.toString(),
+                new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
 }
@@ -0,0 +1,53 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for the SubstringFilter class.
+ */
+public class SubstringFilterTest {
+
+    @Test
+    public void addTest1() {
+        SubstringFilter filter = new SubstringFilter();
+        assertTrue(filter.add("Bucks -- Beat"));
+        assertFalse(filter.add("Beat"));
+        assertFalse(filter.add("Bucks -- Beat"));
+        assertTrue(filter.add("Go Bucks"));
+        assertEquals(2, filter.size());
+        String[] expected = { "Bucks -- Beat", "Go Bucks" };
+        assertArrayEquals(expected, filter.kept());
+    }
+
+    @Test
+    public void addTest2() {
+        /*
+         * A longer line drops every kept line it contains
+         */
+        SubstringFilter filter = new SubstringFilter();
+        filter.add("cd");
+        filter.add("xy");
+        filter.add("ab");
+        filter.add("zz");
+        String[] contained = { "cd", "ab" };
+        assertArrayEquals(contained, filter.keptSubstringsOf("abcde"));
+        assertTrue(filter.add("abcde"));
+        String[] expected = { "xy", "zz", "abcde" };
+        assertArrayEquals(expected, filter.kept());
+        assertTrue(filter.isCovered("cd"));
+        assertFalse(filter.isCovered("yz"));
+    }
+
+    @Test
+    public void addTest3() {
+        SubstringFilter filter = new SubstringFilter();
+        assertFalse(filter.isCovered(""));
+        assertTrue(filter.add("abc"));
+        assertTrue(filter.isCovered(""));
+        assertEquals(1, filter.size());
+    }
+
+}
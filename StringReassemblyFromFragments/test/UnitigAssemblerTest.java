@@ -0,0 +1,35 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests for the UnitigAssembler class.
+ */
+public class UnitigAssemblerTest {
+
+    @Test
+    public void assembleTest1() {
+        /*
+         * Each fragment overlaps the next two; the reduced graph is a path
+         */
+        FragmentArena fragments = FragmentArena
+                .of(new String[] { "abcdef", "cdefgh", "efghij", "ghijkl" });
+        UnitigAssembler unitigs = new UnitigAssembler(
+                new OverlapMatrix(fragments, 2));
+        assertEquals(3, unitigs.reducedEdges());
+        assertArrayEquals(new String[] { "abcdefghijkl" }, unitigs.contigs());
+    }
+
+    @Test
+    public void assembleTest2() {
+        /*
+         * "xxabc" has two successors, so no join is made across it
+         */
+        FragmentArena fragments = FragmentArena
+                .of(new String[] { "xxabc", "abcyy", "abczz", "zzqq" });
+        String[] contigs = UnitigAssembler.assemble(fragments, 2);
+        assertArrayEquals(new String[] { "xxabc", "abcyy", "abczzqq" }, contigs);
+    }
+
+}